@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Provides a generated calendar file with a specific number of events, shared by all benchmarks.
+ * <p>
+ * The events resemble a real world calendar: Every 10th event is a duplicate of a previous one, every 20th event has
+ * neither summary nor description and every 25th event contains the term "Remove me".
+ */
+@State(Scope.Benchmark)
+public class CalendarState {
+    static final String REMOVE_TERM = "Remove me";
+    private static final String[] WORDS = {"Meeting", "Lunch", "Call", "Review", "Planning", "Sprint", "Demo",
+        "Retro", "Training", "Workshop", "Interview", "Sync", "Standup", "Release", "Party"};
+
+    @Param({"1000", "10000", "100000"})
+    int events;
+
+    Path directory;
+    Path calendarFile;
+    byte[] calendarBytes;
+
+    @Setup
+    public void createCalendar() throws IOException {
+        directory = Files.createTempDirectory("colander-benchmarks");
+        calendarFile = directory.resolve("calendar.ics");
+        calendarBytes = createCalendar(events).getBytes(StandardCharsets.UTF_8);
+        Files.write(calendarFile, calendarBytes);
+    }
+
+    @TearDown
+    public void deleteCalendar() throws IOException {
+        Files.deleteIfExists(calendarFile);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * @return an iCal with {@code events} generated events. Always the same for the same number of events.
+     */
+    static String createCalendar(int events) {
+        Random random = new Random(42);
+        StringBuilder cal = new StringBuilder();
+        cal.append("BEGIN:VCALENDAR\r\n")
+            .append("PRODID:-//schnatterer//colander benchmarks//EN\r\n")
+            .append("VERSION:2.0\r\n")
+            .append("CALSCALE:GREGORIAN\r\n");
+        for (int i = 0; i < events; i++) {
+            // Duplicates have the same content as a previous event, only their UID differs
+            int content = i % 10 == 9 ? random.nextInt(i) : i;
+            cal.append("BEGIN:VEVENT\r\n")
+                .append("UID:").append(i).append("@colander\r\n")
+                .append("DTSTAMP:20170101T000000Z\r\n")
+                .append(String.format("DTSTART:2017%02d%02dT%02d0000Z\r\n",
+                    1 + content % 12, 1 + content % 28, content % 23))
+                .append(String.format("DTEND:2017%02d%02dT%02d0000Z\r\n",
+                    1 + content % 12, 1 + content % 28, 1 + content % 23));
+            if (content % 20 != 19) {
+                cal.append("SUMMARY:").append(text(new Random(content), 3));
+                if (content % 25 == 24) {
+                    cal.append(' ').append(REMOVE_TERM);
+                }
+                cal.append("\r\n")
+                    .append("DESCRIPTION:").append(text(new Random(-content), 12)).append("\r\n");
+            }
+            cal.append("END:VEVENT\r\n");
+        }
+        cal.append("END:VCALENDAR\r\n");
+        return cal.toString();
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
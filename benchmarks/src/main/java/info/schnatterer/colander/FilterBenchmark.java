@@ -0,0 +1,93 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applying each of the built-in filters to a calendar using {@link FilterChain#run(Calendar)}.
+ * <p>
+ * Filters change the components of the calendar, and some filters are stateful. So, calendar and filter chain are
+ * created anew for each invocation, which is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FilterBenchmark {
+
+    @State(Scope.Thread)
+    public static class FilterState {
+        @Param({"RemoveFilter", "ReplaceFilter", "RemoveEmptyEventFilter", "RemoveDuplicateEventFilter"})
+        String filter;
+
+        Calendar calendar;
+        FilterChain filterChain;
+
+        @Setup(Level.Invocation)
+        public void createCalendarAndFilterChain(CalendarState calendarState) throws IOException {
+            calendar = new ColanderIO().read(new ByteArrayInputStream(calendarState.calendarBytes));
+            filterChain = new FilterChain(Collections.singletonList(createFilter()));
+        }
+
+        private ColanderFilter createFilter() {
+            switch (filter) {
+                case "RemoveFilter":
+                    return new RemoveFilter(CalendarState.REMOVE_TERM, Property.SUMMARY);
+                case "ReplaceFilter":
+                    return new ReplaceFilter("M(\\w+)", "m$1", Property.DESCRIPTION);
+                case "RemoveEmptyEventFilter":
+                    return new RemoveEmptyEventFilter();
+                case "RemoveDuplicateEventFilter":
+                    return new RemoveDuplicateEventFilter();
+                default:
+                    throw new IllegalArgumentException("Unknown filter: " + filter);
+            }
+        }
+    }
+
+    @Benchmark
+    public Calendar filter(FilterState state) {
+        return state.filterChain.run(state.calendar);
+    }
+}
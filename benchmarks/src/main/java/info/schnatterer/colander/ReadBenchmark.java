@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a calendar file using {@link ColanderIO#read(String)}, which maps the file into memory, compared to
+ * parsing it from a stream using {@link ColanderIO#read(InputStream)} and to parsing lazily, as done by
+ * {@link Colander.ColanderBuilder#lazyProperties()} for the built-in filters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ReadBenchmark {
+    /** The properties accessed by all built-in filters */
+    private static final Set<String> BUILT_IN_FILTER_PROPERTIES = new HashSet<>(
+        Arrays.asList(Property.SUMMARY, Property.DESCRIPTION, Property.DTSTART, Property.DTEND));
+
+    private final ColanderIO colanderIO = new ColanderIO();
+
+    @Benchmark
+    public Calendar read(CalendarState calendar) throws IOException {
+        return colanderIO.read(calendar.calendarFile.toString());
+    }
+
+    @Benchmark
+    public Calendar readLazy(CalendarState calendar) throws IOException {
+        return colanderIO.read(calendar.calendarFile.toString(), BUILT_IN_FILTER_PROPERTIES);
+    }
+
+    @Benchmark
+    public Calendar readStream(CalendarState calendar) throws IOException {
+        try (InputStream input = new FileInputStream(calendar.calendarFile.toFile())) {
+            return colanderIO.read(input);
+        }
+    }
+}
@@ -38,8 +38,19 @@ import java.util.Map;
 @SuppressWarnings({"unused", "MismatchedQueryAndUpdateOfCollection", "FieldCanBeLocal"})
 public class Arguments {
 
-    /** List of unnamed arguments.*/
-    @Parameter(required = true, description = "<input.ics> [<output.ics]>")
+    static final String MAIN_ARGUMENTS_DESCRIPTION = "<input.ics> [<output.ics]>";
+    /** Passed instead of the input or output file in order to read from stdin or write to stdout. */
+    static final String STDIO = "-";
+    /** Values of {@link #routeBy}. */
+    static final String ROUTE_BY_TYPE = "type";
+    static final String ROUTE_BY_YEAR = "year";
+    static final String ROUTE_BY_MONTH = "month";
+
+    /**
+     * List of unnamed arguments. Required, unless {@link #inputList} or {@link #servePort} is passed, see
+     * {@link ArgumentsParser}.
+     */
+    @Parameter(description = MAIN_ARGUMENTS_DESCRIPTION)
     private List<String> mainArguments = new ArrayList<>();
 
     @DynamicParameter(names = "--replace-summary", description = "Replace in summary calender components (regex)")
@@ -57,21 +68,77 @@ public class Arguments {
     @Parameter(names = "--remove-duplicate-events", description = "Remove event when summary, description, start date or end date are the same in another event")
     private boolean removeDuplicateEvents = false;
 
+    @Parameter(names = "--remove-duplicate-events-on-disk", description = "Like --remove-duplicate-events, but stores the events seen so far on disk, for calendars larger than the heap. Value: heap to use for this, in MB (at least 8)")
+    private int removeDuplicateEventsOnDisk = 0;
+
     @Parameter(names = "--remove-empty-events", description = "Remove events when summary and description are empty")
     private boolean removeEmptyEvents = false;
 
+    @Parameter(names = "--streaming", description = "Read, filter and write one calender component at a time. Keeps memory usage constant for large files")
+    private boolean streaming = false;
+
+    @Parameter(names = "--passthrough-unchanged", description = "Copy calendar components that no filter changed byte by byte from the input file, retaining their formatting. Implies --streaming")
+    private boolean passthroughUnchanged = false;
+
+    @Parameter(names = "--lazy-properties", description = "Only parse the properties that the filters access. All other properties are written as they were read. Has no effect with --streaming")
+    private boolean lazyProperties = false;
+
+    @Parameter(names = "--adaptive-order", description = "Reorder filters after the first components, so that cheap filters that remove many components are applied first. Does not change the result")
+    private boolean adaptiveOrder = false;
+
+    @Parameter(names = "--parallel", description = "Filter calender components on all CPU cores. Maintains the order of the components")
+    private boolean parallel = false;
+
+    @Parameter(names = "--cache-dir", description = "Store the result of filtering each calender component in this directory, one file per input file. When rinsing the file again with the same filters, unchanged components are neither parsed nor filtered again. Implies --streaming. Has no effect with --remove-duplicate-events")
+    private String cacheDirectory;
+
+    @Parameter(names = "--result-cache-dir", description = "Store the output files in this directory. When rinsing an unchanged input file with the same options again, the stored output is copied instead")
+    private String resultCacheDirectory;
+
+    @Parameter(names = "--result-cache-size", description = "Maximum size of --result-cache-dir in MB. When exceeded, the least recently used outputs are deleted")
+    private int resultCacheSize = 1024;
+
+    @Parameter(names = "--output-dir", description = "Batch mode: Write the output files to this directory, using the file names of the inputs, which must be unique. All unnamed arguments are input files, which may also be directories (all *.ics and *.ics.gz files) or globs (such as dir/*.ics)")
+    private String outputDirectory;
+
+    @Parameter(names = "--input-list", description = "Batch mode: File that contains the paths of input files, one per line. Output files are written next to the input files, unless --output-dir is passed")
+    private String inputList;
+
+    @Parameter(names = "--threads", description = "Batch mode: Number of files to process concurrently. 0 means one per CPU core")
+    private int threads = 0;
+
+    @Parameter(names = "--merge-to", description = "Merge all input files (which may also be directories or globs) into this file, sorted by start date. Time zones with the same TZID in several inputs are written once, as defined in the first of them, and --remove-duplicate-events applies across all inputs. The properties of the calendar are taken from the first input. Pass - to write to stdout")
+    private String mergeOutputFile;
+
+    @Parameter(names = "--route-by", description = "Write the components to several output files in one pass, named after the output file and the route, such as cal-2017.ics. Value: type (vevent, vtodo, ...), year or month (of the start date). Can be passed several times, the first route that applies to a component is used. Components without route are written to the output file itself. Implies --streaming")
+    private List<String> routeBy = new ArrayList<>();
+
+    @Parameter(names = "--watch", description = "Keep running and rinse the input files again whenever they change. Replaces the output files, so an output file or, in batch mode, --output-dir is required. Input files are resolved only once, at startup")
+    private boolean watch = false;
+
+    @Parameter(names = "--serve", description = "Server mode: Listen for HTTP POST requests with a calendar body on this port and respond with the rinsed calendar. Filter options can be passed as query parameters (such as ?remove-summary=x&remove-empty-events), otherwise the options passed to the CLI are used")
+    private int servePort = 0;
+
+    @Parameter(names = "--serve-max-size", description = "Server mode: Maximum size of request and response bodies in MB. Larger ones are answered with status 413")
+    private int serveMaxSize = 64;
+
     @Parameter(names = "--help", help = true, description = "(optional) Show this message")
     private boolean help;
 
     /**
-     * @return input file name. Never {@code null}.
+     * @return all unnamed arguments. In batch mode, these are the input files, directories or globs. Never {@code null}.
+     */
+    public List<String> getMainArguments() { return mainArguments; }
+
+    /**
+     * @return input file name or {@link #STDIO} to read from stdin. Never {@code null}.
      */
     public String getInputFile() {
         return mainArguments.get(0);
     }
 
     /**
-     * @return output file name. Can be {@code null}!
+     * @return output file name or {@link #STDIO} to write to stdout. Can be {@code null}!
      */
     public String getOutputFile() {
         String outputFile = null;
@@ -108,11 +175,98 @@ public class Arguments {
      */
     public boolean isRemoveDuplicateEvents() { return removeDuplicateEvents; }
 
+    /**
+     * @return heap memory in MB to use, when duplicates should be removed storing seen events on disk. Otherwise
+     * {@code 0}.
+     */
+    public int getRemoveDuplicateEventsOnDisk() { return removeDuplicateEventsOnDisk; }
+
     /**
      * @return {@code true} when empty events should be removed. Otherwise {@code false}.
      */
     public boolean isRemoveEmptyEvents() { return removeEmptyEvents; }
 
+    /**
+     * @return {@code true} when calendar should be processed one component at a time. Otherwise {@code false}.
+     */
+    public boolean isStreaming() { return streaming; }
+
+    /**
+     * @return {@code true} when unchanged calendar components should be copied verbatim. Otherwise {@code false}.
+     */
+    public boolean isPassthroughUnchanged() { return passthroughUnchanged; }
+
+    /**
+     * @return {@code true} when only the properties accessed by filters should be parsed. Otherwise {@code false}.
+     */
+    public boolean isLazyProperties() { return lazyProperties; }
+
+    /**
+     * @return {@code true} when filters should be reordered based on their cost. Otherwise {@code false}.
+     */
+    public boolean isAdaptiveOrder() { return adaptiveOrder; }
+
+    /**
+     * @return {@code true} when calendar components should be filtered in parallel. Otherwise {@code false}.
+     */
+    public boolean isParallel() { return parallel; }
+
+    /**
+     * @return the directory to store the filter results per component in. Can be {@code null}!
+     */
+    public String getCacheDirectory() { return cacheDirectory; }
+
+    /**
+     * @return the directory to store the output files in for reuse. Can be {@code null}!
+     */
+    public String getResultCacheDirectory() { return resultCacheDirectory; }
+
+    /**
+     * @return the maximum size of {@link #getResultCacheDirectory()} in MB.
+     */
+    public int getResultCacheSize() { return resultCacheSize; }
+
+    /**
+     * @return the directory to write output files to in batch mode. Can be {@code null}!
+     */
+    public String getOutputDirectory() { return outputDirectory; }
+
+    /**
+     * @return a file that contains the paths of input files in batch mode. Can be {@code null}!
+     */
+    public String getInputList() { return inputList; }
+
+    /**
+     * @return number of files to process concurrently in batch mode or {@code 0} for one per CPU core.
+     */
+    public int getThreads() { return threads; }
+
+    /**
+     * @return the file to merge all input files into or {@code null} if the input files are not merged
+     */
+    public String getMergeOutputFile() { return mergeOutputFile; }
+
+    /**
+     * @return the routes to write the components to several output files by, in order: {@link #ROUTE_BY_TYPE},
+     * {@link #ROUTE_BY_YEAR} or {@link #ROUTE_BY_MONTH}. Empty if the components are written to one output file.
+     */
+    public List<String> getRouteBy() { return routeBy; }
+
+    /**
+     * @return {@code true} when input files should be rinsed again when they change. Otherwise {@code false}.
+     */
+    public boolean isWatch() { return watch; }
+
+    /**
+     * @return the port to listen for HTTP requests on in server mode. Otherwise {@code 0}.
+     */
+    public int getServePort() { return servePort; }
+
+    /**
+     * @return the maximum size of request and response bodies in server mode, in MB.
+     */
+    public int getServeMaxSize() { return serveMaxSize; }
+
     /**
      * @return {@code true} when help argument was passed. Otherwise {@code false}.
      */
@@ -126,7 +280,24 @@ public class Arguments {
             ", replaceInDescription=" + replaceInDescription +
             ", removeSummaryContains=" + removeSummaryContains +
             ", removeDuplicateEvents=" + removeDuplicateEvents +
+            ", removeDuplicateEventsOnDisk=" + removeDuplicateEventsOnDisk +
             ", removeEmptyEvents=" + removeEmptyEvents +
+            ", streaming=" + streaming +
+            ", passthroughUnchanged=" + passthroughUnchanged +
+            ", lazyProperties=" + lazyProperties +
+            ", adaptiveOrder=" + adaptiveOrder +
+            ", parallel=" + parallel +
+            ", cacheDirectory=" + cacheDirectory +
+            ", resultCacheDirectory=" + resultCacheDirectory +
+            ", resultCacheSize=" + resultCacheSize +
+            ", outputDirectory=" + outputDirectory +
+            ", inputList=" + inputList +
+            ", threads=" + threads +
+            ", mergeOutputFile=" + mergeOutputFile +
+            ", routeBy=" + routeBy +
+            ", watch=" + watch +
+            ", servePort=" + servePort +
+            ", serveMaxSize=" + serveMaxSize +
             ", help=" + help +
             '}';
     }
@@ -24,15 +24,26 @@
 package info.schnatterer.colander.cli;
 
 import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterDescription;
 import com.beust.jcommander.ParameterException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Parser for CLI-arguments
  */
 class ArgumentsParser {
     private static final Logger LOG = LoggerFactory.getLogger(ArgumentsParser.class);
+    /** Stands in for {@link Arguments#STDIO} while parsing, because JCommander treats it as an unknown option. */
+    private static final String STDIO_PLACEHOLDER = "\uffff" + Arguments.STDIO;
+    private static final List<String> ROUTES =
+        Arrays.asList(Arguments.ROUTE_BY_TYPE, Arguments.ROUTE_BY_YEAR, Arguments.ROUTE_BY_MONTH);
 
     /** Use {@link #read(String[], String)} instead of constructor. */
     ArgumentsParser() {
@@ -51,7 +62,21 @@ class ArgumentsParser {
         JCommander commander = new JCommander(arguments);
         try {
             commander.setProgramName(programName);
-            commander.parse(argv);
+            commander.parse(replaceStdio(argv));
+            arguments.getMainArguments().replaceAll(arg -> STDIO_PLACEHOLDER.equals(arg) ? Arguments.STDIO : arg);
+            if (!arguments.isHelp() && arguments.getMainArguments().isEmpty() && arguments.getInputList() == null
+                && arguments.getServePort() == 0) {
+                throw new ParameterException(
+                    "Main parameters are required (\"" + Arguments.MAIN_ARGUMENTS_DESCRIPTION + "\")");
+            }
+            if (arguments.isWatch() && arguments.getMergeOutputFile() != null) {
+                throw new ParameterException("--watch can't be combined with --merge-to");
+            }
+            if (arguments.isWatch() && arguments.getMainArguments().contains(Arguments.STDIO)) {
+                throw new ParameterException("--watch can't be combined with stdin or stdout (\"" + Arguments.STDIO
+                    + "\")");
+            }
+            validateRouteBy(arguments);
         } catch (ParameterException e) {
             // Print error and usage
             String usage = createUsage(e.getMessage() + System.lineSeparator(), commander);
@@ -67,6 +92,80 @@ class ArgumentsParser {
         return arguments;
     }
 
+    /**
+     * Reads filter options, without main arguments and without logging. Used for the options passed to the server,
+     * see {@link ColanderServer}.
+     *
+     * @param argv options, e.g. {@code --remove-empty-events}
+     * @return an instance of {@link Arguments}
+     * @throws ArgumentException on syntax error, when main arguments or {@code --route-by} are passed
+     */
+    static Arguments readOptions(String[] argv) {
+        Arguments arguments = new Arguments();
+        try {
+            new JCommander(arguments).parse(argv);
+        } catch (ParameterException e) {
+            throw new ArgumentException(e.getMessage(), e);
+        }
+        if (!arguments.getMainArguments().isEmpty()) {
+            throw new ArgumentException("Unexpected arguments: " + arguments.getMainArguments(), null);
+        }
+        if (!arguments.getRouteBy().isEmpty()) {
+            // The response is a single calendar
+            throw new ArgumentException("--route-by is not supported by the server", null);
+        }
+        return arguments;
+    }
+
+    /**
+     * Makes sure the routes are known and the output can be written to several files.
+     */
+    private static void validateRouteBy(Arguments arguments) {
+        if (arguments.getRouteBy().isEmpty()) {
+            return;
+        }
+        for (String routeBy : arguments.getRouteBy()) {
+            if (!ROUTES.contains(routeBy)) {
+                throw new ParameterException("Unknown value for --route-by: \"" + routeBy + "\". Expected one of "
+                    + ROUTES);
+            }
+        }
+        if (arguments.isWatch()) {
+            throw new ParameterException("--watch can't be combined with --route-by");
+        }
+        if (arguments.getServePort() > 0) {
+            throw new ParameterException("--serve can't be combined with --route-by");
+        }
+        if (Arguments.STDIO.equals(arguments.getOutputFile()) || Arguments.STDIO.equals(arguments.getMergeOutputFile())
+            || Collections.singletonList(Arguments.STDIO).equals(arguments.getMainArguments())) {
+            throw new ParameterException("--route-by writes several files, so it can't be combined with stdout (\""
+                + Arguments.STDIO + "\")");
+        }
+    }
+
+    /**
+     * Replaces each {@link Arguments#STDIO} that is not the value of an option by {@link #STDIO_PLACEHOLDER}.
+     */
+    private static String[] replaceStdio(String[] argv) {
+        // JCommander describes the options only when parsing
+        JCommander options = new JCommander(new Arguments());
+        options.parse();
+        Set<String> optionsWithValue = new HashSet<>();
+        for (ParameterDescription parameter : options.getParameters()) {
+            Class<?> type = parameter.getParameterized().getType();
+            if (type != boolean.class && type != Boolean.class) {
+                optionsWithValue.addAll(Arrays.asList(parameter.getNames().split(",\\s*")));
+            }
+        }
+        String[] replaced = argv.clone();
+        for (int i = 0; i < argv.length; i++) {
+            if (Arguments.STDIO.equals(argv[i]) && (i == 0 || !optionsWithValue.contains(argv[i - 1]))) {
+                replaced[i] = STDIO_PLACEHOLDER;
+            }
+        }
+        return replaced;
+    }
+
     /**
      * Creates a usage string to be displayed on console.
      *
@@ -29,6 +29,27 @@ import info.schnatterer.colander.cli.ArgumentsParser.ArgumentException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
 /**
  * Main class of Command Line Interface for colander.
  */
@@ -82,17 +103,381 @@ class ColanderCli {
     }
 
     /**
-     * Converts an {@link Arguments} object to a {@link Colander} and rinses.
+     * Converts an {@link Arguments} object to a {@link Colander} and rinses. In batch mode, rinses each input file.
      *
      * @param args comand line args to parse.
      * @return an exit status to be returned to CLI.
      */
     ExitStatus startColander(Arguments args) {
         LOG.debug("CLI arguments={}", args);
-        Colander.ColanderBuilder colander = createColanderBuilder(args.getInputFile());
+        if (args.getServePort() > 0) {
+            return startServer(args);
+        }
+        if (args.getMergeOutputFile() != null) {
+            return startMerge(args);
+        }
+        if (args.isWatch()) {
+            return startWatch(args);
+        }
+        if (isBatch(args)) {
+            return startBatch(args);
+        }
+        return rinse(args, args.getInputFile(), args.getOutputFile());
+    }
+
+    /**
+     * Starts an HTTP server that rinses calendars until the JVM is shut down. This way, JVM startup and JIT
+     * compilation are paid only once.
+     *
+     * @return an exit status to be returned to CLI.
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    ExitStatus startServer(Arguments args) {
+        ColanderServer server;
+        try {
+            server = createServer(args);
+            server.start();
+        } catch (IOException e) {
+            LOG.error("Error while starting server on port " + args.getServePort() + ": " + e.getMessage(), e);
+            return ExitStatus.ERROR_ARGS;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        try {
+            server.awaitStop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop();
+        }
+        return ExitStatus.SUCCESS;
+    }
+
+    /**
+     * Visible for testing
+     */
+    ColanderServer createServer(Arguments args) throws IOException {
+        return new ColanderServer(args.getServePort(), args.getServeMaxSize() * 1024L * 1024, args);
+    }
+
+    /**
+     * Batch mode is used when an output directory or an input list is passed or the input is a directory or glob.
+     */
+    private static boolean isBatch(Arguments args) {
+        return args.getOutputDirectory() != null || args.getInputList() != null ||
+            (!args.getMainArguments().isEmpty() && InputFiles.isMultiple(args.getInputFile()));
+    }
+
+    /**
+     * Rinses all input files with the same filters, several files at a time. This way, JVM startup and JIT
+     * compilation are paid only once.
+     *
+     * @return an exit status that combines the results of all files, see {@link ExitStatus#aggregate(Collection)}
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    ExitStatus startBatch(Arguments args) {
+        List<String> inputFiles = resolveBatchInputFiles(args);
+        if (inputFiles.isEmpty() || hasBatchOutputCollision(args, inputFiles)) {
+            return ExitStatus.ERROR_ARGS;
+        }
+        return rinseAll(args, inputFiles, inputFile -> createBatchOutputFile(args, inputFile));
+    }
+
+    /**
+     * Resolves the input files of batch mode and creates the output directory.
+     *
+     * @return the input files or an empty list if there are none or they can't be resolved. Errors are logged.
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    private static List<String> resolveBatchInputFiles(Arguments args) {
+        List<String> inputFiles;
+        try {
+            inputFiles = InputFiles.resolve(args.getMainArguments(), args.getInputList());
+            if (args.getOutputDirectory() != null) {
+                Files.createDirectories(Paths.get(args.getOutputDirectory()));
+            }
+        } catch (IOException e) {
+            LOG.error("Error while reading input files or creating output directory: " + e.getMessage(), e);
+            return Collections.emptyList();
+        }
+        if (inputFiles.isEmpty()) {
+            LOG.error("No input files found");
+        }
+        return inputFiles;
+    }
+
+    /**
+     * Checks that no two input files are written to the same file in the output directory, which happens when input
+     * files in different directories have the same name. Otherwise, one output would overwrite the other or, as
+     * existing files are not overwritten, rinsing one of them would fail.
+     *
+     * @return {@code true} if two input files would be written to the same output file. The collision is logged.
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    private static boolean hasBatchOutputCollision(Arguments args, List<String> inputFiles) {
+        Map<Path, Path> inputsByOutput = new HashMap<>();
+        for (String inputFile : inputFiles) {
+            String outputFile = createBatchOutputFile(args, inputFile);
+            if (outputFile == null) {
+                // Written next to the input file
+                return false;
+            }
+            Path input = Paths.get(inputFile).toAbsolutePath().normalize();
+            Path otherInput = inputsByOutput.putIfAbsent(Paths.get(outputFile).toAbsolutePath().normalize(), input);
+            if (otherInput != null && !otherInput.equals(input)) {
+                LOG.error("Input files {} and {} would both be written to {}. Rinse them in separate runs or rename "
+                    + "one of them", otherInput, input, outputFile);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rinses input files with the same filters, several files at a time.
+     *
+     * @param outputFiles maps an input file to its output file
+     * @return an exit status that combines the results of all files, see {@link ExitStatus#aggregate(Collection)}
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    private ExitStatus rinseAll(Arguments args, List<String> inputFiles, UnaryOperator<String> outputFiles) {
+        int threads = Math.min(inputFiles.size(),
+            args.getThreads() > 0 ? args.getThreads() : Runtime.getRuntime().availableProcessors());
+        LOG.info("Processing {} files on {} threads", inputFiles.size(), threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ExitStatus>> futures = new ArrayList<>(inputFiles.size());
+            for (String inputFile : inputFiles) {
+                futures.add(executor.submit(() -> rinse(args, inputFile, outputFiles.apply(inputFile))));
+            }
+            List<ExitStatus> statuses = new ArrayList<>(inputFiles.size());
+            List<String> failedFiles = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                ExitStatus status = futures.get(i).get();
+                statuses.add(status);
+                if (status != ExitStatus.SUCCESS) {
+                    failedFiles.add(inputFiles.get(i));
+                }
+            }
+            LOG.info("Processed {} files, {} failed: {}", inputFiles.size(), failedFiles.size(), failedFiles);
+            return ExitStatus.aggregate(statuses);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while processing files");
+            return ExitStatus.ERROR_PARSING;
+        } catch (ExecutionException e) {
+            // rinse() handles all exceptions
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges all input files into one output file, applying the filters to the merged calendar.
+     *
+     * @return an exit status to be returned to CLI.
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    ExitStatus startMerge(Arguments args) {
+        List<String> inputFiles = resolveBatchInputFiles(args);
+        if (inputFiles.isEmpty()) {
+            return ExitStatus.ERROR_ARGS;
+        }
+        String outputFile = args.getMergeOutputFile();
+        Colander.ColanderBuilder colander = configure(createMergingColanderBuilder(inputFiles), args);
+        if (args.getCacheDirectory() != null) {
+            colander.cache(createCacheFile(args.getCacheDirectory(), outputFile));
+        }
+
+        try {
+            if (Arguments.STDIO.equals(outputFile)) {
+                colander.rinse().toStream(createStdout());
+            } else if (!args.getRouteBy().isEmpty()) {
+                colander.rinseRouted().toFile(outputFile);
+            } else {
+                colander.rinse().toFile(outputFile);
+            }
+        } catch (Exception e) {
+            LOG.error("Error while merging calenders " + inputFiles + ": " + e.getMessage(), e);
+            return ExitStatus.ERROR_PARSING;
+        }
+        return ExitStatus.SUCCESS;
+    }
+
+    /**
+     * Rinses the input files and then again, each time they change, until interrupted. Bursts of changes are
+     * combined into one run. The JVM keeps running, so JIT compilation is paid only once. Requires explicit output
+     * files, which are replaced on each run.
+     *
+     * @return an exit status to be returned to CLI.
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    ExitStatus startWatch(Arguments args) {
+        boolean batch = isBatch(args);
+        if (batch ? args.getOutputDirectory() == null : args.getOutputFile() == null) {
+            // Otherwise, each run would create another output file with a new timestamp
+            LOG.error("--watch replaces the output files on each change, so it needs an output file or, in batch mode, "
+                + "--output-dir");
+            return ExitStatus.ERROR_ARGS;
+        }
+        UnaryOperator<String> outputFiles = batch ? inputFile -> createBatchOutputFile(args, inputFile) :
+            inputFile -> args.getOutputFile();
+        List<String> inputFiles = batch ? resolveBatchInputFiles(args) :
+            Collections.singletonList(args.getInputFile());
+        if (inputFiles.isEmpty() || (batch && hasBatchOutputCollision(args, inputFiles))) {
+            return ExitStatus.ERROR_ARGS;
+        }
+
+        // Watch before the first run, so changes during the first run are not lost
+        try (InputWatcher watcher = createWatcher(inputFiles)) {
+            rinseAll(args, inputFiles, outputFiles);
+            while (!Thread.currentThread().isInterrupted()) {
+                LOG.info("Watching {} files for changes", inputFiles.size());
+                List<String> changedFiles = new ArrayList<>(watcher.awaitChanges());
+                LOG.info("Files changed: {}", changedFiles);
+                rinseAll(args, changedFiles, outputFiles);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOG.error("Error while watching input files: " + e.getMessage(), e);
+            return ExitStatus.ERROR_ARGS;
+        }
+        return ExitStatus.SUCCESS;
+    }
+
+    /**
+     * Visible for testing
+     */
+    InputWatcher createWatcher(List<String> inputFiles) throws IOException {
+        return new InputWatcher(inputFiles, InputWatcher.DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * @return the file in the output directory that has the same name as {@code inputFile} or {@code null} if there
+     * is no output directory. Then, the output file is created next to the input file.
+     */
+    private static String createBatchOutputFile(Arguments args, String inputFile) {
+        if (args.getOutputDirectory() == null) {
+            return null;
+        }
+        return Paths.get(args.getOutputDirectory()).resolve(Paths.get(inputFile).getFileName()).toString();
+    }
+
+    /**
+     * Rinses a single file.
+     *
+     * @return an exit status to be returned to CLI.
+     */
+    private ExitStatus rinse(Arguments args, String inputFile, String outputFile) {
+        boolean stdin = Arguments.STDIO.equals(inputFile);
+        // Without an output file, there's no file name to derive it from
+        boolean stdout = Arguments.STDIO.equals(outputFile) || (stdin && outputFile == null);
+        Colander.ColanderBuilder colander =
+            configure(stdin ? createStdinColanderBuilder() : createColanderBuilder(inputFile), args);
+        if (stdin || stdout) {
+            // Pipe mode: Start writing before the input is read completely, with constant memory usage
+            colander.streaming();
+        }
+        if (args.getCacheDirectory() != null) {
+            colander.cache(createCacheFile(args.getCacheDirectory(), inputFile));
+        }
+
+        try {
+            if (stdout) {
+                colander.rinse().toStream(createStdout());
+            } else if (!args.getRouteBy().isEmpty()) {
+                colander.rinseRouted().toFile(outputFile);
+            } else if (args.isWatch()) {
+                replaceFile(colander.rinse(), outputFile);
+            } else {
+                colander.rinse().toFile(outputFile);
+            }
+        } catch (Exception e) {
+            LOG.error("Error while parsing or writing calender " + inputFile + ": " + e.getMessage(), e);
+            return ExitStatus.ERROR_PARSING;
+        }
+        return ExitStatus.SUCCESS;
+    }
+
+    /**
+     * @return a cache file within {@code cacheDirectory} that is unique for {@code inputFile}. It consists of the file
+     * name and the hash of the absolute path, so input files with the same name in different directories don't share
+     * a cache.
+     */
+    static String createCacheFile(String cacheDirectory, String inputFile) {
+        Path input = Paths.get(inputFile).toAbsolutePath().normalize();
+        return Paths.get(cacheDirectory,
+            input.getFileName() + "-" + Integer.toHexString(input.toString().hashCode()) + ".cache").toString();
+    }
+
+    /**
+     * Writes {@code result} to {@code outputFile}, replacing it, if it exists. The file is replaced atomically, if
+     * supported, so readers never see a partially written file.
+     */
+    private static void replaceFile(Colander.ColanderResult result, String outputFile) throws IOException {
+        Path output = Paths.get(outputFile).toAbsolutePath();
+        Path temp = output.resolveSibling(insertBeforeExtension(output.getFileName().toString(), ".tmp"));
+        Files.deleteIfExists(temp);
+        result.toFile(temp.toString());
+        try {
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Inserts {@code suffix} before all extensions of {@code fileName}, so {@code cal.ics.gz} becomes
+     * {@code cal<suffix>.ics.gz}. Keeping the extensions makes sure the file is written in the same format, e.g.
+     * compressed.
+     */
+    static String insertBeforeExtension(String fileName, String suffix) {
+        int extension = fileName.indexOf('.', 1);
+        if (extension < 0) {
+            return fileName + suffix;
+        }
+        return fileName.substring(0, extension) + suffix + fileName.substring(extension);
+    }
+
+    /**
+     * Applies the options and filters of {@code args} to {@code colander}.
+     *
+     * @return {@code colander}
+     */
+    static Colander.ColanderBuilder configure(Colander.ColanderBuilder colander, Arguments args) {
+        if (args.isStreaming()) {
+            colander.streaming();
+        }
+        if (args.isPassthroughUnchanged()) {
+            colander.passthroughUnchanged();
+        }
+        if (args.isLazyProperties()) {
+            colander.lazyProperties();
+        }
+        if (args.isAdaptiveOrder()) {
+            colander.adaptiveOrder();
+        }
+        if (args.isParallel()) {
+            colander.parallel();
+        }
+        if (args.getResultCacheDirectory() != null) {
+            colander.cacheResult(args.getResultCacheDirectory(), args.getResultCacheSize() * 1024L * 1024L);
+        }
+        for (String routeBy : args.getRouteBy()) {
+            if (Arguments.ROUTE_BY_TYPE.equals(routeBy)) {
+                colander.routeByType();
+            } else if (Arguments.ROUTE_BY_YEAR.equals(routeBy)) {
+                colander.routeByYear();
+            } else if (Arguments.ROUTE_BY_MONTH.equals(routeBy)) {
+                colander.routeByMonth();
+            }
+        }
         if (args.isRemoveDuplicateEvents()) {
             colander.removeDuplicateEvents();
         }
+        if (args.getRemoveDuplicateEventsOnDisk() > 0) {
+            colander.removeDuplicateEventsOnDisk(args.getRemoveDuplicateEventsOnDisk() * 1024L * 1024L);
+        }
         if (args.isRemoveEmptyEvents()) {
             colander.removeEmptyEvents();
         }
@@ -100,14 +485,7 @@ class ColanderCli {
         args.getReplaceInDescription().forEach(colander::replaceInDescription);
         args.getRemoveSummaryContains().forEach(colander::removeSummaryContains);
         args.getRemoveDescriptionContains().forEach(colander::removeDescriptionContains);
-
-        try {
-            colander.rinse().toFile(args.getOutputFile());
-        } catch (Exception e) {
-            LOG.error("Error while parsing or writing calender: " + e.getMessage(), e);
-            return ExitStatus.ERROR_PARSING;
-        }
-        return ExitStatus.SUCCESS;
+        return colander;
     }
 
     /**
@@ -116,4 +494,28 @@ class ColanderCli {
     Colander.ColanderBuilder createColanderBuilder(String inputFile) {
         return Colander.toss(inputFile);
     }
+
+    /**
+     * Visible for testing
+     */
+    Colander.ColanderBuilder createMergingColanderBuilder(List<String> inputFiles) {
+        return Colander.toss(inputFiles);
+    }
+
+    /**
+     * Visible for testing
+     */
+    Colander.ColanderBuilder createStdinColanderBuilder() {
+        return Colander.toss(System.in);
+    }
+
+    /**
+     * Visible for testing
+     *
+     * @return a stream that writes to stdout directly, so unchanged components can be transferred from file to stdout
+     * (see {@link Colander.ColanderBuilder#passthroughUnchanged()}). Logs are written to stderr.
+     */
+    OutputStream createStdout() {
+        return new FileOutputStream(FileDescriptor.out);
+    }
 }
@@ -0,0 +1,368 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import info.schnatterer.colander.Colander;
+import info.schnatterer.colander.ColanderParserException;
+import info.schnatterer.colander.cli.ArgumentsParser.ArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP server that rinses the calendars POSTed to it and responds with the result.
+ * <p>
+ * Filter options are passed as query parameters, named like the CLI options without the leading dashes, e.g.
+ * {@code POST /?remove-summary=Remove%20me&remove-empty-events}. Only the filter options and options that affect how a
+ * single calendar is processed are accepted (see {@link #QUERY_OPTIONS}), options that affect the server or the file
+ * system are not. Requests without query use the options passed to the CLI. The parsed options are cached, so the same
+ * query is only parsed once.
+ * <p>
+ * Request and response bodies larger than a maximum size are rejected.
+ * <p>
+ * Each request runs on its own virtual thread, if the JVM supports them (Java 21+). Otherwise, on a cached thread
+ * pool.
+ */
+class ColanderServer {
+    private static final Logger LOG = LoggerFactory.getLogger(ColanderServer.class);
+
+    static final String CONTENT_TYPE = "text/calendar; charset=utf-8";
+    static final int MAX_CACHED_ARGUMENTS = 256;
+    /** Names of the options that can be passed as query parameters. */
+    static final Set<String> QUERY_OPTIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "replace-summary", "replace-description", "remove-summary", "remove-description", "remove-duplicate-events",
+        "remove-empty-events", "streaming", "passthrough-unchanged", "lazy-properties", "adaptive-order")));
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int PAYLOAD_TOO_LARGE = 413;
+    private static final int INTERNAL_SERVER_ERROR = 500;
+
+    private final Arguments defaultArguments;
+    private final long maxBodySize;
+    private final HttpServer server;
+    private final ExecutorService executor = createExecutor();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Map<String, Arguments> argumentsCache = Collections.synchronizedMap(
+        new LinkedHashMap<String, Arguments>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Arguments> eldest) {
+                return size() > MAX_CACHED_ARGUMENTS;
+            }
+        });
+
+    /**
+     * @param port             port to listen on. {@code 0} chooses a free port, see {@link #getPort()}.
+     * @param maxBodySize      maximum size of request and response bodies, in bytes
+     * @param defaultArguments options used for requests without query
+     * @throws IOException if the port cannot be bound
+     */
+    ColanderServer(int port, long maxBodySize, Arguments defaultArguments) throws IOException {
+        this.defaultArguments = defaultArguments;
+        this.maxBodySize = maxBodySize;
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    @SuppressWarnings("squid:S2629") // Log statements are used for console output
+    void start() {
+        server.start();
+        LOG.info("Listening on port {}", getPort());
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits at most a second for running requests to finish.
+     */
+    void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+        stopped.countDown();
+    }
+
+    /**
+     * Blocks until {@link #stop()} is called.
+     */
+    void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, METHOD_NOT_ALLOWED, "Only POST is supported");
+                return;
+            }
+            if (getContentLength(exchange) > maxBodySize) {
+                respond(exchange, PAYLOAD_TOO_LARGE, "Request body exceeds " + maxBodySize + " bytes");
+                return;
+            }
+            Arguments args = getArguments(exchange.getRequestURI().getRawQuery());
+            ByteArrayOutputStream output = new LimitedByteArrayOutputStream(maxBodySize);
+            ColanderCli.configure(createColanderBuilder(new LimitedInputStream(exchange.getRequestBody(), maxBodySize)),
+                args).rinse().toStream(output);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(OK, output.size());
+            output.writeTo(exchange.getResponseBody());
+        } catch (Exception e) {
+            handleException(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Responds with a status that matches {@code e}. Only messages of client errors are sent to the client.
+     */
+    @SuppressWarnings("squid:S1166") // Client errors are reported to the client
+    private static void handleException(HttpExchange exchange, Exception e) throws IOException {
+        BodyTooLargeException tooLarge = findCause(e, BodyTooLargeException.class);
+        if (tooLarge != null) {
+            LOG.debug("Payload too large: {}", tooLarge.getMessage());
+            respond(exchange, PAYLOAD_TOO_LARGE, tooLarge.getMessage());
+        } else if (e instanceof ArgumentException || e instanceof ColanderParserException) {
+            LOG.debug("Bad request: {}", e.getMessage());
+            respond(exchange, BAD_REQUEST, e.getMessage());
+        } else {
+            LOG.error("Error while rinsing calendar: " + e.getMessage(), e);
+            respond(exchange, INTERNAL_SERVER_ERROR, "Error while rinsing calendar");
+        }
+    }
+
+    /**
+     * @return {@code e} or its first cause that is of type {@code type}, or {@code null} if there is none. Reading the
+     * input and writing the output might wrap exceptions.
+     */
+    private static <T extends Throwable> T findCause(Throwable e, Class<T> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the length of the request body as announced by the client or {@code -1} if unknown
+     */
+    private static long getContentLength(HttpExchange exchange) {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            throw new ArgumentException("Invalid Content-Length: " + contentLength, e);
+        }
+    }
+
+    /**
+     * Visible for testing
+     */
+    Colander.ColanderBuilder createColanderBuilder(InputStream input) {
+        return Colander.toss(input);
+    }
+
+    private Arguments getArguments(String query) {
+        if (query == null || query.isEmpty()) {
+            return defaultArguments;
+        }
+        Arguments args = argumentsCache.get(query);
+        if (args == null) {
+            args = ArgumentsParser.readOptions(toOptions(query));
+            argumentsCache.put(query, args);
+        }
+        return args;
+    }
+
+    /**
+     * Converts a query to CLI options, e.g. {@code a=b&c} to {@code --a b --c}.
+     */
+    static String[] toOptions(String query) {
+        List<String> options = new ArrayList<>();
+        for (String parameter : query.split("&")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            int equals = parameter.indexOf('=');
+            String name = decode(equals < 0 ? parameter : parameter.substring(0, equals));
+            if (!QUERY_OPTIONS.contains(name)) {
+                throw new ArgumentException("Unsupported query parameter: " + name + ". Supported: "
+                    + new TreeSet<>(QUERY_OPTIONS), null);
+            }
+            options.add("--" + name);
+            if (equals >= 0) {
+                options.add(decode(parameter.substring(equals + 1)));
+            }
+        }
+        return options.toArray(new String[0]);
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new ArgumentException("Invalid query parameter: " + value, e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * @return an executor that runs each task on a new virtual thread, if available. Otherwise, a cached thread pool.
+     * Uses reflection, because colander is compatible with Java versions that don't have virtual threads.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.debug("Virtual threads not available, using platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Thrown when a request or response body exceeds the maximum size.
+     */
+    static class BodyTooLargeException extends IOException {
+        BodyTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Fails reading with a {@link BodyTooLargeException} once more than a maximum number of bytes were read.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxSize;
+        private long size = 0;
+
+        LimitedInputStream(InputStream input, long maxSize) {
+            super(input);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            count(read < 0 ? 0 : 1);
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            count(Math.max(read, 0));
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long read) throws BodyTooLargeException {
+            size += read;
+            if (size > maxSize) {
+                throw new BodyTooLargeException("Request body exceeds " + maxSize + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Fails writing with a {@link BodyTooLargeException} once more than a maximum number of bytes were written.
+     */
+    private static class LimitedByteArrayOutputStream extends ByteArrayOutputStream {
+        private final long maxSize;
+
+        LimitedByteArrayOutputStream(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            ensureCapacity(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            super.write(bytes, offset, length);
+        }
+
+        private void ensureCapacity(int length) {
+            if (count + (long) length > maxSize) {
+                // ByteArrayOutputStream's methods don't declare IOException
+                throw new UncheckedIOException(
+                    new BodyTooLargeException("Response body exceeds " + maxSize + " bytes"));
+            }
+        }
+    }
+}
@@ -23,6 +23,8 @@
  */
 package info.schnatterer.colander.cli;
 
+import java.util.Collection;
+
 /**
  * Exit status of Colander CLI.
  */
@@ -31,8 +33,10 @@ enum ExitStatus {
     SUCCESS(0),
     /** Invalid command line arguments. */
     ERROR_ARGS(1),
-    /** Error parsing input ICS or writing output. */
-    ERROR_PARSING(2);
+    /** Error parsing input ICS or writing output. In batch mode: For all input files. */
+    ERROR_PARSING(2),
+    /** Batch mode: Error parsing or writing some of the input files. The others were processed successfully. */
+    ERROR_PARTIAL(3);
 
     final int numericStatus;
 
@@ -43,4 +47,19 @@ enum ExitStatus {
     public int getExitStatus() {
         return numericStatus;
     }
+
+    /**
+     * Combines the exit statuses of processing multiple files in batch mode.
+     *
+     * @param statuses exit status of each file
+     * @return {@link #SUCCESS} if all files were processed successfully, {@link #ERROR_PARSING} if none was and
+     * {@link #ERROR_PARTIAL} otherwise.
+     */
+    static ExitStatus aggregate(Collection<ExitStatus> statuses) {
+        long successful = statuses.stream().filter(status -> status == SUCCESS).count();
+        if (successful == statuses.size()) {
+            return SUCCESS;
+        }
+        return successful == 0 ? ERROR_PARSING : ERROR_PARTIAL;
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves the input files of batch mode from files, directories, globs and input lists.
+ */
+class InputFiles {
+    /** Files processed when a directory is passed. */
+    static final String ICS_GLOB = "*.{ics,ics.gz}";
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private InputFiles() {}
+
+    /**
+     * @return {@code true} if {@code input} is a directory or a glob, i.e. refers to multiple files
+     */
+    static boolean isMultiple(String input) {
+        return isGlob(input) || Files.isDirectory(Paths.get(input));
+    }
+
+    /**
+     * Resolves input files.
+     *
+     * @param inputs    files, directories (all {@link #ICS_GLOB} files) or globs. Globs are only supported in the file
+     *                  name, not in the directory (e.g. {@code dir/*.ics}, but not {@code *}{@code /cal.ics}).
+     * @param inputList file that contains one input per line, or {@code null}. Empty lines are ignored.
+     * @return the paths of the input files, in the order the inputs were passed. Files of a directory or glob are
+     * sorted by name.
+     * @throws IOException if a directory or the input list can't be read
+     */
+    static List<String> resolve(List<String> inputs, String inputList) throws IOException {
+        List<String> allInputs = new ArrayList<>(inputs);
+        if (inputList != null) {
+            for (String line : Files.readAllLines(Paths.get(inputList))) {
+                if (!line.trim().isEmpty()) {
+                    allInputs.add(line.trim());
+                }
+            }
+        }
+
+        List<String> files = new ArrayList<>();
+        for (String input : allInputs) {
+            if (isGlob(input)) {
+                int separator = Math.max(input.lastIndexOf('/'), input.lastIndexOf(File.separatorChar));
+                String glob = input.substring(separator + 1);
+                files.addAll(separator < 0 ? list(Paths.get("."), glob, false) :
+                    list(Paths.get(input.substring(0, separator + 1)), glob, true));
+            } else if (Files.isDirectory(Paths.get(input))) {
+                files.addAll(list(Paths.get(input), ICS_GLOB, true));
+            } else {
+                // Files that don't exist fail later on, along with the other errors of this file
+                files.add(input);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isGlob(String input) {
+        return input.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+    }
+
+    /**
+     * @param includeDirectory {@code false} to return only the file names
+     */
+    private static List<String> list(Path directory, String glob, boolean includeDirectory) throws IOException {
+        List<String> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(includeDirectory ? file.toString() : file.getFileName().toString());
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
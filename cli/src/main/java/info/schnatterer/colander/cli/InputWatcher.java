@@ -0,0 +1,121 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander.cli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches input files for changes, using a {@link WatchService} on their directories.
+ */
+class InputWatcher implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(InputWatcher.class);
+
+    /** Time without further changes after which a burst of changes is reported. */
+    static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    private final WatchService watchService;
+    private final long debounceMillis;
+    /** Absolute paths of the watched files to the paths they were passed as. */
+    private final Map<Path, String> files = new HashMap<>();
+
+    /**
+     * Starts watching. Changes after construction are reported by {@link #awaitChanges()}.
+     *
+     * @param inputFiles     the files to watch
+     * @param debounceMillis time without further changes after which a burst of changes is reported
+     * @throws IOException if a directory can't be watched
+     */
+    InputWatcher(Collection<String> inputFiles, long debounceMillis) throws IOException {
+        this.debounceMillis = debounceMillis;
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new LinkedHashSet<>();
+        for (String inputFile : inputFiles) {
+            Path path = Paths.get(inputFile).toAbsolutePath().normalize();
+            files.put(path, inputFile);
+            directories.add(path.getParent());
+        }
+        for (Path directory : directories) {
+            // Editors often write to a new file and rename it to the original name, which is a create event
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        LOG.debug("Watching {} files in directories {}", files.size(), directories);
+    }
+
+    /**
+     * Blocks until at least one of the files changed and no further change happened for the debounce time. This
+     * way, a file that is written in several steps is reported only once.
+     *
+     * @return the changed files, as they were passed to the constructor
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Set<String> awaitChanges() throws InterruptedException {
+        Set<String> changed = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            collectChanges(key, changed);
+            key = changed.isEmpty() ? watchService.take() :
+                watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return changed;
+    }
+
+    private void collectChanges(WatchKey key, Set<String> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, so any file might have changed
+                changed.addAll(files.values());
+            } else {
+                String file = files.get(directory.resolve((Path) event.context()));
+                if (file != null) {
+                    changed.add(file);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
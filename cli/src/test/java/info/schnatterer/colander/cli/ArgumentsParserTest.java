@@ -61,6 +61,16 @@ public class ArgumentsParserTest {
         assertFalse("Help", args.isHelp());
         assertFalse("Remove duplicates", args.isRemoveDuplicateEvents());
         assertFalse("Remove Empty", args.isRemoveEmptyEvents());
+        assertFalse("Streaming", args.isStreaming());
+        assertFalse("Passthrough unchanged", args.isPassthroughUnchanged());
+        assertFalse("Lazy properties", args.isLazyProperties());
+        assertFalse("Adaptive order", args.isAdaptiveOrder());
+        assertFalse("Parallel", args.isParallel());
+        assertNull("Output directory", args.getOutputDirectory());
+        assertNull("Input list", args.getInputList());
+        assertEquals("Threads", 0, args.getThreads());
+        assertFalse("Watch", args.isWatch());
+        assertEquals("Serve port", 0, args.getServePort());
         assertTrue("Replace in summary", args.getReplaceInSummary().isEmpty());
         assertTrue("Remove summary contains", args.getRemoveSummaryContains().isEmpty());
     }
@@ -79,6 +89,24 @@ public class ArgumentsParserTest {
         read("");
     }
 
+    @Test
+    public void readBatch() throws Exception {
+        Arguments args = read("--output-dir", "out", "--input-list", "list.txt", "--threads", "4", "a.ics", "b.ics");
+
+        assertThat(args.getMainArguments(), contains("a.ics", "b.ics"));
+        assertEquals("Output directory", "out", args.getOutputDirectory());
+        assertEquals("Input list", "list.txt", args.getInputList());
+        assertEquals("Threads", 4, args.getThreads());
+    }
+
+    @Test
+    public void readInputListWithoutMainArgs() throws Exception {
+        Arguments args = read("--input-list", "list.txt");
+
+        assertTrue("Main arguments", args.getMainArguments().isEmpty());
+        assertEquals("Input list", "list.txt", args.getInputList());
+    }
+
     @Test
     public void readReplaceInSummary() throws Exception {
         Map<String, String> replaceInSummary =
@@ -127,11 +155,185 @@ public class ArgumentsParserTest {
         assertTrue("Remove duplicates", read.isRemoveDuplicateEvents());
     }
 
+    @Test
+    public void readRemoveDuplicatesOnDisk() {
+        Arguments read = read("--remove-duplicate-events-on-disk", "64", "input", "output");
+        assertEquals("Remove duplicates on disk", 64, read.getRemoveDuplicateEventsOnDisk());
+    }
+
     @Test
     public void readRemoveEmpty() {
         assertTrue("Remove empty", read("--remove-empty-events", "input", "output").isRemoveEmptyEvents());
     }
 
+    @Test
+    public void readStreaming() {
+        assertTrue("Streaming", read("--streaming", "input", "output").isStreaming());
+    }
+
+    @Test
+    public void readPassthroughUnchanged() {
+        assertTrue("Passthrough unchanged",
+            read("--passthrough-unchanged", "input", "output").isPassthroughUnchanged());
+    }
+
+    @Test
+    public void readLazyProperties() {
+        assertTrue("Lazy properties", read("--lazy-properties", "input", "output").isLazyProperties());
+    }
+
+    @Test
+    public void readAdaptiveOrder() {
+        assertTrue("Adaptive order", read("--adaptive-order", "input", "output").isAdaptiveOrder());
+    }
+
+    @Test
+    public void readParallel() {
+        assertTrue("Parallel", read("--parallel", "input", "output").isParallel());
+    }
+
+    @Test
+    public void readWatch() {
+        assertTrue("Watch", read("--watch", "input", "output").isWatch());
+    }
+
+    @Test
+    public void readStdio() {
+        Arguments args = read("--remove-empty-events", "-", "-");
+
+        assertEquals("Input file", Arguments.STDIO, args.getInputFile());
+        assertEquals("Output file", Arguments.STDIO, args.getOutputFile());
+        assertTrue("Remove empty", args.isRemoveEmptyEvents());
+    }
+
+    @Test
+    public void readStdioOptionValue() {
+        Arguments args = read("--remove-summary", "-", "-", "output");
+
+        assertThat(args.getRemoveSummaryContains(), contains("-"));
+        assertEquals("Input file", Arguments.STDIO, args.getInputFile());
+        assertEquals("Output file", "output", args.getOutputFile());
+    }
+
+    @Test
+    public void readMergeTo() {
+        Arguments args = read("--merge-to", "merged.ics", "a.ics", "b.ics");
+
+        assertEquals("Merge output file", "merged.ics", args.getMergeOutputFile());
+        assertThat(args.getMainArguments(), contains("a.ics", "b.ics"));
+    }
+
+    @Test
+    public void readMergeToStdout() {
+        assertEquals("Merge output file", Arguments.STDIO, read("--merge-to", "-", "a.ics").getMergeOutputFile());
+    }
+
+    @Test
+    public void readWatchMergeTo() {
+        expectedException.expect(ArgumentException.class);
+        expectedException.expectMessage("--merge-to");
+
+        read("--watch", "--merge-to", "merged.ics", "a.ics");
+    }
+
+    @Test
+    public void readRouteBy() {
+        Arguments args = read("--route-by", "type", "--route-by", "year", "in.ics", "out.ics");
+
+        assertThat(args.getRouteBy(), contains("type", "year"));
+    }
+
+    @Test
+    public void readRouteByUnknown() {
+        expectedException.expect(ArgumentException.class);
+        expectedException.expectMessage("--route-by");
+
+        read("--route-by", "week", "in.ics");
+    }
+
+    @Test
+    public void readRouteByStdout() {
+        expectedException.expect(ArgumentException.class);
+        expectedException.expectMessage("stdout");
+
+        read("--route-by", "month", "in.ics", "-");
+    }
+
+    @Test
+    public void readWatchRouteBy() {
+        expectedException.expect(ArgumentException.class);
+        expectedException.expectMessage("--watch");
+
+        read("--watch", "--route-by", "type", "in.ics");
+    }
+
+    @Test
+    public void readWatchStdio() {
+        expectedException.expect(ArgumentException.class);
+        expectedException.expectMessage("--watch");
+
+        read("--watch", "-", "output");
+    }
+
+    @Test
+    public void readCacheDirectory() {
+        assertEquals("Cache directory", "cache", read("--cache-dir", "cache", "input").getCacheDirectory());
+    }
+
+    @Test
+    public void readResultCache() {
+        Arguments args = read("--result-cache-dir", "cache", "--result-cache-size", "16", "input");
+
+        assertEquals("Result cache directory", "cache", args.getResultCacheDirectory());
+        assertEquals("Result cache size", 16, args.getResultCacheSize());
+    }
+
+    @Test
+    public void readResultCacheDefaultSize() {
+        assertEquals("Result cache size", 1024, read("input").getResultCacheSize());
+    }
+
+    @Test
+    public void readServeWithoutMainArgs() throws Exception {
+        Arguments args = read("--serve", "8080", "--remove-empty-events");
+
+        assertEquals("Serve port", 8080, args.getServePort());
+        assertTrue("Main arguments", args.getMainArguments().isEmpty());
+        assertTrue("Remove empty", args.isRemoveEmptyEvents());
+    }
+
+    @Test
+    public void readOptions() throws Exception {
+        Arguments args = ArgumentsParser.readOptions(new String[] { "--remove-summary", "a", "--remove-empty-events" });
+
+        assertThat(args.getRemoveSummaryContains(), contains("a"));
+        assertTrue("Remove empty", args.isRemoveEmptyEvents());
+        assertTrue("No log messages", LOG.getLoggingEvents().isEmpty());
+    }
+
+    @Test
+    public void readOptionsMainArgs() throws Exception {
+        expectedException.expect(ArgumentException.class);
+        expectedException.expectMessage("input.ics");
+
+        ArgumentsParser.readOptions(new String[] { "--remove-empty-events", "input.ics" });
+    }
+
+    @Test
+    public void readOptionsRouteBy() throws Exception {
+        expectedException.expect(ArgumentException.class);
+        expectedException.expectMessage("--route-by");
+
+        ArgumentsParser.readOptions(new String[] { "--route-by", "type" });
+    }
+
+    @Test
+    public void readOptionsUnknown() throws Exception {
+        expectedException.expect(ArgumentException.class);
+
+        ArgumentsParser.readOptions(new String[] { "--wtf" });
+    }
+
     @Test
     public void readHelp() throws Exception {
         assertTrue("Unexpected return on read()", read("input", "output", "--help").isHelp());
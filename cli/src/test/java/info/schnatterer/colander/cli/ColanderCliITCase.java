@@ -30,6 +30,8 @@ import org.junit.contrib.java.lang.system.ExpectedSystemExit;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import static org.junit.Assert.assertTrue;
 
@@ -66,6 +68,62 @@ public class ColanderCliITCase {
         );
     }
 
+    @Test
+    public void endToEndStreaming() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        String outputPath = folder.getRoot().toString() + "/out.ics";
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(() -> ITCases.verifyParsedIcs(inputPath, outputPath));
+        execute(
+            "--streaming",
+            "--remove-duplicate-events",
+            "--remove-empty-events",
+            "--remove-summary", "Remove me",
+            "--remove-description", "Remove me 2",
+            "--replace-description L.ne=Line",
+            "--replace-summary Replace=Replace!",
+            inputPath,
+            outputPath
+        );
+    }
+
+    @Test
+    public void endToEndBatch() throws Exception {
+        File inputDirectory = folder.newFolder("in");
+        File inputFile = new File(inputDirectory, "cal.ics");
+        Files.copy(Paths.get(ITCases.getFilePathTestIcs(folder)), inputFile.toPath());
+        File outputDirectory = new File(folder.getRoot(), "out");
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(() ->
+            ITCases.verifyParsedIcs(inputFile.toString(), new File(outputDirectory, "cal.ics").toString()));
+        execute(
+            "--threads", "2",
+            "--remove-duplicate-events",
+            "--remove-empty-events",
+            "--remove-summary", "Remove me",
+            "--remove-description", "Remove me 2",
+            "--replace-description L.ne=Line",
+            "--replace-summary Replace=Replace!",
+            "--output-dir", outputDirectory.toString(),
+            inputDirectory.toString()
+        );
+    }
+
+    @Test
+    public void endToEndMerge() throws Exception {
+        File inputDirectory = folder.newFolder("in");
+        Files.copy(Paths.get(ITCases.getFilePathTestIcs(folder)), new File(inputDirectory, "a.ics").toPath());
+        Files.copy(Paths.get(ITCases.getFilePathTestIcs(folder)), new File(inputDirectory, "b.ics").toPath());
+        String outputPath = folder.getRoot().toString() + "/merged.ics";
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(() -> assertTrue("Output not written", new File(outputPath).exists()));
+        execute(
+            "--remove-duplicate-events",
+            "--merge-to", outputPath,
+            inputDirectory.toString()
+        );
+    }
+
     @Test
     public void endToEndParsingArgs() throws Exception {
         exit.expectSystemExitWithStatus(1);
@@ -25,16 +25,28 @@ package info.schnatterer.colander.cli;
 
 import info.schnatterer.colander.Colander;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -49,13 +61,20 @@ public class ColanderCliTest {
     @Mock
     private Colander.ColanderResult result;
 
+    @Mock
+    private Colander.RoutedColanderResult routedResult;
+
     @Mock
     private Arguments args;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void before() throws Exception {
         doReturn(builder).when(cli).createColanderBuilder(any());
         when(builder.rinse()).thenReturn(result);
+        when(builder.rinseRouted()).thenReturn(routedResult);
     }
 
     @Test
@@ -87,7 +106,17 @@ public class ColanderCliTest {
         when(args.getInputFile()).thenReturn(expectedInput);
         when(args.getOutputFile()).thenReturn(expectedOutput);
         when(args.isRemoveDuplicateEvents()).thenReturn(true);
+        when(args.getRemoveDuplicateEventsOnDisk()).thenReturn(64);
         when(args.isRemoveEmptyEvents()).thenReturn(true);
+        when(args.isStreaming()).thenReturn(true);
+        when(args.isPassthroughUnchanged()).thenReturn(true);
+        when(args.isLazyProperties()).thenReturn(true);
+        when(args.isAdaptiveOrder()).thenReturn(true);
+        when(args.isParallel()).thenReturn(true);
+        when(args.getCacheDirectory()).thenReturn("cache");
+        when(args.getResultCacheDirectory()).thenReturn("resultCache");
+        when(args.getResultCacheSize()).thenReturn(16);
+        when(args.getRouteBy()).thenReturn(Arrays.asList("type", "year", "month"));
         when(args.getRemoveSummaryContains()).thenReturn(Arrays.asList("a", "b"));
         when(args.getRemoveDescriptionContains()).thenReturn(Arrays.asList("y", "z"));
         when(args.getReplaceInSummary()).thenReturn(new HashMap<String, String>() {{
@@ -103,7 +132,18 @@ public class ColanderCliTest {
 
         verify(cli).createColanderBuilder(expectedInput);
         verify(builder).removeDuplicateEvents();
+        verify(builder).removeDuplicateEventsOnDisk(64L * 1024 * 1024);
         verify(builder).removeEmptyEvents();
+        verify(builder).streaming();
+        verify(builder).passthroughUnchanged();
+        verify(builder).lazyProperties();
+        verify(builder).adaptiveOrder();
+        verify(builder).parallel();
+        verify(builder).cache(ColanderCli.createCacheFile("cache", expectedInput));
+        verify(builder).cacheResult("resultCache", 16L * 1024 * 1024);
+        verify(builder).routeByType();
+        verify(builder).routeByYear();
+        verify(builder).routeByMonth();
         verify(builder).replaceInSummary("a", "b");
         verify(builder).replaceInSummary("c", "d");
         verify(builder).replaceInDescription("1", "2");
@@ -112,7 +152,89 @@ public class ColanderCliTest {
         verify(builder).removeSummaryContains("b");
         verify(builder).removeDescriptionContains("y");
         verify(builder).removeDescriptionContains("z");
-        verify(result).toFile(expectedOutput);
+        verify(routedResult).toFile(expectedOutput);
+        verify(builder, never()).rinse();
+    }
+
+    @Test
+    public void startColanderStdio() throws Exception {
+        OutputStream stdout = new ByteArrayOutputStream();
+        doReturn(builder).when(cli).createStdinColanderBuilder();
+        doReturn(stdout).when(cli).createStdout();
+        when(args.getInputFile()).thenReturn(Arguments.STDIO);
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        verify(cli, never()).createColanderBuilder(any());
+        verify(builder).streaming();
+        verify(result).toStream(stdout);
+    }
+
+    @Test
+    public void startColanderStdout() throws Exception {
+        OutputStream stdout = new ByteArrayOutputStream();
+        doReturn(stdout).when(cli).createStdout();
+        when(args.getInputFile()).thenReturn("in");
+        when(args.getOutputFile()).thenReturn(Arguments.STDIO);
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        verify(cli).createColanderBuilder("in");
+        verify(builder).streaming();
+        verify(result).toStream(stdout);
+        verify(result, never()).toFile(any());
+    }
+
+    @Test
+    public void startColanderMerge() throws Exception {
+        File a = folder.newFile("a.ics");
+        File b = folder.newFile("b.ics");
+        doReturn(builder).when(cli).createMergingColanderBuilder(any());
+        when(args.getMainArguments()).thenReturn(Collections.singletonList(folder.getRoot().toString()));
+        when(args.getMergeOutputFile()).thenReturn("merged.ics");
+        when(args.isRemoveDuplicateEvents()).thenReturn(true);
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        verify(cli).createMergingColanderBuilder(Arrays.asList(a.toString(), b.toString()));
+        verify(cli, never()).createColanderBuilder(any());
+        verify(builder).removeDuplicateEvents();
+        verify(result).toFile("merged.ics");
+    }
+
+    @Test
+    public void startColanderMergeToStdout() throws Exception {
+        OutputStream stdout = new ByteArrayOutputStream();
+        folder.newFile("a.ics");
+        doReturn(builder).when(cli).createMergingColanderBuilder(any());
+        doReturn(stdout).when(cli).createStdout();
+        when(args.getMainArguments()).thenReturn(Collections.singletonList(folder.getRoot().toString()));
+        when(args.getMergeOutputFile()).thenReturn(Arguments.STDIO);
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        verify(result).toStream(stdout);
+    }
+
+    @Test
+    public void startColanderMergeError() throws Exception {
+        folder.newFile("a.ics");
+        doReturn(builder).when(cli).createMergingColanderBuilder(any());
+        when(args.getMainArguments()).thenReturn(Collections.singletonList(folder.getRoot().toString()));
+        when(args.getMergeOutputFile()).thenReturn("merged.ics");
+        doThrow(new IOException("Mocked exception")).when(result).toFile(anyString());
+
+        assertEquals("Exit status", ExitStatus.ERROR_PARSING, cli.startColander(args));
+    }
+
+    @Test
+    public void createCacheFile() throws Exception {
+        String cacheFile = ColanderCli.createCacheFile("cache", "a/cal.ics");
+
+        assertEquals("Directory", Paths.get("cache"), Paths.get(cacheFile).getParent());
+        assertTrue("File name " + cacheFile, Paths.get(cacheFile).getFileName().toString().matches("cal\\.ics-[0-9a-f]+\\.cache"));
+        assertEquals("Same input", cacheFile, ColanderCli.createCacheFile("cache", "a/../a/cal.ics"));
+        assertNotEquals("Other directory", cacheFile, ColanderCli.createCacheFile("cache", "b/cal.ics"));
     }
 
     @Test
@@ -121,13 +243,217 @@ public class ColanderCliTest {
 
         verify(cli).createColanderBuilder(null);
         verify(builder, never()).removeDuplicateEvents();
+        verify(builder, never()).removeDuplicateEventsOnDisk(anyLong());
         verify(builder, never()).removeEmptyEvents();
+        verify(builder, never()).streaming();
+        verify(builder, never()).passthroughUnchanged();
+        verify(builder, never()).lazyProperties();
+        verify(builder, never()).adaptiveOrder();
+        verify(builder, never()).parallel();
+        verify(builder, never()).cache(anyString());
+        verify(builder, never()).cacheResult(anyString(), anyLong());
+        verify(builder, never()).routeByType();
         verify(builder, never()).replaceInSummary(anyString(), anyString());
         verify(builder, never()).removeSummaryContains(anyString());
         verify(builder, never()).removeDescriptionContains(anyString());
         verify(result).toFile(null);
     }
 
+    @Test
+    public void startColanderBatch() throws Exception {
+        String outputDirectory = folder.getRoot() + "/out";
+        when(args.getOutputDirectory()).thenReturn(outputDirectory);
+        when(args.getMainArguments()).thenReturn(Arrays.asList("a/1.ics", "b/2.ics"));
+        when(args.getThreads()).thenReturn(2);
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        verify(cli).createColanderBuilder("a/1.ics");
+        verify(cli).createColanderBuilder("b/2.ics");
+        verify(result).toFile(Paths.get(outputDirectory, "1.ics").toString());
+        verify(result).toFile(Paths.get(outputDirectory, "2.ics").toString());
+        assertTrue("Output directory created", new File(outputDirectory).isDirectory());
+    }
+
+    @Test
+    public void startColanderBatchSameFileNames() throws Exception {
+        when(args.getOutputDirectory()).thenReturn(folder.getRoot() + "/out");
+        when(args.getMainArguments()).thenReturn(Arrays.asList("a/cal.ics", "b/cal.ics"));
+
+        assertEquals("Exit status", ExitStatus.ERROR_ARGS, cli.startColander(args));
+        verify(cli, never()).createColanderBuilder(any());
+    }
+
+    @Test
+    public void startColanderBatchSameFileNamesNextToInput() throws Exception {
+        File inputList = folder.newFile("inputs.txt");
+        Files.write(inputList.toPath(), Arrays.asList("a/cal.ics", "b/cal.ics"));
+        when(args.getInputList()).thenReturn(inputList.toString());
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+        verify(result, times(2)).toFile(null);
+    }
+
+    @Test
+    public void startColanderBatchNextToInput() throws Exception {
+        File inputList = folder.newFile("inputs.txt");
+        Files.write(inputList.toPath(), Arrays.asList("a/1.ics", "b/2.ics"));
+        when(args.getInputList()).thenReturn(inputList.toString());
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        verify(cli).createColanderBuilder("a/1.ics");
+        verify(cli).createColanderBuilder("b/2.ics");
+        verify(result, times(2)).toFile(null);
+    }
+
+    @Test
+    public void startColanderBatchPartialError() throws Exception {
+        String outputDirectory = folder.getRoot().toString();
+        when(args.getOutputDirectory()).thenReturn(outputDirectory);
+        when(args.getMainArguments()).thenReturn(Arrays.asList("a/1.ics", "b/2.ics"));
+        doThrow(new IOException("Mocked exception")).when(result).toFile(Paths.get(outputDirectory, "2.ics").toString());
+
+        assertEquals("Exit status", ExitStatus.ERROR_PARTIAL, cli.startColander(args));
+    }
+
+    @Test
+    public void startColanderBatchNoInputFiles() throws Exception {
+        when(args.getInputList()).thenReturn(folder.newFile("inputs.txt").toString());
+
+        assertEquals("Exit status", ExitStatus.ERROR_ARGS, cli.startColander(args));
+        verify(cli, never()).createColanderBuilder(any());
+    }
+
+    @Test
+    public void startColanderBatchInputListNotFound() throws Exception {
+        when(args.getInputList()).thenReturn(folder.getRoot() + "/doesNotExist.txt");
+
+        assertEquals("Exit status", ExitStatus.ERROR_ARGS, cli.startColander(args));
+    }
+
+    @Test
+    public void startColanderWatch() throws Exception {
+        InputWatcher watcher = mock(InputWatcher.class);
+        String output = new File(folder.getRoot(), "out.ics").toString();
+        when(args.isWatch()).thenReturn(true);
+        when(args.getMainArguments()).thenReturn(Arrays.asList("in", output));
+        when(args.getInputFile()).thenReturn("in");
+        when(args.getOutputFile()).thenReturn(output);
+        doReturn(watcher).when(cli).createWatcher(Collections.singletonList("in"));
+        when(watcher.awaitChanges()).thenReturn(Collections.singleton("in")).thenThrow(new InterruptedException());
+        doAnswer(invocation -> Files.write(Paths.get((String) invocation.getArgument(0)), "new".getBytes()))
+            .when(result).toFile(anyString());
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        assertTrue("Interrupted flag restored", Thread.interrupted());
+        verify(cli, times(2)).createColanderBuilder("in");
+        verify(result, times(2)).toFile(anyString());
+        verify(watcher).close();
+        assertArrayEquals("Output files", new String[] { "out.ics" }, folder.getRoot().list());
+    }
+
+    @Test
+    public void startColanderWatchNoOutput() throws Exception {
+        when(args.isWatch()).thenReturn(true);
+        when(args.getMainArguments()).thenReturn(Collections.singletonList("in"));
+        when(args.getInputFile()).thenReturn("in");
+
+        assertEquals("Exit status", ExitStatus.ERROR_ARGS, cli.startColander(args));
+        verify(cli, never()).createWatcher(any());
+    }
+
+    @Test
+    public void startColanderWatchBatchNoOutputDirectory() throws Exception {
+        when(args.isWatch()).thenReturn(true);
+        when(args.getInputList()).thenReturn(folder.newFile("inputs.txt").toString());
+
+        assertEquals("Exit status", ExitStatus.ERROR_ARGS, cli.startColander(args));
+        verify(cli, never()).createWatcher(any());
+    }
+
+    @Test
+    public void startColanderWatchReplacesOutput() throws Exception {
+        InputWatcher watcher = mock(InputWatcher.class);
+        File output = folder.newFile("out.ics");
+        Files.write(output.toPath(), "old".getBytes());
+        when(args.isWatch()).thenReturn(true);
+        when(args.getMainArguments()).thenReturn(Arrays.asList("in", output.toString()));
+        when(args.getInputFile()).thenReturn("in");
+        when(args.getOutputFile()).thenReturn(output.toString());
+        doReturn(watcher).when(cli).createWatcher(any());
+        when(watcher.awaitChanges()).thenThrow(new InterruptedException());
+        doAnswer(invocation -> Files.write(Paths.get((String) invocation.getArgument(0)), "new".getBytes()))
+            .when(result).toFile(anyString());
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        Thread.interrupted();
+        assertEquals("Output", "new", new String(Files.readAllBytes(output.toPath())));
+        assertEquals("Temp files left", 1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void startColanderWatchCompressedOutput() throws Exception {
+        InputWatcher watcher = mock(InputWatcher.class);
+        File output = new File(folder.getRoot(), "out.ics.gz");
+        when(args.isWatch()).thenReturn(true);
+        when(args.getMainArguments()).thenReturn(Arrays.asList("in", output.toString()));
+        when(args.getInputFile()).thenReturn("in");
+        when(args.getOutputFile()).thenReturn(output.toString());
+        doReturn(watcher).when(cli).createWatcher(any());
+        when(watcher.awaitChanges()).thenThrow(new InterruptedException());
+        doAnswer(invocation -> Files.write(Paths.get((String) invocation.getArgument(0)), "new".getBytes()))
+            .when(result).toFile(anyString());
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        Thread.interrupted();
+        // The file extension determines whether the result is compressed
+        verify(result).toFile(new File(folder.getRoot(), "out.tmp.ics.gz").getAbsolutePath());
+        assertArrayEquals("Output files", new String[] { "out.ics.gz" }, folder.getRoot().list());
+    }
+
+    @Test
+    public void insertBeforeExtension() {
+        assertEquals("out.tmp.ics.gz", ColanderCli.insertBeforeExtension("out.ics.gz", ".tmp"));
+        assertEquals("out.tmp.ics", ColanderCli.insertBeforeExtension("out.ics", ".tmp"));
+        assertEquals("out.tmp", ColanderCli.insertBeforeExtension("out", ".tmp"));
+        assertEquals(".out.tmp.ics", ColanderCli.insertBeforeExtension(".out.ics", ".tmp"));
+    }
+
+    @Test
+    public void startColanderWatchNoInputFiles() throws Exception {
+        when(args.isWatch()).thenReturn(true);
+        when(args.getInputList()).thenReturn(folder.newFile("inputs.txt").toString());
+        when(args.getOutputDirectory()).thenReturn(folder.newFolder("out").toString());
+
+        assertEquals("Exit status", ExitStatus.ERROR_ARGS, cli.startColander(args));
+        verify(cli, never()).createWatcher(any());
+    }
+
+    @Test
+    public void startColanderServer() throws Exception {
+        ColanderServer server = mock(ColanderServer.class);
+        when(args.getServePort()).thenReturn(8080);
+        doReturn(server).when(cli).createServer(args);
+
+        assertEquals("Exit status", ExitStatus.SUCCESS, cli.startColander(args));
+
+        verify(server).start();
+        verify(server).awaitStop();
+        verify(cli, never()).createColanderBuilder(any());
+    }
+
+    @Test
+    public void startColanderServerError() throws Exception {
+        when(args.getServePort()).thenReturn(8080);
+        doThrow(new IOException("Mocked exception")).when(cli).createServer(args);
+
+        assertEquals("Exit status", ExitStatus.ERROR_ARGS, cli.startColander(args));
+    }
+
     private ExitStatus execute(String... args) {
         return cli.execute(args);
     }
@@ -0,0 +1,230 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander.cli;
+
+import info.schnatterer.colander.Colander;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ColanderServerTest {
+
+    private static final String ICS = "BEGIN:VCALENDAR\r\n" +
+        "PRODID:-//Test//Test//EN\r\n" +
+        "VERSION:2.0\r\n" +
+        "BEGIN:VEVENT\r\n" +
+        "UID:1\r\n" +
+        "DTSTAMP:20170101T000000Z\r\n" +
+        "SUMMARY:Keep me\r\n" +
+        "END:VEVENT\r\n" +
+        "BEGIN:VEVENT\r\n" +
+        "UID:2\r\n" +
+        "DTSTAMP:20170101T000000Z\r\n" +
+        "SUMMARY:Remove me\r\n" +
+        "END:VEVENT\r\n" +
+        "BEGIN:VEVENT\r\n" +
+        "UID:3\r\n" +
+        "DTSTAMP:20170101T000000Z\r\n" +
+        "END:VEVENT\r\n" +
+        "END:VCALENDAR\r\n";
+
+    private static final int MAX_BODY_SIZE = 1024;
+
+    private ColanderServer server;
+
+    @Before
+    public void before() throws Exception {
+        server = new ColanderServer(0, MAX_BODY_SIZE,
+            ArgumentsParser.readOptions(new String[] { "--remove-empty-events" }));
+        server.start();
+    }
+
+    @After
+    public void after() {
+        server.stop();
+    }
+
+    @Test
+    public void postDefaultArguments() throws Exception {
+        HttpURLConnection connection = post("", ICS);
+
+        assertEquals("Status", 200, connection.getResponseCode());
+        assertEquals("Content type", ColanderServer.CONTENT_TYPE, connection.getContentType());
+        String body = read(connection.getInputStream());
+        assertThat(body, containsString("Keep me"));
+        assertThat(body, containsString("Remove me"));
+        assertThat(body, not(containsString("UID:3")));
+    }
+
+    @Test
+    public void postQueryArguments() throws Exception {
+        HttpURLConnection connection = post("?remove-summary=Remove%20me&replace-summary=Keep%3DKept", ICS);
+
+        assertEquals("Status", 200, connection.getResponseCode());
+        String body = read(connection.getInputStream());
+        assertThat(body, containsString("Kept me"));
+        assertThat(body, not(containsString("Remove me")));
+        assertThat("Query replaces default arguments", body, containsString("UID:3"));
+    }
+
+    @Test
+    public void postQueryArgumentsTwice() throws Exception {
+        assertEquals("Status", 200, post("?streaming", ICS).getResponseCode());
+        assertEquals("Status", 200, post("?streaming", ICS).getResponseCode());
+    }
+
+    @Test
+    public void postInvalidArguments() throws Exception {
+        HttpURLConnection connection = post("?wtf", ICS);
+
+        assertEquals("Status", 400, connection.getResponseCode());
+        assertThat(read(connection.getErrorStream()), containsString("wtf"));
+    }
+
+    @Test
+    public void postUnsupportedArguments() throws Exception {
+        HttpURLConnection connection = post("?result-cache-dir=%2Ftmp", ICS);
+
+        assertEquals("Status", 400, connection.getResponseCode());
+        assertThat(read(connection.getErrorStream()), containsString("result-cache-dir"));
+    }
+
+    @Test
+    public void postRequestTooLarge() throws Exception {
+        assertEquals("Status", 413, post("", createLargeCalendar()).getResponseCode());
+    }
+
+    @Test
+    public void postRequestTooLargeChunked() throws Exception {
+        HttpURLConnection connection = open("");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        // No Content-Length, so the body is only known to be too large while reading it
+        connection.setChunkedStreamingMode(64);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(createLargeCalendar().getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("Status", 413, connection.getResponseCode());
+    }
+
+    @Test
+    public void postResponseTooLarge() throws Exception {
+        StringBuilder replacement = new StringBuilder();
+        for (int i = 0; i < MAX_BODY_SIZE; i++) {
+            replacement.append('x');
+        }
+
+        assertEquals("Status", 413, post("?replace-summary=Keep%3D" + replacement, ICS).getResponseCode());
+    }
+
+    @Test
+    public void postInternalError() throws Exception {
+        server.stop();
+        server = new ColanderServer(0, MAX_BODY_SIZE, new Arguments()) {
+            @Override
+            Colander.ColanderBuilder createColanderBuilder(InputStream input) {
+                throw new IllegalStateException("Internal details");
+            }
+        };
+        server.start();
+
+        HttpURLConnection connection = post("", ICS);
+
+        assertEquals("Status", 500, connection.getResponseCode());
+        assertThat(read(connection.getErrorStream()), not(containsString("Internal details")));
+    }
+
+    @Test
+    public void postInvalidCalendar() throws Exception {
+        assertEquals("Status", 400, post("", "NOT:A CALENDAR\r\n").getResponseCode());
+    }
+
+    @Test
+    public void get() throws Exception {
+        HttpURLConnection connection = open("");
+
+        assertEquals("Status", 405, connection.getResponseCode());
+    }
+
+    @Test
+    public void toOptions() throws Exception {
+        assertArrayEquals(new String[] { "--remove-summary", "b c", "--remove-empty-events", "--replace-summary", "f=g" },
+            ColanderServer.toOptions("remove-summary=b+c&remove-empty-events&&replace-summary=f%3Dg"));
+    }
+
+    @Test(expected = ArgumentsParser.ArgumentException.class)
+    public void toOptionsUnsupported() throws Exception {
+        ColanderServer.toOptions("threads=4");
+    }
+
+    /**
+     * @return a calendar that is larger than {@link #MAX_BODY_SIZE}
+     */
+    private static String createLargeCalendar() {
+        StringBuilder calendar = new StringBuilder(ICS.substring(0, ICS.indexOf("BEGIN:VEVENT")));
+        for (int i = 0; calendar.length() <= MAX_BODY_SIZE; i++) {
+            calendar.append("BEGIN:VEVENT\r\nUID:").append(i)
+                .append("\r\nDTSTAMP:20170101T000000Z\r\nEND:VEVENT\r\n");
+        }
+        return calendar.append("END:VCALENDAR\r\n").toString();
+    }
+
+    private HttpURLConnection post(String query, String body) throws IOException {
+        HttpURLConnection connection = open(query);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private HttpURLConnection open(String query) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/" + query).openConnection();
+    }
+
+    private static String read(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
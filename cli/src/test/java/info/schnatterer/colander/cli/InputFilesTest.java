@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander.cli;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InputFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void isMultiple() throws Exception {
+        assertTrue("Directory", InputFiles.isMultiple(folder.getRoot().toString()));
+        assertTrue("Glob", InputFiles.isMultiple("dir/*.ics"));
+        assertFalse("File", InputFiles.isMultiple(folder.newFile("a.ics").toString()));
+        assertFalse("Not existing", InputFiles.isMultiple("doesNotExist.ics"));
+    }
+
+    @Test
+    public void resolveFiles() throws Exception {
+        assertThat(InputFiles.resolve(Arrays.asList("b.ics", "a.ics"), null)).containsExactly("b.ics", "a.ics");
+    }
+
+    @Test
+    public void resolveDirectory() throws Exception {
+        File b = folder.newFile("b.ics");
+        File a = folder.newFile("a.ics");
+        File c = folder.newFile("c.ics.gz");
+        folder.newFile("c.txt");
+        folder.newFolder("d.ics");
+
+        assertThat(InputFiles.resolve(Collections.singletonList(folder.getRoot().toString()), null))
+            .containsExactly(a.toString(), b.toString(), c.toString());
+    }
+
+    @Test
+    public void resolveGlob() throws Exception {
+        File a = folder.newFile("a.ics");
+        folder.newFile("b.ics");
+        File ab = folder.newFile("ab.ics");
+
+        assertThat(InputFiles.resolve(Collections.singletonList(folder.getRoot() + File.separator + "a*.ics"), null))
+            .containsExactly(a.toString(), ab.toString());
+    }
+
+    @Test
+    public void resolveInputList() throws Exception {
+        File inputList = folder.newFile("inputs.txt");
+        Files.write(inputList.toPath(), Arrays.asList("b.ics", "", "  a.ics  "));
+
+        assertThat(InputFiles.resolve(Collections.singletonList("c.ics"), inputList.toString()))
+            .containsExactly("c.ics", "b.ics", "a.ics");
+    }
+}
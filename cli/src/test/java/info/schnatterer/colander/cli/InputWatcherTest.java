@@ -0,0 +1,91 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander.cli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InputWatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File a;
+    private File b;
+    private InputWatcher watcher;
+
+    @Before
+    public void before() throws Exception {
+        a = folder.newFile("a.ics");
+        b = folder.newFile("b.ics");
+        watcher = new InputWatcher(Arrays.asList(a.toString(), b.toString()), 100);
+    }
+
+    @After
+    public void after() throws Exception {
+        watcher.close();
+    }
+
+    @Test
+    public void awaitChanges() throws Exception {
+        Files.write(a.toPath(), "1".getBytes());
+        Files.write(a.toPath(), "2".getBytes());
+
+        assertThat(watcher.awaitChanges()).containsExactly(a.toString());
+    }
+
+    @Test
+    public void awaitChangesMultipleFiles() throws Exception {
+        Files.write(b.toPath(), "1".getBytes());
+        Files.write(a.toPath(), "1".getBytes());
+
+        assertThat(watcher.awaitChanges()).containsExactlyInAnyOrder(a.toString(), b.toString());
+    }
+
+    @Test
+    public void awaitChangesIgnoresOtherFiles() throws Exception {
+        folder.newFile("c.ics");
+        Files.write(b.toPath(), "1".getBytes());
+
+        assertThat(watcher.awaitChanges()).containsExactly(b.toString());
+    }
+
+    @Test
+    public void awaitChangesCreated() throws Exception {
+        File temp = folder.newFile("a.ics.tmp");
+        Files.move(temp.toPath(), a.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        assertThat(watcher.awaitChanges()).containsExactly(a.toString());
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Finds any of a set of terms in a text with a single pass over the text (Aho-Corasick automaton), independent of the
+ * number of terms.
+ * <p>
+ * Instances are immutable and therefore thread-safe.
+ */
+class AhoCorasick {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final List<String> terms;
+    /** Sorted transition characters of each node. */
+    private final char[][] transitionChars;
+    /** Target nodes of each node, same order as {@link #transitionChars}. */
+    private final int[][] transitionTargets;
+    /** Node of the longest proper suffix of each node that is also in the trie. */
+    private final int[] failure;
+    /** Index of a term that ends at each node (or at one of its failure nodes), {@link #NONE} otherwise. */
+    private final int[] match;
+
+    /**
+     * @param terms the terms to search for
+     */
+    AhoCorasick(Collection<String> terms) {
+        this.terms = new ArrayList<>(terms);
+
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> termEndingAt = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        termEndingAt.add(NONE);
+        for (int termIndex = 0; termIndex < this.terms.size(); termIndex++) {
+            int node = ROOT;
+            for (char c : this.terms.get(termIndex).toCharArray()) {
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(node).put(c, next);
+                    trie.add(new TreeMap<>());
+                    termEndingAt.add(NONE);
+                }
+                node = next;
+            }
+            if (termEndingAt.get(node) == NONE) {
+                termEndingAt.set(node, termIndex);
+            }
+        }
+
+        int nodes = trie.size();
+        transitionChars = new char[nodes][];
+        transitionTargets = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            Map<Character, Integer> transitions = trie.get(node);
+            transitionChars[node] = new char[transitions.size()];
+            transitionTargets[node] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                transitionChars[node][i] = transition.getKey();
+                transitionTargets[node][i] = transition.getValue();
+                i++;
+            }
+        }
+
+        failure = new int[nodes];
+        match = new int[nodes];
+        match[ROOT] = termEndingAt.get(ROOT);
+        // Breadth first, so failure nodes (which are less deep) are always computed first
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(ROOT);
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            for (int i = 0; i < transitionChars[node].length; i++) {
+                char c = transitionChars[node][i];
+                int child = transitionTargets[node][i];
+                failure[child] = node == ROOT ? ROOT : next(failure[node], c);
+                match[child] = termEndingAt.get(child) != NONE ? termEndingAt.get(child) : match[failure[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @param text the text to search in
+     * @return the first term found in {@code text}, i.e. the one ending first. Empty if none of the terms is contained.
+     */
+    Optional<String> find(CharSequence text) {
+        int node = ROOT;
+        if (match[node] != NONE) {
+            return Optional.of(terms.get(match[node]));
+        }
+        for (int i = 0; i < text.length(); i++) {
+            node = next(node, text.charAt(i));
+            if (match[node] != NONE) {
+                return Optional.of(terms.get(match[node]));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the node reached from {@code node} with {@code c}, following failure nodes if necessary.
+     */
+    private int next(int node, char c) {
+        int current = node;
+        while (true) {
+            int i = Arrays.binarySearch(transitionChars[current], c);
+            if (i >= 0) {
+                return transitionTargets[current][i];
+            }
+            if (current == ROOT) {
+                return ROOT;
+            }
+            current = failure[current];
+        }
+    }
+
+    List<String> getTerms() { return terms; }
+}
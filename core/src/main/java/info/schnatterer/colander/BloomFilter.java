@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.util.Arrays;
+
+/**
+ * Probabilistic set of {@link Fingerprint}s: Tells for sure if a fingerprint has never been added, but might falsely
+ * report a fingerprint that has not been added as contained.
+ * <p>
+ * The bit positions are derived from both halves of the fingerprint using double hashing, so no additional hashing is
+ * necessary. Not thread-safe.
+ */
+class BloomFilter {
+    /** Optimal for about 10 bits per element, which results in a false positive rate of about 1%. */
+    static final int HASH_FUNCTIONS = 7;
+
+    private final long[] words;
+    private final long bitCount;
+
+    /**
+     * @param sizeInBytes heap memory to use for the bits
+     */
+    BloomFilter(long sizeInBytes) {
+        int wordCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8L, sizeInBytes / Long.BYTES));
+        words = new long[wordCount];
+        bitCount = (long) wordCount * Long.SIZE;
+    }
+
+    /**
+     * Adds a fingerprint.
+     *
+     * @return {@code true} if the fingerprint was definitely not contained before. {@code false} if it might have been
+     * contained.
+     */
+    boolean put(long high, long low) {
+        boolean changed = false;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = ((high + i * low) & Long.MAX_VALUE) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Removes all fingerprints.
+     */
+    void clear() {
+        Arrays.fill(words, 0);
+    }
+}
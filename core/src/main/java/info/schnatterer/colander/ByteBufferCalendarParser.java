@@ -0,0 +1,351 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.data.CalendarParser;
+import net.fortuna.ical4j.data.CalendarParserImpl;
+import net.fortuna.ical4j.data.ContentHandler;
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.ParameterFactoryImpl;
+import net.fortuna.ical4j.model.ParameterList;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.util.Strings;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Parses an iCal file from a {@link ByteBuffer}, such as a memory-mapped file. An alternative to ical4j's
+ * {@link CalendarParserImpl}, which reads from a {@link Reader} one character at a time.
+ * <p>
+ * Content lines are found by scanning the buffer for line terminators. Each line is bulk-copied into a reusable array,
+ * leaving out the line terminators and whitespace of folded continuation lines. Names and values are decoded once,
+ * right before passing them to the {@link ContentHandler}. {@code BEGIN} and {@code END} are detected on the raw
+ * bytes.
+ * <p>
+ * Optionally, properties of components are parsed lazily: Only properties with specific names are passed to the
+ * {@link ContentHandler} and become typed ical4j properties. All others are passed to a consumer as
+ * {@link RawProperty}, so their values are never parsed. Properties of the calendar and of time zones are always passed
+ * to the content handler, because ical4j needs them typed.
+ * <p>
+ * As the {@link CalendarBuilder} always passes a reader, that reader is ignored. The content is read from the buffer
+ * passed to the constructor instead. So, an instance of this parser can only be used to build a single calendar.
+ */
+class ByteBufferCalendarParser implements CalendarParser {
+    private static final byte[] BEGIN = "BEGIN".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "END".getBytes(StandardCharsets.US_ASCII);
+    private static final String CALENDAR = Calendar.VCALENDAR;
+    private static final String TIME_ZONE = Component.VTIMEZONE;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final int INITIAL_LINE_SIZE = 256;
+
+    private final ByteBuffer buffer;
+    /** Names of the properties to pass to the content handler or {@code null} to pass all properties. */
+    private final Set<String> materializedProperties;
+    private Consumer<Property> rawPropertyConsumer;
+    /** View of the buffer used for bulk copying, so that the position of {@link #buffer} is not changed. */
+    private final ByteBuffer view;
+    private int position;
+    private final int limit;
+    private int lineNumber = 0;
+
+    /** The current content line, unfolded and without line terminator. */
+    private byte[] line = new byte[INITIAL_LINE_SIZE];
+    private int lineEnd;
+
+    /**
+     * @param buffer the content to parse, from its position to its limit
+     */
+    ByteBufferCalendarParser(ByteBuffer buffer) {
+        this(buffer, null);
+    }
+
+    /**
+     * Creates a parser that parses properties of components lazily. Set a consumer for the other properties using
+     * {@link #setRawPropertyConsumer(Consumer)} before parsing.
+     *
+     * @param buffer                 the content to parse, from its position to its limit
+     * @param materializedProperties names (upper case) of the properties to pass to the content handler. Other
+     *                               properties of components are passed to the raw property consumer. {@code null}
+     *                               to pass all properties to the content handler.
+     */
+    ByteBufferCalendarParser(ByteBuffer buffer, Set<String> materializedProperties) {
+        this.buffer = buffer;
+        this.materializedProperties = materializedProperties;
+        this.view = buffer.duplicate();
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * @param rawPropertyConsumer receives the properties that are not passed to the content handler, in the order they
+     *                            are read. Each belongs to the component that the content handler was last passed.
+     */
+    void setRawPropertyConsumer(Consumer<Property> rawPropertyConsumer) {
+        this.rawPropertyConsumer = rawPropertyConsumer;
+    }
+
+    /**
+     * Parses the buffer passed to the constructor. {@code in} is ignored.
+     */
+    @Override
+    public void parse(InputStream in, ContentHandler handler) throws ParserException {
+        parse(handler);
+    }
+
+    /**
+     * Parses the buffer passed to the constructor. {@code in} is ignored.
+     */
+    @Override
+    public void parse(Reader in, ContentHandler handler) throws ParserException {
+        parse(handler);
+    }
+
+    private void parse(ContentHandler handler) throws ParserException {
+        skipByteOrderMark();
+        try {
+            if (!nextLine() || !isLine(BEGIN, CALENDAR)) {
+                throw new ParserException("Expected [BEGIN:" + CALENDAR + "]", lineNumber);
+            }
+            handler.startCalendar();
+            int depth = 0;
+            boolean inTimeZone = false;
+            while (nextLine()) {
+                int nameEnd = indexOfNameEnd();
+                if (isName(BEGIN, nameEnd)) {
+                    String componentName = decodeValue(nameEnd);
+                    inTimeZone |= depth == 0 && TIME_ZONE.equalsIgnoreCase(componentName);
+                    handler.startComponent(componentName);
+                    depth++;
+                } else if (isName(END, nameEnd)) {
+                    if (depth == 0) {
+                        handler.endCalendar();
+                        return;
+                    }
+                    handler.endComponent(decodeValue(nameEnd));
+                    depth--;
+                    inTimeZone &= depth > 0;
+                } else {
+                    String name = new String(line, 0, nameEnd, StandardCharsets.ISO_8859_1);
+                    if (depth == 0 || inTimeZone || isMaterialized(name)) {
+                        parseProperty(handler, name, nameEnd);
+                    } else {
+                        parseRawProperty(name.toUpperCase(Locale.ROOT), nameEnd);
+                    }
+                }
+            }
+            throw new ParserException("Unexpected end of calendar, expected [END:" + CALENDAR + "]", lineNumber);
+        } catch (ParserException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ParserException(e.getMessage(), lineNumber, e);
+        }
+    }
+
+    private void parseProperty(ContentHandler handler, String name, int nameEnd) throws Exception {
+        handler.startProperty(name);
+        int i = nameEnd;
+        while (line[i] == ';') {
+            int parameterNameStart = i + 1;
+            int equals = indexOfParameterNameEnd(parameterNameStart, name);
+            int valueEnd = indexOfParameterValueEnd(equals + 1);
+            handler.parameter(new String(line, parameterNameStart, equals - parameterNameStart,
+                StandardCharsets.ISO_8859_1), new String(line, equals + 1, valueEnd - equals - 1, StandardCharsets.UTF_8));
+            i = valueEnd;
+        }
+        handler.propertyValue(decodeValue(i));
+        handler.endProperty(name);
+    }
+
+    private void parseRawProperty(String name, int nameEnd) throws ParserException, URISyntaxException {
+        ParameterList parameters = new ParameterList();
+        int i = nameEnd;
+        while (line[i] == ';') {
+            int equals = indexOfParameterNameEnd(i + 1, name);
+            int valueEnd = indexOfParameterValueEnd(equals + 1);
+            // Same as ical4j's content handler
+            parameters.add(ParameterFactoryImpl.getInstance().createParameter(
+                new String(line, i + 1, equals - i - 1, StandardCharsets.ISO_8859_1).toUpperCase(Locale.ROOT),
+                Strings.escapeNewline(new String(line, equals + 1, valueEnd - equals - 1, StandardCharsets.UTF_8))));
+            i = valueEnd;
+        }
+        rawPropertyConsumer.accept(new RawProperty(name, parameters, decodeValue(i)));
+    }
+
+    private boolean isMaterialized(String name) {
+        return materializedProperties == null || materializedProperties.contains(name)
+            || materializedProperties.contains(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the index of the {@code =} that terminates the name of a parameter starting at {@code start}
+     */
+    private int indexOfParameterNameEnd(int start, String propertyName) throws ParserException {
+        int equals = start;
+        while (equals < lineEnd && line[equals] != '=' && line[equals] != ':' && line[equals] != ';') {
+            equals++;
+        }
+        if (equals == lineEnd || line[equals] != '=') {
+            throw new ParserException("Expected [=] in parameter of property " + propertyName, lineNumber);
+        }
+        return equals;
+    }
+
+    /**
+     * @return the index of the {@code ;} or {@code :} that terminates the name of the current line.
+     */
+    private int indexOfNameEnd() throws ParserException {
+        for (int i = 0; i < lineEnd; i++) {
+            if (line[i] == ':' || line[i] == ';') {
+                return i;
+            }
+        }
+        throw new ParserException("Expected [:] in line: " + new String(line, 0, lineEnd,
+            StandardCharsets.UTF_8), lineNumber);
+    }
+
+    /**
+     * @return the index of the {@code ;} or {@code :} that terminates a parameter value. Quoted values might contain
+     * those characters.
+     */
+    private int indexOfParameterValueEnd(int start) throws ParserException {
+        boolean quoted = false;
+        for (int i = start; i < lineEnd; i++) {
+            byte b = line[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (b == ':' || b == ';')) {
+                return i;
+            }
+        }
+        throw new ParserException("Expected [:] after parameters", lineNumber);
+    }
+
+    /**
+     * @param separator index of the {@code :} in front of the value
+     */
+    private String decodeValue(int separator) throws ParserException {
+        if (line[separator] != ':') {
+            throw new ParserException("Expected [:]", lineNumber);
+        }
+        return new String(line, separator + 1, lineEnd - separator - 1, StandardCharsets.UTF_8);
+    }
+
+    private boolean isLine(byte[] name, String value) throws ParserException {
+        int nameEnd = indexOfNameEnd();
+        return isName(name, nameEnd) && line[nameEnd] == ':'
+            && value.equalsIgnoreCase(decodeValue(nameEnd).trim());
+    }
+
+    private boolean isName(byte[] name, int nameEnd) {
+        if (nameEnd != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if ((line[i] & ~0x20) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the next non-empty content line and copies it to {@link #line}, unfolding it if necessary.
+     *
+     * @return {@code false} at the end of the buffer
+     */
+    private boolean nextLine() {
+        do {
+            if (position >= limit) {
+                return false;
+            }
+            int start = position;
+            int length = copyToLine(start, readPhysicalLine(), 0);
+            while (isContinuation(position)) {
+                // Skip the whitespace that marks the continuation
+                start = position + 1;
+                length = copyToLine(start, readPhysicalLine(), length);
+            }
+            lineEnd = length;
+        } while (lineEnd == 0);
+        return true;
+    }
+
+    /**
+     * Reads up to and including the next line terminator.
+     *
+     * @return the end of the line, excluding its line terminator
+     */
+    private int readPhysicalLine() {
+        lineNumber++;
+        int start = position;
+        int i = start;
+        while (i < limit && buffer.get(i) != '\n') {
+            i++;
+        }
+        position = i < limit ? i + 1 : limit;
+        return i > start && buffer.get(i - 1) == '\r' ? i - 1 : i;
+    }
+
+    private boolean isContinuation(int index) {
+        return index < limit && (buffer.get(index) == ' ' || buffer.get(index) == '\t');
+    }
+
+    /**
+     * Copies a part of the buffer to {@link #line} at {@code offset}, growing it if necessary.
+     *
+     * @return the length of the line after copying
+     */
+    private int copyToLine(int start, int end, int offset) {
+        int length = offset + end - start;
+        if (length > line.length) {
+            line = Arrays.copyOf(line, Math.max(length, line.length * 2));
+        }
+        view.limit(end).position(start);
+        view.get(line, offset, end - start);
+        return length;
+    }
+
+    private void skipByteOrderMark() {
+        if (limit - position < UTF8_BOM.length) {
+            return;
+        }
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if (buffer.get(position + i) != UTF8_BOM[i]) {
+                return;
+            }
+        }
+        position += UTF8_BOM.length;
+    }
+}
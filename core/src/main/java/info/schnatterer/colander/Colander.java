@@ -25,15 +25,36 @@ package info.schnatterer.colander;
 
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Public Interface of colander.
  */
 public class Colander {
+    private static final Logger LOG = LoggerFactory.getLogger(Colander.class);
+
     Colander() {}
 
     /**
@@ -46,15 +67,76 @@ public class Colander {
         return new ColanderBuilder(filePath);
     }
 
+    /**
+     * Puts a calender read from a stream into colander, e.g. a network connection.
+     *
+     * @param input stream containing the ical file. Closed after reading.
+     * @return a new instance of the {@link ColanderBuilder}
+     */
+    public static ColanderBuilder toss(InputStream input) {
+        return new ColanderBuilder(input);
+    }
+
+    /**
+     * Puts several calendars into colander, which are merged into one. The components are read from all files at the
+     * same time and merged by their start date, so if each file is sorted by start date, so is the result. Time zones
+     * with the same {@code TZID} in several files are written only once, as defined in the first file. Filters apply to the merged calendar, so
+     * {@link ColanderBuilder#removeDuplicateEvents()} removes duplicates across all files.
+     * <p>
+     * The calendar properties (such as product ID) are taken from the first file. Merging implies
+     * {@link ColanderBuilder#streaming()}, so only one component per file is held in memory.
+     *
+     * @param filePaths paths to the ical files
+     * @return a new instance of the {@link ColanderBuilder}
+     * @throws IllegalArgumentException if {@code filePaths} is empty
+     */
+    public static ColanderBuilder toss(List<String> filePaths) {
+        if (filePaths.isEmpty()) {
+            throw new IllegalArgumentException("No calendars to merge");
+        }
+        return new ColanderBuilder(filePaths).streaming();
+    }
+
     /**
      * Builder that allows configuring colander's filters fluently. Use {@link #rinse()} to apply.
      */
     public static class ColanderBuilder {
+        /** Number of components filtered before reordering the filters in {@link #adaptiveOrder()}. */
+        static final int DEFAULT_ADAPTIVE_SAMPLE_SIZE = 1000;
+
         List<ColanderFilter> filters = new ArrayList<>();
         final String filePath;
+        /** Input when not reading from {@link #filePath}. */
+        final InputStream input;
+        /** Files to merge, {@code null} unless merging. Then, {@link #filePath} is the first one. */
+        final List<String> mergedFilePaths;
+        boolean streaming = false;
+        boolean passthroughUnchanged = false;
+        boolean lazyProperties = false;
+        int adaptiveSampleSize = 0;
+        ForkJoinPool pool;
+        String cacheFile;
+        String resultCacheDirectory;
+        long resultCacheMaxSize;
+        /** Rules that return the route of a component, see {@link #routeBy(Function)}. */
+        List<Function<CalendarComponent, String>> routers = new ArrayList<>();
 
         ColanderBuilder(String filePath) {
             this.filePath = filePath;
+            this.input = null;
+            this.mergedFilePaths = null;
+        }
+
+        ColanderBuilder(InputStream input) {
+            this.filePath = null;
+            this.input = input;
+            this.mergedFilePaths = null;
+        }
+
+        ColanderBuilder(List<String> filePaths) {
+            this.filePath = filePaths.get(0);
+            this.input = null;
+            this.mergedFilePaths = new ArrayList<>(filePaths);
         }
 
         /**
@@ -67,6 +149,33 @@ public class Colander {
             return this;
         }
 
+        /**
+         * Remove event when summary, description, start date or end date are the same in another event.
+         *
+         * @param exactComparison {@code true} to compare the properties of events with the same fingerprint, ruling out
+         *                        that different events are removed because of a fingerprint collision. Needs more
+         *                        memory.
+         * @return a reference to this object.
+         */
+        public ColanderBuilder removeDuplicateEvents(boolean exactComparison) {
+            filters.add(new RemoveDuplicateEventFilter(exactComparison));
+            return this;
+        }
+
+        /**
+         * Remove event when summary, description, start date or end date are the same in another event. Stores the
+         * events seen so far on disk, for calendars with more events than fit into the heap. Returns the same results
+         * as {@link #removeDuplicateEvents()}.
+         *
+         * @param memoryBudget heap memory to use for detecting duplicates, in bytes. Must be at least 8 MB.
+         * @return a reference to this object.
+         * @throws IllegalArgumentException if {@code memoryBudget} is too small
+         */
+        public ColanderBuilder removeDuplicateEventsOnDisk(long memoryBudget) {
+            filters.add(new RemoveDuplicateEventFilter(false, memoryBudget));
+            return this;
+        }
+
         /**
          * Removes event when it has
          * <ul>
@@ -159,6 +268,228 @@ public class Colander {
             return this;
         }
 
+        /**
+         * Processes the calendar one component at a time: Each component is read, passed through the filters and
+         * written right away. That way, memory use depends on the largest component, not on the size of the file.
+         * <p>
+         * In this mode, {@link #rinse()} does not read anything. The calendar is processed when the result is
+         * written. Note that the result can only be consumed once.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder streaming() {
+            streaming = true;
+            return this;
+        }
+
+        /**
+         * Copies the calendar's properties and all components that were not changed by any filter byte by byte from
+         * the input to the output file, instead of serializing them again. Only changed components are serialized.
+         * This saves CPU and retains the formatting of the input (e.g. line endings and folding), so the output can be
+         * compared to the input line by line.
+         * <p>
+         * Implies {@link #streaming()}. Only applies when the result is written to a file.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder passthroughUnchanged() {
+            passthroughUnchanged = true;
+            return streaming();
+        }
+
+        /**
+         * Parses only the properties accessed by the filters into typed ical4j properties. All other properties of the
+         * components are kept as they were read and written back unchanged (see {@link RawProperty}). This saves
+         * parsing time and memory, especially for dates and URIs.
+         * <p>
+         * Only applies if all filters declare their properties (see {@link ColanderFilter#getAccessedProperties()}),
+         * which all built-in filters do. Otherwise, all properties are parsed. Has no effect in {@link #streaming()}
+         * mode or when reading from a stream.
+         * <p>
+         * Only pays off when the result is written using {@link ColanderResult#toFile(String)} or
+         * {@link ColanderResult#toStream(OutputStream)}. {@link ColanderResult#toCalendar()} parses the remaining
+         * properties, so the calendar provides typed properties as usual.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder lazyProperties() {
+            lazyProperties = true;
+            return this;
+        }
+
+        /**
+         * Measures the cost of each filter and how many components it removes on the first
+         * {@value #DEFAULT_ADAPTIVE_SAMPLE_SIZE} components. Then reorders the filters, so that cheap filters that
+         * remove many components are applied first. This way, fewer components reach the expensive filters.
+         * <p>
+         * The result is the same as without reordering: Filters that access the same property keep their order (see
+         * {@link ColanderFilter#getAccessedProperties()}). Stateful filters and filters that don't declare the
+         * properties they access are never moved, and no filter is moved across them.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder adaptiveOrder() {
+            return adaptiveOrder(DEFAULT_ADAPTIVE_SAMPLE_SIZE);
+        }
+
+        /**
+         * Same as {@link #adaptiveOrder()}, but with a specific number of components to measure.
+         *
+         * @param sampleSize number of components filtered before reordering the filters
+         * @return a reference to this object.
+         */
+        public ColanderBuilder adaptiveOrder(int sampleSize) {
+            if (sampleSize <= 0) {
+                throw new IllegalArgumentException("Sample size must be positive: " + sampleSize);
+            }
+            this.adaptiveSampleSize = sampleSize;
+            return this;
+        }
+
+        /**
+         * Filters the calendar components in parallel, using the common fork-join pool. The order of the components
+         * is maintained. Stateful filters (see {@link ColanderFilter#isStateless()}) return the same results as
+         * when filtering sequentially.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder parallel() {
+            return parallel(ForkJoinPool.commonPool());
+        }
+
+        /**
+         * Filters the calendar components in parallel, using a specific fork-join pool.
+         *
+         * @param pool the pool to filter in. Its lifecycle is up to the caller.
+         * @return a reference to this object.
+         * @see #parallel()
+         */
+        public ColanderBuilder parallel(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Caches the results of the filters for each component in a file. When rinsing again, components that did not
+         * change since the last time are neither parsed nor filtered, but their result is taken from the cache.
+         * This saves most of the work for calendars that change only slightly between runs, such as subscriptions.
+         * <p>
+         * Only applies if all filters are stateless (see {@link ColanderFilter#isStateless()}) and declare their
+         * configuration (see {@link ColanderFilter#getConfiguration()}). All built-in filters except
+         * {@link #removeDuplicateEvents()} do. When the filters change, the cache is discarded. Components that are
+         * no longer in the calendar are eventually removed from the cache.
+         * <p>
+         * Implies {@link #streaming()}. Use one cache file per calendar, the file must not be used concurrently.
+         *
+         * @param cacheFile the file to store the cache in. Created if it does not exist.
+         * @return a reference to this object.
+         */
+        public ColanderBuilder cache(String cacheFile) {
+            this.cacheFile = cacheFile;
+            return streaming();
+        }
+
+        /**
+         * Caches the whole output, so when rinsing the same input file with the same filters and options again, the
+         * cached output is copied instead of reading, filtering and writing the calendar. The input file is
+         * recognized by its size, modification time and samples of its content, so looking it up takes the same time
+         * for small and large files.
+         * <p>
+         * Only applies when reading from a single file and if all filters declare their configuration (see
+         * {@link ColanderFilter#getConfiguration()}), which all built-in filters do. The result is cached once it is
+         * written using {@link ColanderResult#toFile(String)} or {@link ColanderResult#toStream(OutputStream)}. When
+         * the directory exceeds {@code maxSize}, the least recently used outputs are deleted. The directory can be
+         * shared by different calendars and concurrent runs.
+         *
+         * @param directory the directory to store the outputs in. Created if it does not exist.
+         * @param maxSize   maximum size of all outputs in the directory, in bytes
+         * @return a reference to this object.
+         */
+        public ColanderBuilder cacheResult(String directory, long maxSize) {
+            this.resultCacheDirectory = directory;
+            this.resultCacheMaxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Writes the components to several files instead of one, depending on their route. The route of a component
+         * is determined after filtering, by the first rule that returns a route for it. Components without a route
+         * are written to the output file itself. Components with a route are written to a file next to it, whose
+         * name ends in the route, e.g. {@code cal-2017.ics} for {@code cal.ics} and route {@code 2017}. Each file
+         * is a complete calendar: The calendar properties and all time zones are written to each one.
+         * <p>
+         * The input is read and filtered only once, while the files are written in parallel, one thread per file.
+         * Implies {@link #streaming()}. Use {@link #rinseRouted()} instead of {@link #rinse()} to write the files.
+         * The filter results per component are not cached (see {@link #cache(String)}), because cached components
+         * are not parsed and therefore can't be routed.
+         *
+         * @param router returns the route of a component or {@code null} to leave it to the following rules. Routes
+         *               are part of file names, so characters other than letters, digits, dot, dash and underscore
+         *               are replaced.
+         * @return a reference to this object.
+         */
+        public ColanderBuilder routeBy(Function<CalendarComponent, String> router) {
+            routers.add(router);
+            return streaming();
+        }
+
+        /**
+         * Routes all components that match a predicate, see {@link #routeBy(Function)}.
+         *
+         * @param route     the route of the matching components
+         * @param predicate selects the components
+         * @return a reference to this object.
+         */
+        public ColanderBuilder route(String route, Predicate<CalendarComponent> predicate) {
+            return routeBy(component -> predicate.test(component) ? route : null);
+        }
+
+        /**
+         * Routes each component by its type in lower case, e.g. events to {@code cal-vevent.ics} and to-dos to
+         * {@code cal-vtodo.ics}, see {@link #routeBy(Function)}.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder routeByType() {
+            return routeBy(component -> component.getName().toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * Routes each component by the year of its start date, e.g. to {@code cal-2017.ics}, see
+         * {@link #routeBy(Function)}. Components without start date are written to the output file itself. The year
+         * is taken from the date as written in the calendar, without converting time zones.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder routeByYear() {
+            return routeBy(component -> getStart(component, 4));
+        }
+
+        /**
+         * Routes each component by the month of its start date, e.g. to {@code cal-2017-01.ics}, see
+         * {@link #routeByYear()}.
+         *
+         * @return a reference to this object.
+         */
+        public ColanderBuilder routeByMonth() {
+            return routeBy(component -> {
+                String month = getStart(component, 6);
+                return month == null ? null : month.substring(0, 4) + '-' + month.substring(4);
+            });
+        }
+
+        /**
+         * @return the first {@code length} characters of the component's start date ({@code yyyyMMdd...}) or
+         * {@code null} if it has none
+         */
+        private static String getStart(CalendarComponent component, int length) {
+            Property start = component.getProperty(Property.DTSTART);
+            if (start == null || start.getValue() == null || start.getValue().length() < length) {
+                return null;
+            }
+            return start.getValue().substring(0, length);
+        }
+
         /**
          * Rinses colander's input, i.e. applies the filters to.
          * Terminates {@link ColanderBuilder} and returns a {@link ColanderResult} that allows further processing.
@@ -168,30 +499,133 @@ public class Colander {
          *                                 some other reason cannot be opened forreading.
          * @throws IOException             where an error occurs reading data from the specified stream
          * @throws ColanderParserException where an error occurs parsing data from the stream
+         * @throws IllegalStateException   if routes are configured, see {@link #rinseRouted()}
          */
         public ColanderResult rinse() throws IOException {
-            return new ColanderResult(filePath, createFilterChain().run(read(filePath)));
+            if (!routers.isEmpty()) {
+                // The result consists of several calendars
+                throw new IllegalStateException("Routes are configured, use rinseRouted() instead of rinse()");
+            }
+            FilterChain filterChain = createFilterChain();
+            Optional<String> configuration = getConfiguration(filterChain);
+            if (resultCacheDirectory == null || filePath == null || mergedFilePaths != null
+                || !configuration.isPresent()) {
+                return rinse(filterChain);
+            }
+            ResultCache resultCache = createResultCache();
+            Fingerprint key = resultCache.key(Paths.get(filePath), configuration.get());
+            Path cachedResult = resultCache.get(key);
+            if (cachedResult != null) {
+                return new CachedColanderResult(filePath, cachedResult);
+            }
+            return new ResultCachingColanderResult(filePath, rinse(filterChain), resultCache, key);
+        }
+
+        /**
+         * Rinses colander's input and writes it to several files, see {@link #routeBy(Function)}.
+         * Terminates {@link ColanderBuilder} and returns a {@link RoutedColanderResult} that writes the files. The
+         * result of a routed rinse is never cached (see {@link #cacheResult(String, long)}).
+         *
+         * @return a wrapper around the result that writes the files
+         * @throws IllegalStateException if no routes are configured, see {@link #rinse()}
+         */
+        public RoutedColanderResult rinseRouted() {
+            if (routers.isEmpty()) {
+                throw new IllegalStateException("No routes are configured, use rinse() instead of rinseRouted()");
+            }
+            return new RoutedColanderResult(filePath, input, mergedFilePaths, createFilterChain(),
+                passthroughUnchanged, createRouter());
+        }
+
+        private ColanderResult rinse(FilterChain filterChain) throws IOException {
+            if (mergedFilePaths != null) {
+                return new MergingColanderResult(mergedFilePaths, filterChain, passthroughUnchanged);
+            }
+            if (streaming) {
+                return new StreamingColanderResult(filePath, input, filterChain, passthroughUnchanged);
+            }
+            if (input != null) {
+                return new ColanderResult(filePath, filterChain.run(read(input)), filterChain.getStatistics());
+            }
+            Set<String> materializedProperties =
+                lazyProperties ? filterChain.getAccessedProperties().orElse(null) : null;
+            Calendar calendar = filterChain.run(read(filePath, materializedProperties));
+            if (materializedProperties != null) {
+                return new LazyColanderResult(filePath, calendar, filterChain.getStatistics());
+            }
+            return new ColanderResult(filePath, calendar, filterChain.getStatistics());
+        }
+
+        /**
+         * @return a description of everything that affects the output: The filters and the options that change the
+         * formatting. {@link Optional#empty()} if not all filters declare their configuration.
+         */
+        private Optional<String> getConfiguration(FilterChain filterChain) {
+            return filterChain.getConfiguration().map(filters ->
+                FilterConfiguration.of("ColanderBuilder", filters, streaming, passthroughUnchanged, lazyProperties));
+        }
+
+        /**
+         * Visible for testing.
+         */
+        ResultCache createResultCache() {
+            return new ResultCache(Paths.get(resultCacheDirectory), resultCacheMaxSize);
         }
 
         /**
          * Visible for testing.
          *
+         * @param materializedProperties the properties to parse, or {@code null} to parse all properties
          * @return the calender at inputFilePath
          */
-        Calendar read(String filePath) throws IOException {
-            return new ColanderIO().read(filePath);
+        Calendar read(String filePath, Set<String> materializedProperties) throws IOException {
+            return new ColanderIO().read(filePath, materializedProperties);
         }
 
         /**
          * Visible for testing.
          *
-         * @return a filter chain containing the configured filters.
+         * @return the calender read from input
          */
-        FilterChain createFilterChain() {
-            return new FilterChain(filters);
+        Calendar read(InputStream input) throws IOException {
+            try (InputStream in = input) {
+                return new ColanderIO().read(in);
+            }
         }
 
+        /**
+         * Visible for testing.
+         *
+         * @return a filter chain containing the configured filters. Subsequent replace filters on the same property
+         * are merged, so each property is looked up and set only once per component. Subsequent remove filters on the
+         * same property are merged, so each property value is scanned only once for all terms.
+         */
+        FilterChain createFilterChain() {
+            ComponentCache cache = null;
+            if (cacheFile != null && !routers.isEmpty()) {
+                LOG.info("Not using cache, because cached components can't be routed");
+            } else if (cacheFile != null) {
+                cache = new ComponentCache(Paths.get(cacheFile));
+            }
+            return new FilterChain(MultiRemoveFilter.merge(MultiReplaceFilter.merge(filters)), pool,
+                adaptiveSampleSize, cache);
+        }
 
+        /**
+         * @return a router that applies the {@link #routers} in order, until one returns a route
+         */
+        private Function<CalendarComponent, String> createRouter() {
+            List<Function<CalendarComponent, String>> rules = new ArrayList<>(routers);
+            return component -> {
+                for (Function<CalendarComponent, String> rule : rules) {
+                    String route = rule.apply(component);
+                    if (route != null) {
+                        return route;
+                    }
+                }
+                return null;
+            };
+        }
     }
 
     /**
@@ -200,10 +634,16 @@ public class Colander {
     public static class ColanderResult {
         private final Calendar result;
         private final String inputFilePath;
+        private final List<FilterStatistics> filterStatistics;
 
         ColanderResult(String inputFilePath, Calendar result) {
+            this(inputFilePath, result, Collections.emptyList());
+        }
+
+        ColanderResult(String inputFilePath, Calendar result, List<FilterStatistics> filterStatistics) {
             this.inputFilePath = inputFilePath;
             this.result = result;
+            this.filterStatistics = filterStatistics;
         }
 
         /**
@@ -224,6 +664,17 @@ public class Colander {
             write(result, outputPath, inputFilePath);
         }
 
+        /**
+         * Write rinsed calender to a stream, e.g. a network connection.
+         *
+         * @param output the stream to write the ical file to. Closed afterwards.
+         * @throws IOException             thrown when unable to write to output stream
+         * @throws ColanderParserException where calendar validation fails
+         */
+        public void toStream(OutputStream output) throws IOException {
+            write(result, output);
+        }
+
         /**
          * @return an in-memory-representation of rinsed calender.
          */
@@ -231,11 +682,471 @@ public class Colander {
             return result;
         }
 
+        /**
+         * @return statistics for each filter, in the order they were applied. Subsequent filters of the same kind
+         * might have been merged into one filter.
+         */
+        public List<FilterStatistics> getFilterStatistics() {
+            return filterStatistics;
+        }
+
         /**
          * Visible for testing.
          */
         void write(Calendar result, String outputPath, String inputFilePath) throws IOException {
             new ColanderIO().write(result, outputPath, inputFilePath);
         }
+
+        /**
+         * Visible for testing.
+         */
+        void write(Calendar result, OutputStream output) throws IOException {
+            new ColanderIO().write(result, output);
+        }
+    }
+
+    /**
+     * Result of a rinse with {@link ColanderBuilder#lazyProperties()}: Its calendar contains {@link RawProperty}s,
+     * which are written as they were read. They are parsed into typed properties only when the calendar is requested.
+     */
+    static class LazyColanderResult extends ColanderResult {
+        private final String inputFilePath;
+        /** The calendar with all properties parsed, once requested. Written instead of the raw one afterwards. */
+        private Calendar parsed;
+
+        LazyColanderResult(String inputFilePath, Calendar result, List<FilterStatistics> filterStatistics) {
+            super(inputFilePath, result, filterStatistics);
+            this.inputFilePath = inputFilePath;
+        }
+
+        @Override
+        public void toFile(String outputPath) throws IOException {
+            if (parsed == null) {
+                super.toFile(outputPath);
+            } else {
+                write(parsed, outputPath, inputFilePath);
+            }
+        }
+
+        @Override
+        public void toStream(OutputStream output) throws IOException {
+            if (parsed == null) {
+                super.toStream(output);
+            } else {
+                write(parsed, output);
+            }
+        }
+
+        /**
+         * Parses all properties that were kept raw, by writing the calendar and reading it again.
+         *
+         * @see ColanderResult#toCalendar()
+         * @throws java.io.UncheckedIOException where an error occurs parsing the calendar
+         */
+        @Override
+        public Calendar toCalendar() {
+            if (parsed == null) {
+                parsed = parse(super.toCalendar());
+            }
+            return parsed;
+        }
+
+        /**
+         * Visible for testing.
+         */
+        Calendar parse(Calendar lazyCalendar) {
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                ColanderIO io = new ColanderIO();
+                io.write(lazyCalendar, output);
+                return io.read(ByteBuffer.wrap(output.toByteArray()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Result of a streaming rinse. The input is read, filtered and written only once the result is consumed. So, the
+     * filter statistics are only populated afterwards.
+     */
+    static class StreamingColanderResult extends ColanderResult {
+        private final String inputFilePath;
+        /** Input when not reading from {@link #inputFilePath}. */
+        private final InputStream input;
+        private final FilterChain filterChain;
+        private final boolean passthroughUnchanged;
+        private boolean consumed = false;
+
+        StreamingColanderResult(String inputFilePath, FilterChain filterChain) {
+            this(inputFilePath, filterChain, false);
+        }
+
+        StreamingColanderResult(String inputFilePath, FilterChain filterChain, boolean passthroughUnchanged) {
+            this(inputFilePath, null, filterChain, passthroughUnchanged);
+        }
+
+        /**
+         * @param input read instead of {@code inputFilePath}, if not {@code null}
+         */
+        StreamingColanderResult(String inputFilePath, InputStream input, FilterChain filterChain,
+                                boolean passthroughUnchanged) {
+            super(inputFilePath, null, filterChain.getStatistics());
+            this.inputFilePath = inputFilePath;
+            this.input = input;
+            this.filterChain = filterChain;
+            this.passthroughUnchanged = passthroughUnchanged;
+        }
+
+        /**
+         * Reads, filters and writes the calendar one component at a time.
+         *
+         * @see ColanderResult#toFile(String)
+         * @throws IllegalStateException if the result has already been consumed
+         */
+        @Override
+        public void toFile(String outputPath) throws IOException {
+            consume();
+            if (input != null) {
+                stream(input, new ColanderIO().createOutputFile(outputPath), filterChain);
+            } else {
+                stream(inputFilePath, outputPath, filterChain);
+            }
+        }
+
+        /**
+         * Reads, filters and writes the calendar one component at a time.
+         *
+         * @see ColanderResult#toStream(OutputStream)
+         * @throws IllegalStateException if the result has already been consumed
+         */
+        @Override
+        public void toStream(OutputStream output) throws IOException {
+            consume();
+            stream(input != null ? input : new FileInputStream(inputFilePath), output, filterChain);
+        }
+
+        /**
+         * Reads the whole calendar into memory, so this defeats the purpose of streaming.
+         *
+         * @see ColanderResult#toCalendar()
+         * @throws IllegalStateException if the result has already been consumed
+         * @throws java.io.UncheckedIOException where an error occurs reading the calendar
+         */
+        @Override
+        public Calendar toCalendar() {
+            consume();
+            try {
+                if (input != null) {
+                    try (InputStream in = input) {
+                        return filterChain.run(new ColanderIO().read(in));
+                    }
+                }
+                return filterChain.run(read(inputFilePath));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void consume() {
+            // Filters might be stateful (e.g. remove duplicates), so don't run them twice
+            if (consumed) {
+                throw new IllegalStateException("Streaming result can only be consumed once.");
+            }
+            consumed = true;
+        }
+
+        /**
+         * Visible for testing.
+         */
+        void stream(String inputFilePath, String outputPath, FilterChain filterChain) throws IOException {
+            new ColanderIO().stream(inputFilePath, outputPath, filterChain, passthroughUnchanged);
+        }
+
+        /**
+         * Visible for testing.
+         */
+        void stream(InputStream input, OutputStream output, FilterChain filterChain) throws IOException {
+            new ColanderIO().stream(input, output, filterChain, passthroughUnchanged);
+        }
+
+        /**
+         * Visible for testing.
+         */
+        Calendar read(String inputFilePath) throws IOException {
+            return new ColanderIO().read(inputFilePath);
+        }
+    }
+
+    /**
+     * Result of merging several calendars, see {@link Colander#toss(List)}. Like {@link StreamingColanderResult}, the
+     * inputs are read, filtered and written only once the result is consumed.
+     */
+    static class MergingColanderResult extends ColanderResult {
+        private final List<String> inputFilePaths;
+        private final FilterChain filterChain;
+        private final boolean passthroughUnchanged;
+        private boolean consumed = false;
+
+        MergingColanderResult(List<String> inputFilePaths, FilterChain filterChain, boolean passthroughUnchanged) {
+            super(inputFilePaths.get(0), null, filterChain.getStatistics());
+            this.inputFilePaths = inputFilePaths;
+            this.filterChain = filterChain;
+            this.passthroughUnchanged = passthroughUnchanged;
+        }
+
+        /**
+         * Merges, filters and writes the calendars one component at a time. When {@code outputPath} is {@code null},
+         * a new filename is generated from the first input file.
+         *
+         * @see ColanderResult#toFile(String)
+         * @throws IllegalStateException if the result has already been consumed
+         */
+        @Override
+        public void toFile(String outputPath) throws IOException {
+            consume();
+            ColanderIO io = new ColanderIO();
+            merge(io.createOutputStream(io.resolveOutputPath(outputPath, inputFilePaths.get(0))));
+        }
+
+        /**
+         * Merges, filters and writes the calendars one component at a time.
+         *
+         * @see ColanderResult#toStream(OutputStream)
+         * @throws IllegalStateException if the result has already been consumed
+         */
+        @Override
+        public void toStream(OutputStream output) throws IOException {
+            consume();
+            merge(output);
+        }
+
+        /**
+         * Holds the whole merged calendar in memory.
+         *
+         * @see ColanderResult#toCalendar()
+         * @throws IllegalStateException if the result has already been consumed
+         * @throws java.io.UncheckedIOException where an error occurs reading the calendars
+         */
+        @Override
+        public Calendar toCalendar() {
+            consume();
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                merge(output);
+                return new ColanderIO().read(ByteBuffer.wrap(output.toByteArray()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void consume() {
+            // Filters might be stateful (e.g. remove duplicates), so don't run them twice
+            if (consumed) {
+                throw new IllegalStateException("Merging result can only be consumed once.");
+            }
+            consumed = true;
+        }
+
+        /**
+         * Visible for testing.
+         */
+        void merge(OutputStream output) throws IOException {
+            new ColanderIO().merge(inputFilePaths, output, filterChain, passthroughUnchanged);
+        }
+    }
+
+    /**
+     * Representation of a rinsed calendar that is written to several files, see
+     * {@link ColanderBuilder#routeBy(Function)}. Like {@link StreamingColanderResult}, the input is read, filtered and
+     * written only once the result is consumed. The components are never held in memory together, so unlike
+     * {@link ColanderResult}, the result can't be written to a stream or returned as a calendar.
+     */
+    public static class RoutedColanderResult {
+        private final String inputFilePath;
+        /** Input when not reading from {@link #inputFilePath}. */
+        private final InputStream input;
+        /** Files to merge, {@code null} unless merging. */
+        private final List<String> mergedFilePaths;
+        private final FilterChain filterChain;
+        private final boolean passthroughUnchanged;
+        private final Function<CalendarComponent, String> router;
+        private boolean consumed = false;
+
+        RoutedColanderResult(String inputFilePath, InputStream input, List<String> mergedFilePaths,
+                             FilterChain filterChain, boolean passthroughUnchanged,
+                             Function<CalendarComponent, String> router) {
+            this.inputFilePath = inputFilePath;
+            this.input = input;
+            this.mergedFilePaths = mergedFilePaths;
+            this.filterChain = filterChain;
+            this.passthroughUnchanged = passthroughUnchanged;
+            this.router = router;
+        }
+
+        /**
+         * Reads and filters the calendar one component at a time and writes each one to the file of its route.
+         *
+         * @param outputPath the file to write the components without route to. The files of the routes are named
+         *                   after it. When {@code null}, a new filename is generated from the input file.
+         * @throws IOException                              thrown when unable to read the input or write the files
+         * @throws ColanderParserException                  where an error occurs parsing the input
+         * @throws java.nio.file.FileAlreadyExistsException if one of the files exists. Colander is not going to
+         *                                                  overwrite any files.
+         * @throws IllegalStateException                    if the result has already been consumed
+         */
+        public void toFile(String outputPath) throws IOException {
+            // Filters might be stateful (e.g. remove duplicates), so don't run them twice
+            if (consumed) {
+                throw new IllegalStateException("Routed result can only be consumed once.");
+            }
+            consumed = true;
+            route(outputPath != null ? outputPath : new ColanderIO().resolveOutputPath(null, inputFilePath));
+        }
+
+        /**
+         * @return statistics for each filter, in the order they were applied. Complete only after the result has been
+         * written.
+         */
+        public List<FilterStatistics> getFilterStatistics() {
+            return filterChain.getStatistics();
+        }
+
+        /**
+         * Visible for testing.
+         */
+        void route(String outputPath) throws IOException {
+            ColanderIO io = new ColanderIO();
+            ComponentReader reader;
+            if (mergedFilePaths != null) {
+                reader = io.openReader(mergedFilePaths, passthroughUnchanged);
+            } else if (input != null) {
+                reader = io.createComponentReader(Compression.decompress(input), passthroughUnchanged);
+            } else {
+                reader = io.openReader(inputFilePath, passthroughUnchanged);
+            }
+            io.route(reader, outputPath, filterChain, router);
+        }
+    }
+
+    /**
+     * Result that was taken from the {@link ResultCache}, so the input is neither read nor filtered. Provides no
+     * filter statistics.
+     */
+    static class CachedColanderResult extends ColanderResult {
+        private final String inputFilePath;
+        private final Path cachedResult;
+
+        CachedColanderResult(String inputFilePath, Path cachedResult) {
+            super(inputFilePath, null);
+            this.inputFilePath = inputFilePath;
+            this.cachedResult = cachedResult;
+        }
+
+        /**
+         * Copies the cached output.
+         *
+         * @see ColanderResult#toFile(String)
+         */
+        @Override
+        public void toFile(String outputPath) throws IOException {
+            ColanderIO io = new ColanderIO();
+            try (OutputStream output = io.createOutputStream(io.resolveOutputPath(outputPath, inputFilePath))) {
+                Files.copy(cachedResult, output);
+            }
+        }
+
+        /**
+         * Copies the cached output.
+         *
+         * @see ColanderResult#toStream(OutputStream)
+         */
+        @Override
+        public void toStream(OutputStream output) throws IOException {
+            try (OutputStream out = output) {
+                Files.copy(cachedResult, out);
+            }
+        }
+
+        /**
+         * Parses the cached output.
+         *
+         * @see ColanderResult#toCalendar()
+         * @throws java.io.UncheckedIOException where an error occurs reading the cached output
+         */
+        @Override
+        public Calendar toCalendar() {
+            try {
+                return new ColanderIO().read(cachedResult.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Stores the output of another result in the {@link ResultCache}, once it is written.
+     */
+    static class ResultCachingColanderResult extends ColanderResult {
+        private final String inputFilePath;
+        private final ColanderResult result;
+        private final ResultCache resultCache;
+        private final Fingerprint key;
+
+        ResultCachingColanderResult(String inputFilePath, ColanderResult result, ResultCache resultCache,
+                                    Fingerprint key) {
+            super(inputFilePath, null);
+            this.inputFilePath = inputFilePath;
+            this.result = result;
+            this.resultCache = resultCache;
+            this.key = key;
+        }
+
+        @Override
+        public void toFile(String outputPath) throws IOException {
+            String actualPath = new ColanderIO().resolveOutputPath(outputPath, inputFilePath);
+            if (Compression.isCompressed(actualPath)) {
+                // Cache the uncompressed output, so it can be copied to any output
+                toStream(new ColanderIO().createOutputStream(actualPath));
+                return;
+            }
+            result.toFile(actualPath);
+            resultCache.put(key, Paths.get(actualPath));
+        }
+
+        /**
+         * Writes the output to a temporary file first, so it can be cached.
+         *
+         * @see ColanderResult#toStream(OutputStream)
+         */
+        @Override
+        public void toStream(OutputStream output) throws IOException {
+            Path temp = Files.createTempFile("colander", ResultCache.EXTENSION);
+            try {
+                Files.delete(temp);
+                result.toFile(temp.toString());
+                resultCache.put(key, temp);
+                try (OutputStream out = output) {
+                    Files.copy(temp, out);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        /**
+         * Not cached, because the calendar can be changed before it's written.
+         *
+         * @see ColanderResult#toCalendar()
+         */
+        @Override
+        public Calendar toCalendar() {
+            return result.toCalendar();
+        }
+
+        @Override
+        public List<FilterStatistics> getFilterStatistics() {
+            return result.getFilterStatistics();
+        }
     }
 }
@@ -26,9 +26,13 @@ package info.schnatterer.colander;
 import net.fortuna.ical4j.model.component.CalendarComponent;
 
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Interface for filters that mutate or delete calender componennts (such as events, ToDos, etc.) in a filter chain.
+ * <p>
+ * Filters that implement {@link java.io.Closeable} are closed after each run of the filter chain. This way, they can
+ * release resources and reset their state.
  */
 @FunctionalInterface
 public interface ColanderFilter {
@@ -41,4 +45,55 @@ public interface ColanderFilter {
      * @throws ColanderParserException if anything goes wrong
      */
     Optional<CalendarComponent> apply(CalendarComponent component);
+
+    /**
+     * Declares whether this filter is stateless, that is, its result depends only on the component passed to
+     * {@link #apply(CalendarComponent)}. Stateless filters can safely be applied to different components concurrently.
+     * Stateful filters (such as {@link RemoveDuplicateEventFilter}) are always applied to one component after another,
+     * in the order of the calendar.
+     *
+     * @return {@code true} if the filter is stateless. Defaults to {@code false}, which is always safe.
+     */
+    default boolean isStateless() {
+        return false;
+    }
+
+    /**
+     * Declares the names of all properties this filter reads or changes. When all filters declare their properties,
+     * a calendar can be parsed lazily: Only these properties are parsed into typed ical4j properties, all others are
+     * kept as they were read (see {@link Colander.ColanderBuilder#lazyProperties()}). Properties that typed getters
+     * read internally must be declared as well, e.g. {@code DURATION} for {@code VEvent#getEndDate()}. Otherwise,
+     * the getters fail casting the property that was kept as read.
+     *
+     * @return the names of the properties (upper case, such as {@code SUMMARY}) or {@link Optional#empty()} if not
+     * known. Defaults to {@link Optional#empty()}, which is always safe.
+     */
+    default Optional<Set<String>> getAccessedProperties() {
+        return Optional.empty();
+    }
+
+    /**
+     * Declares the types of calendar components this filter applies to. Components of other types are never passed
+     * to the filter, so it must return them unchanged from {@link #apply(CalendarComponent)}. This way, the filter
+     * chain can skip filters that don't apply to a component, without calling them.
+     *
+     * @return the types of components (such as {@code VEvent.class}, including subclasses) or
+     * {@link Optional#empty()} if the filter applies to all components. Defaults to {@link Optional#empty()}, which
+     * is always safe.
+     */
+    default Optional<Set<Class<? extends CalendarComponent>>> getComponentTypes() {
+        return Optional.empty();
+    }
+
+    /**
+     * Describes the configuration of this filter in a canonical form: Filters that return the same results have the
+     * same configuration, filters that might return different results have different configurations. This allows for
+     * caching results across runs (see {@link Colander.ColanderBuilder#cache(String)}).
+     *
+     * @return the configuration (see {@link FilterConfiguration#of(String, Object...)}) or {@link Optional#empty()} if
+     * not known. Defaults to {@link Optional#empty()}, which is always safe.
+     */
+    default Optional<String> getConfiguration() {
+        return Optional.empty();
+    }
 }
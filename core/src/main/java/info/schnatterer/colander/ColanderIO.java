@@ -25,16 +25,23 @@ package info.schnatterer.colander;
 
 import net.fortuna.ical4j.data.CalendarBuilder;
 import net.fortuna.ical4j.data.CalendarOutputter;
+import net.fortuna.ical4j.data.CalendarParser;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.component.CalendarComponent;
 import net.fortuna.ical4j.validate.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Handles in and output of calenders conveniently.
@@ -46,7 +53,7 @@ class ColanderIO {
     /**
      * Creates calendar object from an ical file from a create a calender object
      *
-     * @param filePath the path to the ical file
+     * @param filePath the path to the ical file, which may be gzip compressed
      * @return an object representing the ical file
      * @throws FileNotFoundException   if the file does not exist, is a directory rather than a regular file, or for
      *                                 some other reason cannot be opened forreading.
@@ -54,13 +61,81 @@ class ColanderIO {
      * @throws ColanderParserException where an error occurs parsing data from the stream
      */
     Calendar read(String filePath) throws IOException {
-        return read(new FileInputStream(filePath));
+        return read(filePath, null);
+    }
+
+    /**
+     * Same as {@link #read(String)}, but optionally parses only specific properties of the components into typed
+     * ical4j properties. All other properties of components are kept as {@link RawProperty}, see
+     * {@link #read(ByteBuffer, Set)}. Files larger than 2 GB can't be mapped into memory, so all of their properties
+     * are parsed.
+     *
+     * @param materializedProperties names (upper case) of the properties to parse or {@code null} to parse all
+     * @see #read(String)
+     */
+    Calendar read(String filePath, Set<String> materializedProperties) throws IOException {
+        try (InputStream input = Compression.decompress(new FileInputStream(filePath))) {
+            if (!(input instanceof FileInputStream)) {
+                // Compressed files can't be mapped. The calendar is held in memory anyway, so decompress it at once
+                return read(ByteBuffer.wrap(input.readAllBytes()), materializedProperties);
+            }
+            FileChannel channel = ((FileInputStream) input).getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                // Can't be mapped at once
+                if (materializedProperties != null) {
+                    LOG.warn("{} is too large to be mapped into memory. Parsing all properties instead of only {}",
+                        filePath, materializedProperties);
+                }
+                return read(input);
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), materializedProperties);
+        }
+    }
+
+    /**
+     * Creates calendar object from the content of a buffer, such as a memory-mapped file. Faster than
+     * {@link #read(InputStream)}, because the content lines are tokenized directly from the buffer.
+     *
+     * @param buffer contains the ical file, from its position to its limit
+     * @return an object representing the ical file
+     * @throws IOException             where an error occurs reading data from the buffer
+     * @throws ColanderParserException where an error occurs parsing data from the buffer
+     */
+    Calendar read(ByteBuffer buffer) throws IOException {
+        return read(buffer, null);
+    }
+
+    /**
+     * Same as {@link #read(ByteBuffer)}, but optionally parses only specific properties of the components into typed
+     * ical4j properties. All other properties of components are kept as {@link RawProperty}: Their values are
+     * neither parsed nor unescaped and they are written back exactly as they were read. Properties of the calendar and
+     * of time zones are always parsed.
+     *
+     * @param materializedProperties names (upper case) of the properties to parse or {@code null} to parse all
+     * @see #read(ByteBuffer)
+     */
+    Calendar read(ByteBuffer buffer, Set<String> materializedProperties) throws IOException {
+        LOG.info("Reading calendar file...");
+
+        try {
+            CalendarBuilder builder;
+            if (materializedProperties == null) {
+                builder = createCalenderBuilder(new ByteBufferCalendarParser(buffer));
+            } else {
+                LOG.debug("Parsing only properties {}, keeping all others raw", materializedProperties);
+                builder = new LazyCalendarBuilder(new ByteBufferCalendarParser(buffer, materializedProperties));
+            }
+            // The parser reads from the buffer, so the reader passed to the builder is not used
+            return builder.build(new StringReader(""));
+        } catch (ParserException e) {
+            throw new ColanderParserException(e);
+        }
     }
 
     /**
      * Creates calendar object from an ical stream from a create a calender object
      *
-     * @param input a stream containg the ical file
+     * @param input a stream containg the ical file, which may be gzip compressed
      * @return an object representing the ical file
      * @throws FileNotFoundException   if the file does not exist, is a directory rather than a regular file, or for
      *                                 some other reason cannot be opened forreading.
@@ -71,7 +146,7 @@ class ColanderIO {
         LOG.info("Reading calendar file...");
 
         try {
-            return createCalenderBuilder().build(input);
+            return createCalenderBuilder().build(Compression.decompress(input));
         } catch (ParserException e) {
             throw new ColanderParserException(e);
         }
@@ -92,15 +167,21 @@ class ColanderIO {
      * @throws FileAlreadyExistsException if the file exists. Colander is not going to overwrite any files.
      */
     void write(Calendar cal, String outputPath, String inputFilePath) throws IOException {
-        String actualPath = outputPath;
-        if (actualPath == null) {
-            actualPath = generateOutputPath(inputFilePath);
-        }
-        if (new File(actualPath).exists()) {
-            throw new FileAlreadyExistsException(actualPath, null, "File already exists. Not going to overwrite it.");
-        }
+        String actualPath = resolveOutputPath(outputPath, inputFilePath);
         LOG.info("Writing output to {}", actualPath);
-        try (OutputStream outputStream = createOutputStream(actualPath)) {
+        write(cal, createOutputStream(actualPath));
+    }
+
+    /**
+     * Writes a calender object to a stream.
+     *
+     * @param cal    the iCal to write
+     * @param output the stream to write the iCal to. Closed afterwards.
+     * @throws IOException             thrown when unable to write to output stream
+     * @throws ColanderParserException where calendar validation fails
+     */
+    void write(Calendar cal, OutputStream output) throws IOException {
+        try (OutputStream outputStream = output) {
             CalendarOutputter calendarOutputter = createCalendarOutputter();
             try {
                 calendarOutputter.output(cal, outputStream);
@@ -110,19 +191,198 @@ class ColanderIO {
         }
     }
 
+    /**
+     * Reads an ical file one component at a time, passes each component through a filter chain and writes it to
+     * a file right away. That way, memory use depends on the largest component, not on the size of the file.
+     *
+     * @param inputFilePath the path to the ical file
+     * @param outputPath    the file to write the modified iCal file to. When {@code null}, a new filename is generated
+     *                      from {@code inputFilePath}.
+     * @param filterChain   the filters to apply to each component
+     * @throws FileNotFoundException      if the input file cannot be opened for reading or the output file cannot be
+     *                                    opened for writing
+     * @throws IOException                where an error occurs reading or writing
+     * @throws ColanderParserException    where an error occurs parsing data from the input file
+     * @throws FileAlreadyExistsException if the file exists. Colander is not going to overwrite any files.
+     */
+    void stream(String inputFilePath, String outputPath, FilterChain filterChain) throws IOException {
+        stream(inputFilePath, outputPath, filterChain, false);
+    }
+
+    /**
+     * Same as {@link #stream(String, String, FilterChain)}, but optionally copies the calendar's properties and all
+     * components that were not changed by any filter byte by byte from the input file, instead of serializing them
+     * again. That way, their formatting is retained.
+     *
+     * @param passthroughUnchanged whether to copy unchanged parts of the input verbatim
+     * @see #stream(String, String, FilterChain)
+     */
+    void stream(String inputFilePath, String outputPath, FilterChain filterChain, boolean passthroughUnchanged)
+        throws IOException {
+        String actualPath = resolveOutputPath(outputPath, inputFilePath);
+        LOG.info("Streaming calendar file to {}", actualPath);
+        // Closed twice, so that the input is also closed when the output can't be created
+        try (InputStream input = Compression.decompress(new FileInputStream(inputFilePath))) {
+            stream(input, createOutputStream(actualPath), filterChain, passthroughUnchanged);
+        }
+    }
+
+    /**
+     * Same as {@link #stream(String, String, FilterChain, boolean)}, but reads from and writes to streams. Unchanged
+     * parts of the input can only be transferred directly when reading from an uncompressed {@link FileInputStream}
+     * and writing to a {@link java.io.FileOutputStream}.
+     *
+     * @param input  the stream to read the ical file from, which may be gzip compressed. Closed afterwards.
+     * @param output the stream to write the modified ical file to. Closed afterwards.
+     * @throws IOException             where an error occurs reading or writing
+     * @throws ColanderParserException where an error occurs parsing data from the input stream
+     */
+    void stream(InputStream input, OutputStream output, FilterChain filterChain, boolean passthroughUnchanged)
+        throws IOException {
+        try (ComponentReader reader = createComponentReader(Compression.decompress(input), passthroughUnchanged);
+             ComponentWriter writer = createComponentWriter(output)) {
+            filterChain.run(reader, writer);
+        }
+    }
+
+    /**
+     * Merges several ical files into one, passing each component through a filter chain and writing it right away.
+     * The components are merged by start date, see {@link MergingComponentReader}.
+     *
+     * @param inputFilePaths       the paths to the ical files, which may be gzip compressed. Must not be empty. The
+     *                             calendar properties are taken from the first file.
+     * @param output               the stream to write the merged ical file to. Closed afterwards.
+     * @param passthroughUnchanged whether to copy unchanged parts of the inputs verbatim
+     * @throws FileNotFoundException   if an input file cannot be opened for reading
+     * @throws IOException             where an error occurs reading or writing
+     * @throws ColanderParserException where an error occurs parsing data from an input file
+     */
+    void merge(List<String> inputFilePaths, OutputStream output, FilterChain filterChain,
+               boolean passthroughUnchanged) throws IOException {
+        LOG.info("Merging {} calendar files", inputFilePaths.size());
+        try (OutputStream out = output;
+             ComponentReader reader = openReader(inputFilePaths, passthroughUnchanged);
+             ComponentWriter writer = createComponentWriter(out)) {
+            filterChain.run(reader, writer);
+        }
+    }
+
+    /**
+     * Passes each component through a filter chain and writes it to one of several files right away, depending on
+     * its route. The input is read only once. See {@link RoutingComponentWriter} for how components are routed.
+     *
+     * @param reader     the components to filter. Closed afterwards.
+     * @param outputPath the file to write the components to that have no route. Components with a route are written
+     *                   to a file next to it, whose name ends in the route, see {@link #getRoutePath(String, String)}.
+     *                   Files are only created once a component is routed to them.
+     * @param router     returns the route of a component or {@code null} if it has none
+     * @throws IOException                where an error occurs reading or writing
+     * @throws ColanderParserException    where an error occurs parsing data from the reader
+     * @throws FileAlreadyExistsException if an output file exists. Colander is not going to overwrite any files.
+     */
+    void route(ComponentReader reader, String outputPath, FilterChain filterChain,
+               Function<CalendarComponent, String> router) throws IOException {
+        // The writer is closed first, so it's done with the reader's input
+        try (ComponentReader in = reader;
+             ComponentWriter writer = createRoutingComponentWriter(router,
+                 route -> createOutputFile(getRoutePath(outputPath, route)))) {
+            filterChain.run(in, writer);
+        }
+    }
+
+    /**
+     * Opens an ical file for reading one component at a time.
+     *
+     * @param inputFilePath        the path to the ical file, which may be gzip compressed
+     * @param passthroughUnchanged whether to record the raw bytes of each component, so they can be copied verbatim
+     * @throws FileNotFoundException if the file cannot be opened for reading
+     */
+    ComponentReader openReader(String inputFilePath, boolean passthroughUnchanged) throws IOException {
+        return createComponentReader(Compression.decompress(new FileInputStream(inputFilePath)), passthroughUnchanged);
+    }
+
+    /**
+     * Opens several ical files for reading their components merged by start date, see {@link MergingComponentReader}.
+     *
+     * @see #openReader(String, boolean)
+     */
+    ComponentReader openReader(List<String> inputFilePaths, boolean passthroughUnchanged) throws IOException {
+        MergingComponentReader reader = new MergingComponentReader();
+        try {
+            for (String inputFilePath : inputFilePaths) {
+                reader.add(openReader(inputFilePath, passthroughUnchanged));
+            }
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    /**
+     * Creates a new file to write to.
+     *
+     * @param outputPath the file to write to. Must not exist.
+     * @return a stream writing to the file
+     * @throws FileNotFoundException      if the file cannot be opened for writing
+     * @throws FileAlreadyExistsException if the file exists. Colander is not going to overwrite any files.
+     * @throws ColanderParserException    if {@code outputPath} is {@code null}
+     */
+    OutputStream createOutputFile(String outputPath) throws IOException {
+        String actualPath = resolveOutputPath(outputPath, null);
+        LOG.info("Writing output to {}", actualPath);
+        return createOutputStream(actualPath);
+    }
+
+    /**
+     * @param outputPath    the file to write to. When {@code null}, a new filename is generated from
+     *                      {@code inputFilePath}.
+     * @return the file to write to
+     * @throws FileAlreadyExistsException if the file exists. Colander is not going to overwrite any files.
+     * @throws ColanderParserException    if both paths are {@code null}
+     */
+    String resolveOutputPath(String outputPath, String inputFilePath) throws FileAlreadyExistsException {
+        String actualPath = outputPath;
+        if (actualPath == null) {
+            actualPath = generateOutputPath(inputFilePath);
+        }
+        if (new File(actualPath).exists()) {
+            throw new FileAlreadyExistsException(actualPath, null, "File already exists. Not going to overwrite it.");
+        }
+        return actualPath;
+    }
+
+    /**
+     * @return the file to write the components of a route to, e.g. {@code cal-event.ics} for {@code cal.ics} and route
+     * {@code event}. {@code outputPath} itself for the components without route ({@code null}). Characters of the
+     * route that might not be allowed in file names are replaced.
+     */
+    static String getRoutePath(String outputPath, String route) {
+        if (route == null) {
+            return outputPath;
+        }
+        return insertBeforeExtension(outputPath, '-' + route.replaceAll("[^\\w.-]", "_"));
+    }
+
     private String generateOutputPath(String inputFilePath) {
         if (inputFilePath == null) {
             throw new ColanderParserException("Both input and output file paths are null. Can't write result.");
         }
+        return insertBeforeExtension(inputFilePath,
+            '-' + LocalDateTime.now().format(DateTimeFormatter.ofPattern(DATE_TIME_FORMAT_FILE_NAME)));
+    }
 
-        int extensionSeparator = inputFilePath.lastIndexOf('.');
+    private static String insertBeforeExtension(String path, String suffix) {
+        String uncompressedPath = path;
+        if (Compression.isCompressed(path)) {
+            // Keep both extensions, e.g. cal.ics.gz becomes cal-<suffix>.ics.gz
+            uncompressedPath = path.substring(0, path.length() - Compression.GZIP_EXTENSION.length());
+        }
+        int extensionSeparator = uncompressedPath.lastIndexOf('.');
         if (extensionSeparator < 0) {
-            extensionSeparator = inputFilePath.length();
+            extensionSeparator = uncompressedPath.length();
         }
-        return inputFilePath.substring(0, extensionSeparator)
-            + '-'
-            + LocalDateTime.now().format(DateTimeFormatter.ofPattern(DATE_TIME_FORMAT_FILE_NAME))
-            + inputFilePath.substring(extensionSeparator);
+        return uncompressedPath.substring(0, extensionSeparator) + suffix + path.substring(extensionSeparator);
     }
 
     /**
@@ -130,6 +390,11 @@ class ColanderIO {
      */
     CalendarBuilder createCalenderBuilder() { return  new CalendarBuilder(); }
 
+    /**
+     * Visible for testing
+     */
+    CalendarBuilder createCalenderBuilder(CalendarParser parser) { return new CalendarBuilder(parser); }
+
     /**
      * Visible for testing
      */
@@ -141,7 +406,28 @@ class ColanderIO {
     /**
      * Visible for testing
      */
+    ComponentReader createComponentReader(InputStream input, boolean recordSources) {
+        return new ComponentReader(input, recordSources);
+    }
+
+    /**
+     * Visible for testing
+     */
+    ComponentWriter createComponentWriter(OutputStream output) { return new ComponentWriter(output); }
+
+    /**
+     * Visible for testing
+     */
+    ComponentWriter createRoutingComponentWriter(Function<CalendarComponent, String> router,
+                                                 RoutingComponentWriter.OutputFactory outputs) {
+        return new RoutingComponentWriter(router, outputs);
+    }
+
+    /**
+     * @param outputFile the file to write to. If it ends with {@link Compression#GZIP_EXTENSION}, the output is
+     *                   compressed.
+     */
     OutputStream createOutputStream(String outputFile) throws FileNotFoundException {
-        return new FileOutputStream(outputFile);
+        return Compression.compress(new FileOutputStream(outputFile), outputFile);
     }
 }
@@ -0,0 +1,313 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent cache of filter results per calendar component, keyed by the {@link Fingerprint} of the component's raw
+ * content lines. The cache is only valid for one filter configuration: When opened with a different configuration,
+ * it starts empty.
+ * <p>
+ * The cache is a file that starts with a header (magic number and fingerprint of the filter configuration) followed
+ * by records that are appended while filtering. Each record consists of the fingerprint of the component, whether it
+ * was removed or changed and its serialized content after filtering. Only the positions of the records are held in
+ * memory.
+ * <p>
+ * When closing, the cache is compacted if most of its records were not used during this run (e.g. because the
+ * components were removed from the calendar), keeping only the used ones.
+ * <p>
+ * Not thread-safe.
+ */
+class ComponentCache implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ComponentCache.class);
+
+    private static final int MAGIC = 0x43434331;
+    private static final int HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES;
+    private static final byte REMOVED = 1;
+    private static final byte CHANGED = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    /** Position of the record of each fingerprint in {@link #file}. */
+    private final Map<Fingerprint, Long> positions = new HashMap<>();
+    /** Fingerprints read or written during this run. All others are removed on compaction. */
+    private final Set<Fingerprint> used = new HashSet<>();
+    private FileChannel channel;
+    private DataOutputStream appender;
+    private long size;
+    /** Size of the file that is visible to {@link #channel}, i.e. not buffered by {@link #appender}. */
+    private long flushedSize;
+
+    /**
+     * @param file the file to store the cache in. Created, including its parent directories, if it does not exist.
+     */
+    ComponentCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the cache for a filter configuration. Records of other configurations are discarded.
+     *
+     * @param configuration the configuration of the filters, see {@link FilterChain#getConfiguration()}
+     * @throws IOException if the cache can't be read or created
+     */
+    void open(String configuration) throws IOException {
+        Fingerprint configurationFingerprint = Fingerprint.of(configuration);
+        positions.clear();
+        used.clear();
+        size = 0;
+        if (Files.exists(file) && !readIndex(configurationFingerprint)) {
+            LOG.info("Discarding cache {}, because it was created with different filters", file);
+            positions.clear();
+        }
+        if (positions.isEmpty()) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.deleteIfExists(file);
+            try (DataOutputStream header = new DataOutputStream(Files.newOutputStream(file))) {
+                writeHeader(header, configurationFingerprint);
+            }
+            size = HEADER_SIZE;
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Cut off records that were not written completely, e.g. when the last run was killed
+        channel.truncate(size);
+        appender = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true),
+            BUFFER_SIZE));
+        flushedSize = size;
+        LOG.debug("Opened cache {} with {} components", file, positions.size());
+    }
+
+    /**
+     * @return the cached result for a component or {@code null} if not cached
+     * @throws IOException if the cache can't be read
+     */
+    Entry get(Fingerprint fingerprint) throws IOException {
+        Long position = positions.get(fingerprint);
+        if (position == null) {
+            return null;
+        }
+        if (position >= flushedSize) {
+            appender.flush();
+            flushedSize = size;
+        }
+        used.add(fingerprint);
+        return readEntry(position);
+    }
+
+    /**
+     * Stores the result of filtering a component.
+     *
+     * @param component the serialized component after filtering or {@code null} if it was removed
+     * @param changed   whether one of the filters changed the component
+     * @throws IOException if the cache can't be written
+     */
+    void put(Fingerprint fingerprint, String component, boolean changed) throws IOException {
+        if (positions.containsKey(fingerprint)) {
+            return;
+        }
+        byte[] content = component == null ? new byte[0] : component.getBytes(StandardCharsets.UTF_8);
+        positions.put(fingerprint, size);
+        used.add(fingerprint);
+        appender.writeLong(fingerprint.getHigh());
+        appender.writeLong(fingerprint.getLow());
+        appender.writeByte(component == null ? REMOVED : (changed ? CHANGED : 0));
+        appender.writeInt(content.length);
+        appender.write(content);
+        size += recordSize(content.length);
+    }
+
+    /**
+     * Writes pending records and compacts the cache, if less than half of its records were used.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            appender.close();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+        int unused = positions.size() - used.size();
+        if (unused > used.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * @return the number of components in the cache
+     */
+    int size() {
+        return positions.size();
+    }
+
+    /**
+     * Reads the positions of all records.
+     *
+     * @return {@code false} if the cache was created for another configuration or is no cache file
+     */
+    private boolean readIndex(Fingerprint configuration) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file),
+            BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC || input.readLong() != configuration.getHigh()
+                || input.readLong() != configuration.getLow()) {
+                return false;
+            }
+            size = HEADER_SIZE;
+            while (true) {
+                Fingerprint fingerprint = new Fingerprint(input.readLong(), input.readLong());
+                input.readByte();
+                int length = input.readInt();
+                skipFully(input, length);
+                positions.put(fingerprint, size);
+                size += recordSize(length);
+            }
+        } catch (EOFException e) {
+            // Regular end of the file or incomplete last record, which is cut off
+            return size >= HEADER_SIZE;
+        }
+    }
+
+    private Entry readEntry(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(1 + Integer.BYTES);
+        readFully(header, position + 2 * Long.BYTES);
+        byte flags = header.get(0);
+        ByteBuffer content = ByteBuffer.allocate(header.getInt(1));
+        readFully(content, position + 2 * Long.BYTES + header.capacity());
+        return new Entry((flags & REMOVED) != 0 ? null : new String(content.array(), StandardCharsets.UTF_8),
+            (flags & CHANGED) != 0);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of cache " + file);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the cache, keeping only the records used during this run.
+     */
+    private void compact() throws IOException {
+        LOG.debug("Compacting cache {}: Keeping {} of {} components", file, used.size(), positions.size());
+        Path compacted = file.resolveSibling(file.getFileName() + ".compacting");
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                 Files.newOutputStream(compacted), BUFFER_SIZE))) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            source.read(header, 0);
+            output.write(header.array());
+            for (Fingerprint fingerprint : used) {
+                long position = positions.get(fingerprint);
+                ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+                source.read(lengthBuffer, position + 2 * Long.BYTES + 1);
+                ByteBuffer record = ByteBuffer.allocate(recordSize(lengthBuffer.getInt(0)));
+                while (record.hasRemaining()) {
+                    if (source.read(record, position + record.position()) < 0) {
+                        throw new EOFException("Unexpected end of cache " + file);
+                    }
+                }
+                output.write(record.array());
+            }
+        }
+        try {
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream output, Fingerprint configuration) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeLong(configuration.getHigh());
+        output.writeLong(configuration.getLow());
+    }
+
+    private static int recordSize(int contentLength) {
+        return 2 * Long.BYTES + 1 + Integer.BYTES + contentLength;
+    }
+
+    private static void skipFully(InputStream input, int length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                if (input.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Cached result of filtering a component.
+     */
+    static class Entry {
+        private final String component;
+        private final boolean changed;
+
+        Entry(String component, boolean changed) {
+            this.component = component;
+            this.changed = changed;
+        }
+
+        /**
+         * @return the serialized component after filtering or {@code null} if it was removed
+         */
+        String getComponent() { return component; }
+
+        boolean isRemoved() { return component == null; }
+
+        boolean isChanged() { return changed; }
+    }
+}
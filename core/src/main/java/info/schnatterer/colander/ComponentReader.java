@@ -0,0 +1,452 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyList;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Reads an iCal stream one top-level calendar component (event, ToDo, time zone, etc.) at a time, so that only a
+ * single component has to be held in memory.
+ * <p>
+ * The components are cut out of the stream along their raw content lines and then parsed by a {@link CalendarBuilder}
+ * that is shared for the whole stream. That way, time zones defined earlier in the stream are known to later
+ * components.
+ * <p>
+ * Optionally, the reader records the {@link SourceRange raw bytes} of each component, so unchanged components can be
+ * written verbatim. The ranges are contiguous: Blank lines in between components belong to the following component.
+ */
+class ComponentReader implements Closeable {
+    private static final String BEGIN = "BEGIN:";
+    private static final String END = "END:";
+    private static final String CALENDAR = "VCALENDAR";
+    private static final String CRLF = "\r\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final CalendarBuilder builder;
+    private final boolean recordSources;
+    /** Channel of the input if it is a file. Then, source ranges refer to the file instead of holding the bytes. */
+    private final FileChannel channel;
+    /** Raw lines read since the end of the last source range, when recording sources of an input that is no file. */
+    private final ByteArrayOutputStream recording;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition = 0;
+    private int bufferLimit = 0;
+    /** Position in the input after the last raw line read. */
+    private long position = 0;
+    /** Position in the input where the current source range starts. */
+    private long sourceStart = 0;
+
+    /** The next raw line, read ahead in order to find folded lines. */
+    private byte[] nextRawLine;
+    private PropertyList<Property> calendarProperties;
+    /** The first line of the first component, read while looking for the end of the calendar properties. */
+    private ContentLine firstComponentLine;
+    private boolean endOfCalendar = false;
+    private SourceRange headerSource;
+    private SourceRange componentSource;
+    private SourceRange trailerSource;
+
+    ComponentReader(InputStream input) {
+        this(input, false);
+    }
+
+    /**
+     * @param input         the stream to read
+     * @param recordSources whether to record the raw bytes of the calendar's parts, see {@link #getHeaderSource()},
+     *                      {@link #getComponentSource()} and {@link #getTrailerSource()}
+     */
+    ComponentReader(InputStream input, boolean recordSources) {
+        this(input, new CalendarBuilder(), recordSources);
+    }
+
+    ComponentReader(InputStream input, CalendarBuilder builder) {
+        this(input, builder, false);
+    }
+
+    ComponentReader(InputStream input, CalendarBuilder builder, boolean recordSources) {
+        this.input = input;
+        this.builder = builder;
+        this.recordSources = recordSources;
+        this.channel = recordSources && input instanceof FileInputStream ? ((FileInputStream) input).getChannel() : null;
+        this.recording = recordSources && channel == null ? new ByteArrayOutputStream() : null;
+    }
+
+    /**
+     * @return the properties of the calendar (such as version or product ID). Never {@code null}.
+     * @throws IOException             where an error occurs reading data from the stream
+     * @throws ColanderParserException where an error occurs parsing data from the stream
+     */
+    PropertyList<Property> getCalendarProperties() throws IOException {
+        if (calendarProperties == null) {
+            calendarProperties = readCalendarProperties();
+        }
+        return calendarProperties;
+    }
+
+    /**
+     * @return the raw bytes from the beginning of the input up to the first component, i.e. the beginning of the
+     * calendar and its properties. {@code null} if sources are not recorded.
+     * @throws IOException             where an error occurs reading data from the stream
+     * @throws ColanderParserException where an error occurs parsing data from the stream
+     */
+    SourceRange getHeaderSource() throws IOException {
+        getCalendarProperties();
+        return headerSource;
+    }
+
+    /**
+     * @return the raw bytes of the component returned by the last call to {@link #read()}. {@code null} if sources
+     * are not recorded or no component has been read.
+     */
+    SourceRange getComponentSource() {
+        return componentSource;
+    }
+
+    /**
+     * @return the raw bytes from the end of the last component up to the end of the calendar. Only available once
+     * {@link #read()} reached the end of the calendar. {@code null} if sources are not recorded.
+     */
+    SourceRange getTrailerSource() {
+        return trailerSource;
+    }
+
+    /**
+     * Reads the next top-level component of the calendar.
+     *
+     * @return the next component or {@link Optional#empty()} when the end of the calendar is reached.
+     * @throws IOException             where an error occurs reading data from the stream
+     * @throws ColanderParserException where an error occurs parsing data from the stream
+     */
+    Optional<CalendarComponent> read() throws IOException {
+        return readRaw().map(this::parse);
+    }
+
+    /**
+     * Reads the next top-level component of the calendar without parsing it. Use {@link #parse(RawComponent)} to
+     * parse it. Components must be parsed in the order they were read, so that time zones are known to the
+     * components that follow them.
+     *
+     * @return the raw content lines of the next component or {@link Optional#empty()} when the end of the calendar is
+     * reached.
+     * @throws IOException             where an error occurs reading data from the stream
+     * @throws ColanderParserException where an error occurs parsing data from the stream
+     */
+    Optional<RawComponent> readRaw() throws IOException {
+        getCalendarProperties();
+        if (endOfCalendar) {
+            return Optional.empty();
+        }
+        ContentLine line = firstComponentLine != null ? firstComponentLine : readNonEmptyLine();
+        firstComponentLine = null;
+        if (line.isEnd(CALENDAR)) {
+            endOfCalendar = true;
+            componentSource = null;
+            trailerSource = cutSource(position);
+            return Optional.empty();
+        }
+        if (!line.isBegin()) {
+            throw new ColanderParserException("Unexpected calendar property after first component: " + line);
+        }
+        ByteArrayOutputStream component = readComponent(line);
+        componentSource = cutSource(position);
+        return Optional.of(new RawComponent(line.unfold().substring(BEGIN.length()).toUpperCase(Locale.ROOT),
+            component.toByteArray()));
+    }
+
+    /**
+     * Parses a component returned by {@link #readRaw()}.
+     *
+     * @throws ColanderParserException where an error occurs parsing the component
+     */
+    CalendarComponent parse(RawComponent component) {
+        return parse(component.getContent()).getComponents().get(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private PropertyList<Property> readCalendarProperties() throws IOException {
+        ContentLine line = readNonEmptyLine();
+        if (!line.isBegin(CALENDAR)) {
+            throw new ColanderParserException("Expected " + BEGIN + CALENDAR + ", but found: " + line);
+        }
+        ByteArrayOutputStream properties = new ByteArrayOutputStream();
+        long headerEnd = position;
+        line = readNonEmptyLine();
+        while (!line.isBegin() && !line.isEnd(CALENDAR)) {
+            properties.write(line.raw);
+            headerEnd = position;
+            line = readNonEmptyLine();
+        }
+        firstComponentLine = line;
+        headerSource = cutSource(headerEnd);
+        return parse(properties).getProperties();
+    }
+
+    /**
+     * Reads the raw lines of a component, including all of its sub components (such as alarms).
+     */
+    private ByteArrayOutputStream readComponent(ContentLine beginLine) throws IOException {
+        ByteArrayOutputStream component = new ByteArrayOutputStream();
+        component.write(beginLine.raw);
+        int depth = 1;
+        while (depth > 0) {
+            ContentLine line = readNonEmptyLine();
+            if (line.isBegin()) {
+                depth++;
+            } else if (line.isEnd()) {
+                depth--;
+            }
+            component.write(line.raw);
+        }
+        return component;
+    }
+
+    /**
+     * Parses content lines by wrapping them in an otherwise empty calendar.
+     */
+    private Calendar parse(ByteArrayOutputStream contentLines) {
+        return parse(contentLines.toByteArray());
+    }
+
+    private Calendar parse(byte[] contentLines) {
+        String calendar = BEGIN + CALENDAR + CRLF + new String(contentLines, StandardCharsets.UTF_8) + END + CALENDAR + CRLF;
+        try {
+            return builder.build(new StringReader(calendar));
+        } catch (ParserException | IOException e) {
+            throw new ColanderParserException(e);
+        }
+    }
+
+    /**
+     * Ends the current source range.
+     *
+     * @param end position in the input where the range ends, i.e. the next range starts
+     * @return the range from the end of the last one to {@code end} or {@code null} if sources are not recorded
+     */
+    private SourceRange cutSource(long end) {
+        long start = sourceStart;
+        sourceStart = end;
+        if (!recordSources) {
+            return null;
+        }
+        if (channel != null) {
+            return SourceRange.of(channel, start, end - start);
+        }
+        // The recording might already contain lines read ahead, that belong to the next range
+        byte[] recorded = recording.toByteArray();
+        int length = (int) (end - start);
+        recording.reset();
+        recording.write(recorded, length, recorded.length - length);
+        return SourceRange.of(length == recorded.length ? recorded : Arrays.copyOf(recorded, length));
+    }
+
+    private ContentLine readNonEmptyLine() throws IOException {
+        ContentLine line = readLine();
+        while (line.isBlank()) {
+            line = readLine();
+        }
+        return line;
+    }
+
+    /**
+     * Reads a content line, including all of its folded continuation lines.
+     */
+    private ContentLine readLine() throws IOException {
+        byte[] firstLine = readRawLine();
+        if (firstLine == null) {
+            throw new ColanderParserException("Unexpected end of calendar stream");
+        }
+        if (!isContinuation(peekRawLine())) {
+            return new ContentLine(firstLine);
+        }
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        line.write(firstLine);
+        while (isContinuation(peekRawLine())) {
+            line.write(readRawLine());
+        }
+        return new ContentLine(line.toByteArray());
+    }
+
+    private static boolean isContinuation(byte[] rawLine) {
+        return rawLine != null && rawLine.length > 0 && (rawLine[0] == ' ' || rawLine[0] == '\t');
+    }
+
+    private byte[] peekRawLine() throws IOException {
+        if (nextRawLine == null) {
+            nextRawLine = readRawLineFromStream();
+        }
+        return nextRawLine;
+    }
+
+    private byte[] readRawLine() throws IOException {
+        byte[] line = peekRawLine();
+        nextRawLine = null;
+        if (line != null) {
+            position += line.length;
+            if (recording != null) {
+                recording.write(line);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * @return the next line including its line terminator or {@code null} at the end of the stream.
+     */
+    private byte[] readRawLineFromStream() throws IOException {
+        ByteArrayOutputStream line = null;
+        while (true) {
+            if (bufferPosition == bufferLimit && !fillBuffer()) {
+                return line == null ? null : line.toByteArray();
+            }
+            int start = bufferPosition;
+            while (bufferPosition < bufferLimit && buffer[bufferPosition] != '\n') {
+                bufferPosition++;
+            }
+            boolean foundLineEnd = bufferPosition < bufferLimit;
+            if (foundLineEnd) {
+                bufferPosition++;
+            }
+            if (line == null) {
+                if (foundLineEnd) {
+                    return Arrays.copyOfRange(buffer, start, bufferPosition);
+                }
+                line = new ByteArrayOutputStream();
+            }
+            line.write(buffer, start, bufferPosition - start);
+            if (foundLineEnd) {
+                return line.toByteArray();
+            }
+        }
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int read = input.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        bufferPosition = 0;
+        bufferLimit = read;
+        return true;
+    }
+
+    /**
+     * The raw content lines of a top-level component, including its sub components.
+     */
+    static class RawComponent {
+        private final String name;
+        private final byte[] content;
+
+        RawComponent(String name, byte[] content) {
+            this.name = name;
+            this.content = content;
+        }
+
+        /**
+         * @return the name of the component, e.g. {@code VEVENT}
+         */
+        String getName() { return name; }
+
+        /**
+         * @return the content lines, including their line terminators. Blank lines are omitted.
+         */
+        byte[] getContent() { return content; }
+    }
+
+    /**
+     * A raw content line, including its folded continuation lines and line terminators.
+     */
+    private static class ContentLine {
+        private final byte[] raw;
+        private String unfolded;
+
+        ContentLine(byte[] raw) {
+            this.raw = raw;
+        }
+
+        boolean isBlank() {
+            for (byte b : raw) {
+                if (b != '\r' && b != '\n' && b != ' ' && b != '\t') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isBegin() {
+            return startsWith(BEGIN) && unfold().length() > BEGIN.length();
+        }
+
+        boolean isBegin(String componentName) {
+            return startsWith(BEGIN) && unfold().equalsIgnoreCase(BEGIN + componentName);
+        }
+
+        boolean isEnd() {
+            return startsWith(END) && unfold().length() > END.length();
+        }
+
+        boolean isEnd(String componentName) {
+            return startsWith(END) && unfold().equalsIgnoreCase(END + componentName);
+        }
+
+        private boolean startsWith(String prefix) {
+            // Cheap check on the raw bytes first, so most lines are never decoded
+            return raw.length > 0 && Character.toUpperCase(raw[0]) == prefix.charAt(0)
+                && unfold().regionMatches(true, 0, prefix, 0, prefix.length());
+        }
+
+        private String unfold() {
+            if (unfolded == null) {
+                unfolded = new String(raw, StandardCharsets.UTF_8).replaceAll("\r?\n[ \t]", "").trim();
+            }
+            return unfolded;
+        }
+
+        @Override
+        public String toString() {
+            return unfold();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.data.CalendarOutputter;
+import net.fortuna.ical4j.data.FoldingWriter;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyList;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a calendar one component at a time. The result is the same as writing the whole calendar using a
+ * {@link CalendarOutputter}.
+ * <p>
+ * In addition, raw bytes of the input can be written {@link #writeVerbatim(SourceRange) verbatim}. When both input
+ * and output are files, subsequent ranges are transferred at once from channel to channel, so the bytes need not be
+ * copied into memory.
+ */
+class ComponentWriter implements Closeable {
+    private static final String CALENDAR_BEGIN = "BEGIN:" + Calendar.VCALENDAR + "\r\n";
+    private static final String CALENDAR_END = "END:" + Calendar.VCALENDAR + "\r\n";
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream output;
+    /** Channel of the output if it is a file. Then, verbatim ranges are transferred directly into the file. */
+    private final FileChannel outputChannel;
+    private final Writer writer;
+    /**
+     * Whether {@link #writer} might buffer characters that have not been passed to {@link #output} yet. Flushing the
+     * writer only passes them to {@link #output}, without flushing it.
+     */
+    private boolean writerDirty = false;
+    /** Verbatim range that has not been transferred yet, so it can be joined with the following ones. */
+    private SourceRange pendingRange;
+
+    ComponentWriter(OutputStream output) {
+        this.outputChannel = output instanceof FileOutputStream ? ((FileOutputStream) output).getChannel() : null;
+        this.output = new BufferedOutputStream(output);
+        // Flushing the writer must not flush the output: A compressing output would end a block on each flush
+        writer = new FoldingWriter(new BufferedWriter(
+            new OutputStreamWriter(new NonFlushingOutputStream(this.output), StandardCharsets.UTF_8)),
+            FoldingWriter.REDUCED_FOLD_LENGTH);
+    }
+
+    /**
+     * @param component the component to write or {@code null} if it is only known in serialized form
+     * @return the writer to write the component to. This writer, unless components are written to several outputs.
+     */
+    ComponentWriter route(CalendarComponent component) throws IOException {
+        return this;
+    }
+
+    /**
+     * Writes the beginning of the calendar, including its properties. Call once, before writing any component.
+     */
+    void writeStart(PropertyList<Property> calendarProperties) throws IOException {
+        writeText(CALENDAR_BEGIN);
+        writer.write(calendarProperties.toString());
+    }
+
+    void write(CalendarComponent component) throws IOException {
+        write(component.toString());
+    }
+
+    /**
+     * Writes a component that has already been serialized, e.g. by {@link CalendarComponent#toString()}.
+     */
+    void write(String component) throws IOException {
+        writeText(component);
+    }
+
+    /**
+     * Writes raw bytes of the input as they are, e.g. a component that was not changed or the beginning of the
+     * calendar instead of {@link #writeStart(PropertyList)}.
+     */
+    void writeVerbatim(SourceRange range) throws IOException {
+        if (writerDirty) {
+            writer.flush();
+            writerDirty = false;
+        }
+        if (range.getChannel() == null) {
+            transferPendingRange();
+            output.write(range.getBytes());
+        } else if (pendingRange != null && pendingRange.isFollowedBy(range)) {
+            pendingRange = pendingRange.join(range);
+        } else {
+            transferPendingRange();
+            pendingRange = range;
+        }
+    }
+
+    /**
+     * Writes the end of the calendar. Call once, after writing all components.
+     */
+    void writeEnd() throws IOException {
+        writeText(CALENDAR_END);
+    }
+
+    /**
+     * Writes the end of the calendar as raw bytes of the input. Call once instead of {@link #writeEnd()}.
+     */
+    void writeEnd(SourceRange range) throws IOException {
+        writeVerbatim(range);
+        transferPendingRange();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            transferPendingRange();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeText(String text) throws IOException {
+        transferPendingRange();
+        writer.write(text);
+        writerDirty = true;
+    }
+
+    private void transferPendingRange() throws IOException {
+        if (pendingRange == null) {
+            return;
+        }
+        SourceRange range = pendingRange;
+        pendingRange = null;
+        FileChannel source = range.getChannel();
+        long position = range.getPosition();
+        long end = position + range.getLength();
+        if (end > source.size()) {
+            throw new IOException("Input ended before " + range);
+        }
+        if (outputChannel != null) {
+            // The output stream and its channel share the file position, so flush everything written before
+            output.flush();
+            while (position < end) {
+                position += source.transferTo(position, end - position, outputChannel);
+            }
+        } else {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TRANSFER_BUFFER_SIZE, range.getLength()));
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = source.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Input ended before " + range);
+                }
+                output.write(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * Passes all bytes on, but ignores {@link #flush()}. Closing still flushes and closes the underlying stream.
+     */
+    private static class NonFlushingOutputStream extends FilterOutputStream {
+        NonFlushingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            // Only flushed when closed
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Detects compressed input by its magic bytes and compresses output depending on the file name.
+ */
+class Compression {
+    /** Output files ending with this extension are written gzip compressed. */
+    static final String GZIP_EXTENSION = ".gz";
+    private static final byte[] GZIP_MAGIC = { 0x1f, (byte) 0x8b };
+    private static final byte[] ZSTD_MAGIC = { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd };
+    private static final int MAGIC_LENGTH = ZSTD_MAGIC.length;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Compression() {}
+
+    /**
+     * Decompresses a stream on the fly if it is gzip compressed.
+     *
+     * @param input the stream to read. If it is a {@link FileInputStream}, its position is not changed.
+     * @return a stream that decompresses {@code input} or {@code input} itself if it's not compressed, so file
+     * channels can still be used for uncompressed files.
+     * @throws IOException             where an error occurs reading the magic bytes
+     * @throws ColanderParserException if {@code input} is compressed using an unsupported format
+     */
+    static InputStream decompress(InputStream input) throws IOException {
+        InputStream stream = input;
+        byte[] magic;
+        if (input instanceof FileInputStream) {
+            // Positional read, so the uncompressed stream stays as it is
+            ByteBuffer buffer = ByteBuffer.allocate(MAGIC_LENGTH);
+            ((FileInputStream) input).getChannel().read(buffer, ((FileInputStream) input).getChannel().position());
+            magic = buffer.array();
+        } else {
+            PushbackInputStream pushback = new PushbackInputStream(input, MAGIC_LENGTH);
+            magic = new byte[MAGIC_LENGTH];
+            int read = pushback.readNBytes(magic, 0, MAGIC_LENGTH);
+            pushback.unread(magic, 0, read);
+            stream = pushback;
+        }
+
+        if (startsWith(magic, GZIP_MAGIC)) {
+            return new GZIPInputStream(stream, BUFFER_SIZE);
+        }
+        if (startsWith(magic, ZSTD_MAGIC)) {
+            stream.close();
+            throw new ColanderParserException("Input is zstd compressed, which is not supported. Decompress it first "
+                + "or use gzip.");
+        }
+        return stream;
+    }
+
+    /**
+     * Compresses a stream if the file it writes to is named like a compressed file.
+     *
+     * @param output     the stream to write to
+     * @param outputPath the path of the file {@code output} writes to
+     * @return a stream that compresses into {@code output} or {@code output} itself
+     */
+    static OutputStream compress(OutputStream output, String outputPath) {
+        if (isCompressed(outputPath)) {
+            return new ParallelGzipOutputStream(output);
+        }
+        return output;
+    }
+
+    /**
+     * @return {@code true} if output written to {@code path} is compressed
+     */
+    static boolean isCompressed(String path) {
+        return path.toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION);
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
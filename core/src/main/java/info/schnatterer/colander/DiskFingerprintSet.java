@@ -0,0 +1,219 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link FingerprintStore} for more elements than fit into the heap. Uses only a fixed amount of heap, independent of
+ * the number of elements.
+ * <p>
+ * All fingerprints are appended to spill files on local disk, partitioned by their hash. A {@link BloomFilter} in
+ * front of the spill files tells whether a fingerprint is new for sure, which is the case for most elements. Only
+ * when it reports a possible hit, the matching partition is loaded into a {@link FingerprintSet} to check for sure.
+ * The most recently used partitions are kept in memory, as long as they fit the memory budget.
+ * <p>
+ * Returns the same results as {@link FingerprintSet}. Not thread-safe.
+ */
+class DiskFingerprintSet implements FingerprintStore {
+    /** Budget below which the fixed overhead (e.g. for write buffers) gets dominant. */
+    static final long MIN_MEMORY_BUDGET = 8L * 1024 * 1024;
+    static final int PARTITIONS = 256;
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    /** Estimated heap used by an element of a loaded partition, including free slots of the hash table. */
+    private static final int BYTES_PER_LOADED_ELEMENT = 40;
+
+    private final boolean exactComparison;
+    private final BloomFilter bloomFilter;
+    /** Memory budget for partitions loaded into memory. */
+    private final long loadedPartitionsBudget;
+
+    private Path directory;
+    private final DataOutputStream[] writers = new DataOutputStream[PARTITIONS];
+    private final int[] partitionSizes = new int[PARTITIONS];
+    /** Estimated heap used by each partition, when loaded. */
+    private final long[] partitionBytes = new long[PARTITIONS];
+    /** Loaded partitions, least recently used first. */
+    private final Map<Integer, FingerprintSet> loadedPartitions = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedBytes;
+
+    /**
+     * @param exactComparison {@code true} to additionally compare the strings if their fingerprints are equal. Stores
+     *                        the strings on disk as well.
+     * @param memoryBudget    heap memory to use, in bytes. Half of it is used for the bloom filter, the other half for
+     *                        write buffers and partitions loaded into memory.
+     * @throws IllegalArgumentException if {@code memoryBudget} is less than {@link #MIN_MEMORY_BUDGET}
+     */
+    DiskFingerprintSet(boolean exactComparison, long memoryBudget) {
+        if (memoryBudget < MIN_MEMORY_BUDGET) {
+            throw new IllegalArgumentException("Memory budget must be at least " + MIN_MEMORY_BUDGET + " bytes, but was "
+                + memoryBudget);
+        }
+        this.exactComparison = exactComparison;
+        this.bloomFilter = new BloomFilter(memoryBudget / 2);
+        this.loadedPartitionsBudget = memoryBudget / 2 - (long) PARTITIONS * WRITE_BUFFER_SIZE;
+    }
+
+    @Override
+    public boolean add(String string) throws IOException {
+        Fingerprint fingerprint = Fingerprint.of(string);
+        long high = fingerprint.getHigh();
+        long low = fingerprint.getLow();
+        int partition = (int) (low & (PARTITIONS - 1));
+        String storedString = exactComparison ? string : null;
+
+        FingerprintSet loadedPartition = loadedPartitions.get(partition);
+        if (bloomFilter.put(high, low)) {
+            if (loadedPartition != null) {
+                loadedPartition.add(high, low, storedString);
+            }
+        } else {
+            if (loadedPartition == null) {
+                loadedPartition = load(partition);
+            }
+            if (!loadedPartition.add(high, low, storedString)) {
+                return false;
+            }
+        }
+        append(partition, high, low, storedString);
+        return true;
+    }
+
+    private void append(int partition, long high, long low, String string) throws IOException {
+        DataOutputStream writer = writers[partition];
+        if (writer == null) {
+            writer = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partitionFile(partition),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), WRITE_BUFFER_SIZE));
+            writers[partition] = writer;
+        }
+        writer.writeLong(high);
+        writer.writeLong(low);
+        long bytes = BYTES_PER_LOADED_ELEMENT;
+        if (exactComparison) {
+            byte[] stringBytes = string.getBytes(StandardCharsets.UTF_8);
+            writer.writeInt(stringBytes.length);
+            writer.write(stringBytes);
+            // Estimated size of the string object when read again
+            bytes += 40 + stringBytes.length;
+        }
+        partitionSizes[partition]++;
+        partitionBytes[partition] += bytes;
+        if (loadedPartitions.containsKey(partition)) {
+            loadedBytes += bytes;
+            evictLeastRecentlyUsed(partition);
+        }
+    }
+
+    private FingerprintSet load(int partition) throws IOException {
+        loadedBytes += partitionBytes[partition];
+        evictLeastRecentlyUsed(partition);
+
+        FingerprintSet loadedPartition = new FingerprintSet(exactComparison);
+        if (partitionSizes[partition] > 0) {
+            writers[partition].flush();
+            try (DataInputStream reader = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(partitionFile(partition))))) {
+                for (int i = 0; i < partitionSizes[partition]; i++) {
+                    long high = reader.readLong();
+                    long low = reader.readLong();
+                    String string = null;
+                    if (exactComparison) {
+                        byte[] stringBytes = new byte[reader.readInt()];
+                        reader.readFully(stringBytes);
+                        string = new String(stringBytes, StandardCharsets.UTF_8);
+                    }
+                    loadedPartition.add(high, low, string);
+                }
+            }
+        }
+        loadedPartitions.put(partition, loadedPartition);
+        return loadedPartition;
+    }
+
+    /**
+     * Removes loaded partitions from memory, until the budget is met. Never removes {@code partitionToKeep}.
+     */
+    private void evictLeastRecentlyUsed(int partitionToKeep) {
+        Iterator<Integer> partitions = loadedPartitions.keySet().iterator();
+        while (loadedBytes > loadedPartitionsBudget && partitions.hasNext()) {
+            int partition = partitions.next();
+            if (partition != partitionToKeep) {
+                partitions.remove();
+                loadedBytes -= partitionBytes[partition];
+            }
+        }
+    }
+
+    private Path partitionFile(int partition) throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("colander-duplicates");
+        }
+        return directory.resolve("partition-" + partition);
+    }
+
+    /**
+     * Deletes the spill files.
+     */
+    @Override
+    public void close() throws IOException {
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            if (writers[partition] != null) {
+                writers[partition].close();
+                writers[partition] = null;
+                Files.deleteIfExists(partitionFile(partition));
+            }
+        }
+        if (directory != null) {
+            Files.deleteIfExists(directory);
+            directory = null;
+        }
+        bloomFilter.clear();
+        Arrays.fill(partitionSizes, 0);
+        Arrays.fill(partitionBytes, 0);
+        loadedPartitions.clear();
+        loadedBytes = 0;
+    }
+
+    /**
+     * Visible for testing.
+     */
+    Path getDirectory() { return directory; }
+
+    /**
+     * Visible for testing.
+     */
+    int getLoadedPartitionCount() { return loadedPartitions.size(); }
+}
@@ -24,18 +24,42 @@
 package info.schnatterer.colander;
 
 import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
 import net.fortuna.ical4j.model.ComponentList;
 import net.fortuna.ical4j.model.component.CalendarComponent;
 import net.fortuna.ical4j.util.CompatibilityHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
 /**
  * Brings together multiple {@link ColanderFilter}s and applies them to all events of an iCal file.
+ * <p>
+ * When created with a {@link ForkJoinPool}, the components are filtered in parallel, while maintaining their order.
+ * Subsequent {@link ColanderFilter#isStateless() stateless} filters are applied to different components concurrently.
+ * Stateful filters are applied to one component after another in the original order, so they return the same results
+ * as when run sequentially.
+ * <p>
+ * When created with an adaptive sample size, the filters are reordered once that many components have been filtered,
+ * see {@link FilterOrder}. When filtering in parallel, this happens after the batch that contains the sample.
+ * <p>
+ * Each component is only passed to the filters that apply to its type, see {@link FilterDispatch}.
+ * <p>
+ * When created with a {@link ComponentCache}, the results of the filters are cached per component when streaming.
+ * Components found in the cache are neither parsed nor filtered. This requires all filters to be stateless and to
+ * declare their configuration.
  */
 class FilterChain {
     static {
@@ -43,11 +67,107 @@ class FilterChain {
     }
 
     private static final Logger LOG = LoggerFactory.getLogger(FilterChain.class);
+    /** Number of components read at once when streaming in parallel. */
+    static final int PARALLEL_BATCH_SIZE = 8192;
+    /** Number of components below which a parallel task is not split any further. */
+    private static final int PARALLEL_THRESHOLD = 64;
 
     private final List<ColanderFilter> filters;
+    private final ForkJoinPool pool;
+    private final List<FilterStatistics> statistics;
+    private final int adaptiveSampleSize;
+    private final ComponentCache cache;
+    /** The filters in the order they are applied. */
+    private List<FilterStatistics> order;
+    private FilterDispatch dispatch;
+    private List<Stage> stages;
+    private boolean reordered = false;
 
     public FilterChain(List<ColanderFilter> filters) {
+        this(filters, null);
+    }
+
+    /**
+     * @param filters the filters to apply to each component
+     * @param pool    pool to filter the components in parallel. When {@code null}, filters are applied sequentially.
+     */
+    FilterChain(List<ColanderFilter> filters, ForkJoinPool pool) {
+        this(filters, pool, 0);
+    }
+
+    /**
+     * @param filters            the filters to apply to each component
+     * @param pool               pool to filter the components in parallel. When {@code null}, filters are applied
+     *                           sequentially.
+     * @param adaptiveSampleSize number of components after which the filters are reordered, based on their cost and
+     *                           the number of components they removed. {@code 0} to keep the order of {@code filters}.
+     */
+    FilterChain(List<ColanderFilter> filters, ForkJoinPool pool, int adaptiveSampleSize) {
+        this(filters, pool, adaptiveSampleSize, null);
+    }
+
+    /**
+     * @param filters            the filters to apply to each component
+     * @param pool               pool to filter the components in parallel. When {@code null}, filters are applied
+     *                           sequentially.
+     * @param adaptiveSampleSize number of components after which the filters are reordered, based on their cost and
+     *                           the number of components they removed. {@code 0} to keep the order of {@code filters}.
+     * @param cache              cache for the results of the filters per component, used when streaming. {@code null}
+     *                           for no caching.
+     */
+    FilterChain(List<ColanderFilter> filters, ForkJoinPool pool, int adaptiveSampleSize, ComponentCache cache) {
         this.filters = filters;
+        this.cache = cache;
+        this.pool = pool;
+        this.adaptiveSampleSize = adaptiveSampleSize;
+        this.statistics = filters.stream().map(FilterStatistics::new).collect(Collectors.toList());
+        this.order = statistics;
+        this.dispatch = new FilterDispatch(order);
+        this.stages = createStages(order);
+    }
+
+    /**
+     * @return statistics for each filter of the chain, in the order they were passed to the chain. Updated while
+     * running.
+     */
+    List<FilterStatistics> getStatistics() {
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * @return the names of all properties read or changed by the filters of this chain (see
+     * {@link ColanderFilter#getAccessedProperties()}) or {@link Optional#empty()} if at least one filter does not
+     * declare them.
+     */
+    Optional<Set<String>> getAccessedProperties() {
+        Set<String> accessedProperties = new HashSet<>();
+        for (ColanderFilter filter : filters) {
+            Optional<Set<String>> filterProperties = filter.getAccessedProperties();
+            if (!filterProperties.isPresent()) {
+                LOG.debug("Filter {} does not declare the properties it accesses", filter);
+                return Optional.empty();
+            }
+            accessedProperties.addAll(filterProperties.get());
+        }
+        return Optional.of(accessedProperties);
+    }
+
+    /**
+     * @return a canonical description of the configuration of all filters of this chain (see
+     * {@link ColanderFilter#getConfiguration()}) or {@link Optional#empty()} if at least one filter does not declare
+     * it.
+     */
+    Optional<String> getConfiguration() {
+        List<String> configurations = new ArrayList<>(filters.size());
+        for (ColanderFilter filter : filters) {
+            Optional<String> configuration = filter.getConfiguration();
+            if (!configuration.isPresent()) {
+                LOG.debug("Filter {} does not declare its configuration", filter);
+                return Optional.empty();
+            }
+            configurations.add(configuration.get());
+        }
+        return Optional.of(FilterConfiguration.of("FilterChain", configurations));
     }
 
     /**
@@ -58,45 +178,457 @@ class FilterChain {
      */
     Calendar run(Calendar cal) {
         LOG.info("Start processing. Please wait...");
-        AtomicInteger changedComponents = new AtomicInteger(0);
+        ComponentCounter counter = new ComponentCounter();
         // Create empty output calendar with same properties
         Calendar calOut = new Calendar(cal.getProperties(), new ComponentList<>());
 
-        ComponentList<CalendarComponent> allComponents = cal.getComponents();
-        for (CalendarComponent component : allComponents) {
-            int originalHashCode = component.hashCode();
-            filterEvent(component).ifPresent( filteredComponent -> {
-                    if (originalHashCode != filteredComponent.hashCode()) {
-                        changedComponents.incrementAndGet();
-                    }
-                    calOut.getComponents().add(filteredComponent);
-                });
+        try {
+            if (pool == null) {
+                for (CalendarComponent component : cal.getComponents()) {
+                    filterAndCount(component, counter).ifPresent(calOut.getComponents()::add);
+                    adaptOrder(counter);
+                }
+            } else {
+                calOut.getComponents().addAll(filterInParallel(cal.getComponents(), counter));
+            }
+        } finally {
+            closeFilters();
         }
-        LOG.info("Number of components processed: {}", allComponents.size());
-        LOG.info("Number of components in new calendar: {}", calOut.getComponents().size());
-        LOG.info("Number of components deleted: {}", allComponents.size() - calOut.getComponents().size());
-        LOG.info("Number of components changed during filtering: {}", changedComponents.get());
+        counter.log();
 
         return calOut;
     }
 
+    /**
+     * Applies all filters of the chain to each component read from {@code reader} and writes the result to
+     * {@code writer} right away. That is, only one component is held in memory at a time. When running in parallel,
+     * at most {@link #PARALLEL_BATCH_SIZE} components are held in memory.
+     * <p>
+     * If the reader records the raw bytes of the input, the calendar's properties and all components that were not
+     * changed by any filter are written verbatim. Only changed components are serialized again.
+     * <p>
+     * If the chain has a cache, components found in the cache are written from the cache and all others are added to
+     * it.
+     *
+     * @param reader source of the components to filter
+     * @param writer destination of the filtered components
+     * @throws IOException             where an error occurs reading or writing
+     * @throws ColanderParserException where an error occurs parsing data from the reader
+     */
+    void run(ComponentReader reader, ComponentWriter writer) throws IOException {
+        LOG.info("Start processing. Please wait...");
+        ComponentCounter counter = new ComponentCounter();
+        SourceRange headerSource = reader.getHeaderSource();
+        if (headerSource != null) {
+            writer.writeVerbatim(headerSource);
+        } else {
+            writer.writeStart(reader.getCalendarProperties());
+        }
+
+        ComponentCache openCache = openCache();
+        try {
+            if (pool == null) {
+                Optional<ComponentReader.RawComponent> component = reader.readRaw();
+                while (component.isPresent()) {
+                    FilteredComponent filteredComponent = read(component.get(), reader, openCache);
+                    filter(filteredComponent, dispatch);
+                    counter.count(filteredComponent);
+                    adaptOrder(counter);
+                    write(filteredComponent, writer, openCache);
+                    component = reader.readRaw();
+                }
+            } else {
+                FilteredComponent[] batch = readBatch(reader, openCache);
+                while (batch.length > 0) {
+                    filterInParallel(batch, counter);
+                    adaptOrder(counter);
+                    for (FilteredComponent filteredComponent : batch) {
+                        write(filteredComponent, writer, openCache);
+                    }
+                    batch = readBatch(reader, openCache);
+                }
+            }
+        } finally {
+            closeFilters();
+            if (openCache != null) {
+                openCache.close();
+            }
+        }
+        SourceRange trailerSource = reader.getTrailerSource();
+        if (trailerSource != null) {
+            writer.writeEnd(trailerSource);
+        } else {
+            writer.writeEnd();
+        }
+        counter.log();
+    }
+
+    /**
+     * @return the cache, opened for the configuration of this chain, or {@code null} if the chain has no cache or
+     * the filters can't be cached
+     */
+    private ComponentCache openCache() throws IOException {
+        if (cache == null) {
+            return null;
+        }
+        if (!filters.stream().allMatch(ColanderFilter::isStateless)) {
+            LOG.info("Not using cache, because results of stateful filters depend on other components");
+            return null;
+        }
+        Optional<String> configuration = getConfiguration();
+        if (!configuration.isPresent()) {
+            LOG.info("Not using cache, because not all filters declare their configuration");
+            return null;
+        }
+        cache.open(configuration.get());
+        return cache;
+    }
+
+    /**
+     * Looks up a component in the cache or parses it, if not cached.
+     *
+     * @param cache the cache or {@code null} if not caching
+     */
+    private static FilteredComponent read(ComponentReader.RawComponent component, ComponentReader reader,
+                                          ComponentCache cache) throws IOException {
+        // Time zones are always parsed, so they are known to the components that follow them
+        if (cache == null || Component.VTIMEZONE.equals(component.getName())) {
+            return new FilteredComponent(reader.parse(component), reader.getComponentSource());
+        }
+        Fingerprint fingerprint = Fingerprint.of(component.getContent());
+        ComponentCache.Entry entry = cache.get(fingerprint);
+        if (entry != null) {
+            return new FilteredComponent(entry, reader.getComponentSource());
+        }
+        FilteredComponent filteredComponent =
+            new FilteredComponent(reader.parse(component), reader.getComponentSource());
+        filteredComponent.fingerprint = fingerprint;
+        return filteredComponent;
+    }
+
+    /**
+     * Writes a component unless it was removed. Unchanged components are written verbatim, if their source is known.
+     * Components that have a fingerprint but were not found in the cache are added to the cache.
+     */
+    private static void write(FilteredComponent filteredComponent, ComponentWriter writer, ComponentCache cache)
+        throws IOException {
+        if (filteredComponent.fingerprint != null) {
+            filteredComponent.serialized =
+                filteredComponent.component == null ? null : filteredComponent.component.toString();
+            cache.put(filteredComponent.fingerprint, filteredComponent.serialized, filteredComponent.isChanged());
+        }
+        if (!filteredComponent.isWritten()) {
+            return;
+        }
+        ComponentWriter target = writer.route(filteredComponent.component);
+        if (filteredComponent.source != null && !filteredComponent.changed) {
+            target.writeVerbatim(filteredComponent.source);
+        } else if (filteredComponent.serialized != null) {
+            target.write(filteredComponent.serialized);
+        } else {
+            target.write(filteredComponent.component);
+        }
+    }
+
+    /**
+     * Closes all {@link Closeable} filters, so they release their resources and reset their state.
+     */
+    private void closeFilters() {
+        for (ColanderFilter filter : filters) {
+            if (filter instanceof Closeable) {
+                try {
+                    ((Closeable) filter).close();
+                } catch (IOException e) {
+                    LOG.warn("Unable to close filter {}", filter, e);
+                }
+            }
+        }
+    }
+
+    private Optional<CalendarComponent> filterAndCount(CalendarComponent component, ComponentCounter counter) {
+        FilteredComponent filteredComponent = new FilteredComponent(component, null);
+        filter(filteredComponent, dispatch);
+        counter.count(filteredComponent);
+        return Optional.ofNullable(filteredComponent.component);
+    }
+
+    /**
+     * Applies the filters stage by stage to all components, in batches of {@link #PARALLEL_BATCH_SIZE}. Stateless
+     * stages are run in parallel, stateful ones sequentially.
+     *
+     * @return the filtered components in their original order
+     */
+    private List<CalendarComponent> filterInParallel(List<CalendarComponent> components, ComponentCounter counter) {
+        List<CalendarComponent> result = new ArrayList<>(components.size());
+        for (int from = 0; from < components.size(); from += PARALLEL_BATCH_SIZE) {
+            FilteredComponent[] filtered =
+                new FilteredComponent[Math.min(PARALLEL_BATCH_SIZE, components.size() - from)];
+            for (int i = 0; i < filtered.length; i++) {
+                filtered[i] = new FilteredComponent(components.get(from + i), null);
+            }
+            filterInParallel(filtered, counter);
+            adaptOrder(counter);
+
+            for (FilteredComponent filteredComponent : filtered) {
+                if (filteredComponent.component != null) {
+                    result.add(filteredComponent.component);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void filterInParallel(FilteredComponent[] filtered, ComponentCounter counter) {
+        for (Stage stage : stages) {
+            if (stage.stateless) {
+                forEachInParallel(filtered.length, i -> filter(filtered[i], stage.filters));
+            } else {
+                for (FilteredComponent filteredComponent : filtered) {
+                    filter(filteredComponent, stage.filters);
+                }
+            }
+        }
+
+        for (FilteredComponent filteredComponent : filtered) {
+            counter.count(filteredComponent);
+        }
+    }
+
+    /**
+     * Reorders the filters once the sample size is reached.
+     */
+    private void adaptOrder(ComponentCounter counter) {
+        if (reordered || adaptiveSampleSize <= 0 || counter.processed < adaptiveSampleSize) {
+            return;
+        }
+        order = FilterOrder.optimize(order);
+        dispatch = new FilterDispatch(order);
+        stages = createStages(order);
+        reordered = true;
+        LOG.info("Reordered filters after {} components: {}", counter.processed,
+            order.stream().map(FilterStatistics::getFilter).collect(Collectors.toList()));
+    }
+
+    private void forEachInParallel(int size, IntConsumer action) {
+        pool.invoke(new ForEachTask(0, size, action));
+    }
+
+    private static FilteredComponent[] readBatch(ComponentReader reader, ComponentCache cache) throws IOException {
+        List<FilteredComponent> batch = new ArrayList<>(PARALLEL_BATCH_SIZE);
+        Optional<ComponentReader.RawComponent> component = reader.readRaw();
+        while (component.isPresent()) {
+            batch.add(read(component.get(), reader, cache));
+            if (batch.size() == PARALLEL_BATCH_SIZE) {
+                break;
+            }
+            component = reader.readRaw();
+        }
+        return batch.toArray(new FilteredComponent[0]);
+    }
+
     /**
      * Visible for testing
      * @param component
      */
     @SuppressWarnings("WeakerAccess")
     protected Optional<CalendarComponent> filterEvent(CalendarComponent component) {
-        CalendarComponent filteredComponent = component;
-        for (ColanderFilter filter : filters) {
-            Optional<CalendarComponent> returnedEvent = filter.apply(filteredComponent);
-            if (returnedEvent.isPresent()) {
-                filteredComponent = returnedEvent.get();
-            } else {
+        FilteredComponent filteredComponent = new FilteredComponent(component, null);
+        filter(filteredComponent, dispatch);
+        return Optional.ofNullable(filteredComponent.component);
+    }
+
+    /**
+     * Applies the filters to a component and records statistics for each filter. Afterwards, the component is
+     * {@code null} if it was removed by one of the filters or was {@code null} in the first place.
+     * <p>
+     * Only the filters that apply to the type of the component are applied. If a filter returns a component of
+     * another type, the following filters are determined for the new type.
+     * <p>
+     * {@link VerdictColanderFilter}s report whether they changed the component. Whether other filters changed the
+     * component in place is detected by comparing the hash codes of the component before the first and after the last
+     * of them, once per component. An in-place change is counted for the last of these filters that returned the
+     * component.
+     */
+    private static void filter(FilteredComponent filteredComponent, FilterDispatch filters) {
+        if (filteredComponent.component == null) {
+            return;
+        }
+        CalendarComponent hashedComponent = null;
+        int hashCodeBefore = 0;
+        // The filter that might have changed the component in place
+        FilterStatistics changedInPlaceBy = null;
+        Class<?> componentType = filteredComponent.component.getClass();
+        int[] indices = filters.getIndices(componentType);
+        for (int position = 0; position < indices.length; position++) {
+            CalendarComponent component = filteredComponent.component;
+            FilterStatistics filterStatistics = filters.getFilters().get(indices[position]);
+            ColanderFilter filter = filterStatistics.getFilter();
+            boolean reportsChanges = filter instanceof VerdictColanderFilter;
+            if (!reportsChanges && hashedComponent == null && !filteredComponent.changed) {
+                hashedComponent = component;
+                hashCodeBefore = component.hashCode();
+            }
+
+            long start = System.nanoTime();
+            FilterVerdict verdict = reportsChanges ? ((VerdictColanderFilter) filter).applyWithVerdict(component) :
+                FilterVerdict.unchangedOrRemoved(filter.apply(component));
+            long nanos = System.nanoTime() - start;
+
+            if (verdict.isRemoved()) {
+                filterStatistics.record(nanos, true, false);
                 LOG.debug("Filter {} deleted originalEvent {}. Properties={}", filter, component.getName(),
                     component.getProperties());
-                return Optional.empty();
+                filteredComponent.component = null;
+                return;
+            }
+            CalendarComponent returnedComponent = verdict.getComponent().orElse(null);
+            boolean changed = reportsChanges ? verdict.isChanged() : returnedComponent != component;
+            filterStatistics.record(nanos, false, changed);
+            filteredComponent.component = returnedComponent;
+            filteredComponent.changed |= changed;
+            if (!reportsChanges && !changed) {
+                changedInPlaceBy = filterStatistics;
+            }
+
+            if (returnedComponent == null) {
+                return;
+            }
+            if (returnedComponent.getClass() != componentType) {
+                componentType = returnedComponent.getClass();
+                int current = indices[position];
+                indices = filters.getIndices(componentType);
+                position = filters.getPositionAfter(componentType, current) - 1;
             }
         }
-        return Optional.of(filteredComponent);
+        if (hashedComponent != null && !filteredComponent.changed
+            && filteredComponent.component.hashCode() != hashCodeBefore) {
+            filteredComponent.changed = true;
+            changedInPlaceBy.recordChanged();
+        }
+    }
+
+    /**
+     * Splits the filters into stages of subsequent stateless filters and single stateful filters.
+     */
+    private static List<Stage> createStages(List<FilterStatistics> filters) {
+        List<Stage> stages = new ArrayList<>();
+        List<FilterStatistics> statelessFilters = new ArrayList<>();
+        for (FilterStatistics filter : filters) {
+            if (filter.getFilter().isStateless()) {
+                statelessFilters.add(filter);
+            } else {
+                if (!statelessFilters.isEmpty()) {
+                    stages.add(new Stage(new FilterDispatch(statelessFilters), true));
+                    statelessFilters = new ArrayList<>();
+                }
+                stages.add(new Stage(new FilterDispatch(Collections.singletonList(filter)), false));
+            }
+        }
+        if (!statelessFilters.isEmpty()) {
+            stages.add(new Stage(new FilterDispatch(statelessFilters), true));
+        }
+        return stages;
+    }
+
+    /**
+     * Subsequent filters that are either all stateless or a single stateful one.
+     */
+    private static class Stage {
+        private final FilterDispatch filters;
+        private final boolean stateless;
+
+        Stage(FilterDispatch filters, boolean stateless) {
+            this.filters = filters;
+            this.stateless = stateless;
+        }
+    }
+
+    /**
+     * Performs an action for each index of a range, splitting the range among the threads of a fork-join pool.
+     */
+    private static class ForEachTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final transient IntConsumer action;
+
+        ForEachTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ForEachTask(from, middle, action), new ForEachTask(middle, to, action));
+            }
+        }
+    }
+
+    /**
+     * A component while being filtered, along with whether one of the filters changed it. Components read from the
+     * cache are not filtered: They have no {@link #component}, only its {@link #serialized} form.
+     */
+    private static class FilteredComponent {
+        private CalendarComponent component;
+        /** Raw bytes of the component in the input or {@code null} if unknown. */
+        private final SourceRange source;
+        private boolean changed = false;
+        /** The component after filtering, when read from the cache or about to be added to it. */
+        private String serialized;
+        /** Fingerprint of the raw component, when it is to be added to the cache. Otherwise {@code null}. */
+        private Fingerprint fingerprint;
+
+        FilteredComponent(CalendarComponent component, SourceRange source) {
+            this.component = component;
+            this.source = source;
+        }
+
+        FilteredComponent(ComponentCache.Entry cached, SourceRange source) {
+            this.component = null;
+            this.source = source;
+            this.serialized = cached.getComponent();
+            this.changed = cached.isChanged();
+        }
+
+        boolean isWritten() {
+            return component != null || serialized != null;
+        }
+
+        boolean isChanged() {
+            return isWritten() && changed;
+        }
+    }
+
+    /**
+     * Counts components while processing, in order to log a summary at the end.
+     */
+    private class ComponentCounter {
+        private int processed = 0;
+        private int written = 0;
+        private int changed = 0;
+
+        void count(FilteredComponent filteredComponent) {
+            processed++;
+            if (filteredComponent.isWritten()) {
+                written++;
+                if (filteredComponent.isChanged()) {
+                    changed++;
+                }
+            }
+        }
+
+        void log() {
+            LOG.info("Number of components processed: {}", processed);
+            LOG.info("Number of components in new calendar: {}", written);
+            LOG.info("Number of components deleted: {}", processed - written);
+            LOG.info("Number of components changed during filtering: {}", changed);
+            statistics.forEach(filterStatistics -> LOG.debug("{}", filterStatistics));
+        }
     }
 }
@@ -0,0 +1,65 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.util.Collection;
+
+/**
+ * Creates canonical descriptions of filter configurations, see {@link ColanderFilter#getConfiguration()}.
+ */
+final class FilterConfiguration {
+
+    private FilterConfiguration() {}
+
+    /**
+     * Creates a description that is unambiguous, no matter which characters the values contain. Each value is prefixed
+     * with its length and collections with their size.
+     *
+     * @param filterName name of the filter
+     * @param values     configuration values of the filter. Collections are described element by element,
+     *                   {@code null} values are allowed.
+     * @return a description such as {@code RemoveFilter(+7:SUMMARY+3:foo)}
+     */
+    static String of(String filterName, Object... values) {
+        StringBuilder configuration = new StringBuilder(filterName).append('(');
+        for (Object value : values) {
+            append(configuration, value);
+        }
+        return configuration.append(')').toString();
+    }
+
+    private static void append(StringBuilder configuration, Object value) {
+        if (value == null) {
+            configuration.append('-');
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            configuration.append('[').append(collection.size()).append(':');
+            collection.forEach(element -> append(configuration, element));
+            configuration.append(']');
+        } else {
+            String string = value.toString();
+            configuration.append('+').append(string.length()).append(':').append(string);
+        }
+    }
+}
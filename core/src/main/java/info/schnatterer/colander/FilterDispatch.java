@@ -0,0 +1,117 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dispatch table that determines which filters apply to a component, based on the component types the filters
+ * declare (see {@link ColanderFilter#getComponentTypes()}). This way, a component only visits the filters that apply
+ * to it. For example, a time zone is not passed to filters that only apply to events.
+ * <p>
+ * The filters that apply to a component type are determined once, when the first component of the type is
+ * dispatched. Thread-safe.
+ */
+class FilterDispatch {
+    private static final int[] NONE = new int[0];
+
+    private final List<FilterStatistics> filters;
+    /** The types declared by each filter, {@code null} if a filter applies to all types. */
+    private final List<Set<Class<? extends CalendarComponent>>> componentTypes;
+    private final Map<Class<?>, int[]> indices = new ConcurrentHashMap<>();
+
+    /**
+     * @param filters the filters in the order they are applied
+     */
+    FilterDispatch(List<FilterStatistics> filters) {
+        this.filters = filters;
+        this.componentTypes = new ArrayList<>(filters.size());
+        for (FilterStatistics filter : filters) {
+            Optional<Set<Class<? extends CalendarComponent>>> types = filter.getFilter().getComponentTypes();
+            componentTypes.add(types.orElse(null));
+        }
+    }
+
+    /**
+     * @return the filters in the order they are applied
+     */
+    List<FilterStatistics> getFilters() {
+        return filters;
+    }
+
+    /**
+     * @param componentType the type of a component
+     * @return the indices of the filters (see {@link #getFilters()}) that apply to the type, in ascending order
+     */
+    int[] getIndices(Class<?> componentType) {
+        return indices.computeIfAbsent(componentType, this::findIndices);
+    }
+
+    /**
+     * @param componentType the type of a component
+     * @param after         index of a filter
+     * @return the position of the first filter after {@code after} within {@link #getIndices(Class)}, or its length if
+     * none follows
+     */
+    int getPositionAfter(Class<?> componentType, int after) {
+        int[] typeIndices = getIndices(componentType);
+        int position = 0;
+        while (position < typeIndices.length && typeIndices[position] <= after) {
+            position++;
+        }
+        return position;
+    }
+
+    private int[] findIndices(Class<?> componentType) {
+        List<Integer> found = new ArrayList<>(filters.size());
+        for (int i = 0; i < filters.size(); i++) {
+            if (appliesTo(componentTypes.get(i), componentType)) {
+                found.add(i);
+            }
+        }
+        if (found.isEmpty()) {
+            return NONE;
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean appliesTo(Set<Class<? extends CalendarComponent>> filterTypes, Class<?> componentType) {
+        if (filterTypes == null) {
+            return true;
+        }
+        for (Class<? extends CalendarComponent> filterType : filterTypes) {
+            if (filterType.isAssignableFrom(componentType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
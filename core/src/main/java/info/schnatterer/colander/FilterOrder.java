@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reorders filters based on the statistics recorded while filtering, so that cheap filters that remove many components
+ * are applied first. That way, fewer components reach the expensive filters.
+ * <p>
+ * Only filters whose order does not influence the result are reordered:
+ * <ul>
+ *     <li>Stateful filters (see {@link ColanderFilter#isStateless()}) and filters that don't declare the properties
+ *     they access (see {@link ColanderFilter#getAccessedProperties()}) are never moved. The other filters are not
+ *     moved across them.</li>
+ *     <li>Filters that access the same property keep their relative order. For example, a filter that replaces in
+ *     the summary is always applied before a filter that removes based on the summary, if it was added before.</li>
+ * </ul>
+ */
+class FilterOrder {
+    private FilterOrder() {}
+
+    /**
+     * @param filters the filters in the order they were applied so far, along with their statistics
+     * @return the same filters, in the order they should be applied from now on
+     */
+    static List<FilterStatistics> optimize(List<FilterStatistics> filters) {
+        List<FilterStatistics> ordered = new ArrayList<>(filters.size());
+        int segmentStart = 0;
+        for (int i = 0; i <= filters.size(); i++) {
+            if (i == filters.size() || isBarrier(filters.get(i))) {
+                ordered.addAll(optimizeSegment(filters.subList(segmentStart, i)));
+                if (i < filters.size()) {
+                    ordered.add(filters.get(i));
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Expected cost per removed component. The lower, the earlier the filter should be applied. Filters that did not
+     * remove anything yet are ranked last.
+     */
+    static double rank(FilterStatistics filter) {
+        if (filter.getRemoved() == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // (nanos / invocations) / (removed / invocations)
+        return (double) filter.getNanos() / filter.getRemoved();
+    }
+
+    private static boolean isBarrier(FilterStatistics filter) {
+        return !filter.getFilter().isStateless() || !filter.getFilter().getAccessedProperties().isPresent();
+    }
+
+    /**
+     * Repeatedly picks the filter with the lowest rank, among those that don't depend on any filter not picked yet.
+     * Filters of the same rank keep their order.
+     */
+    private static List<FilterStatistics> optimizeSegment(List<FilterStatistics> segment) {
+        List<FilterStatistics> remaining = new ArrayList<>(segment);
+        List<FilterStatistics> ordered = new ArrayList<>(segment.size());
+        while (!remaining.isEmpty()) {
+            int best = 0;
+            for (int i = 1; i < remaining.size(); i++) {
+                if (rank(remaining.get(i)) < rank(remaining.get(best)) && !dependsOnPrevious(remaining, i)) {
+                    best = i;
+                }
+            }
+            ordered.add(remaining.remove(best));
+        }
+        return ordered;
+    }
+
+    private static boolean dependsOnPrevious(List<FilterStatistics> filters, int index) {
+        Set<String> properties = getAccessedProperties(filters.get(index));
+        for (int i = 0; i < index; i++) {
+            if (!Collections.disjoint(properties, getAccessedProperties(filters.get(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> getAccessedProperties(FilterStatistics filter) {
+        return filter.getFilter().getAccessedProperties().orElse(Collections.emptySet()).stream()
+            .map(property -> property.toUpperCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+    }
+}
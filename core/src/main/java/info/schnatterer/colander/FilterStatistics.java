@@ -0,0 +1,110 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a single {@link ColanderFilter} within a rinse: How often it was applied, how many components it
+ * removed and changed and how much time it took. Helps finding expensive filters.
+ * <p>
+ * Thread-safe, as filters might be applied concurrently.
+ */
+public class FilterStatistics {
+    private final ColanderFilter filter;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    FilterStatistics(ColanderFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Records a single invocation of the filter.
+     *
+     * @param invocationNanos time the invocation took in nanoseconds
+     * @param componentRemoved {@code true} if the filter removed the component
+     * @param componentChanged {@code true} if the filter changed the component
+     */
+    void record(long invocationNanos, boolean componentRemoved, boolean componentChanged) {
+        invocations.increment();
+        nanos.add(invocationNanos);
+        if (componentRemoved) {
+            removed.increment();
+        }
+        if (componentChanged) {
+            changed.increment();
+        }
+    }
+
+    /**
+     * Records that the filter changed a component in place, after its invocation was recorded.
+     */
+    void recordChanged() {
+        changed.increment();
+    }
+
+    /**
+     * @return the filter the statistics refer to. Note that subsequent filters of the same kind might have been merged
+     * into one filter (see {@link Colander.ColanderBuilder#createFilterChain()}).
+     */
+    public ColanderFilter getFilter() { return filter; }
+
+    /**
+     * @return the number of components the filter was applied to
+     */
+    public long getInvocations() { return invocations.sum(); }
+
+    /**
+     * @return the number of components the filter removed
+     */
+    public long getRemoved() { return removed.sum(); }
+
+    /**
+     * @return the number of components the filter changed. For filters that don't report changes (see
+     * {@link VerdictColanderFilter}), changes in place are detected once per component. When several such filters
+     * are applied to a component, an in-place change is counted only for the last one.
+     */
+    public long getChanged() { return changed.sum(); }
+
+    /**
+     * @return the cumulative time spent in the filter, in nanoseconds. When filtering in parallel, this is the sum of
+     * all threads.
+     */
+    public long getNanos() { return nanos.sum(); }
+
+    @Override
+    public String toString() {
+        return "FilterStatistics{" +
+            "filter=" + filter +
+            ", invocations=" + getInvocations() +
+            ", removed=" + getRemoved() +
+            ", changed=" + getChanged() +
+            ", millis=" + TimeUnit.NANOSECONDS.toMillis(getNanos()) +
+            '}';
+    }
+}
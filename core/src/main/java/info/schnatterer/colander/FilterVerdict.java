@@ -0,0 +1,97 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.util.Optional;
+
+/**
+ * Result of applying a {@link VerdictColanderFilter} to a calendar component: The component was either kept unchanged,
+ * changed or removed.
+ */
+public final class FilterVerdict {
+    private static final FilterVerdict REMOVED = new FilterVerdict(null, false);
+
+    private final CalendarComponent component;
+    private final boolean changed;
+
+    private FilterVerdict(CalendarComponent component, boolean changed) {
+        this.component = component;
+        this.changed = changed;
+    }
+
+    /**
+     * @param component the component to be passed to the next filter, not changed by the filter
+     */
+    public static FilterVerdict unchanged(CalendarComponent component) {
+        return new FilterVerdict(component, false);
+    }
+
+    /**
+     * @param component the component to be passed to the next filter, changed by the filter
+     */
+    public static FilterVerdict changed(CalendarComponent component) {
+        return new FilterVerdict(component, true);
+    }
+
+    /**
+     * @return verdict for a component that is to be removed
+     */
+    public static FilterVerdict removed() {
+        return REMOVED;
+    }
+
+    /**
+     * Convenience for filters that never change components, but only remove them.
+     *
+     * @param component the component to be passed to the next filter or {@link Optional#empty()} if the component is
+     *                  to be removed.
+     */
+    public static FilterVerdict unchangedOrRemoved(Optional<CalendarComponent> component) {
+        return component.map(FilterVerdict::unchanged).orElse(REMOVED);
+    }
+
+    /**
+     * @return the component to be passed to the next filter or {@link Optional#empty()} if the component is to be
+     * removed.
+     */
+    public Optional<CalendarComponent> getComponent() {
+        return Optional.ofNullable(component);
+    }
+
+    /**
+     * @return {@code true} if the component is to be removed
+     */
+    public boolean isRemoved() {
+        return component == null;
+    }
+
+    /**
+     * @return {@code true} if the filter changed the component
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+}
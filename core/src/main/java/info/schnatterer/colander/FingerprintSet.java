@@ -0,0 +1,131 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+/**
+ * Set of strings that only stores the {@link Fingerprint}s of the strings in an open addressing hash table of primitive
+ * {@code long}s. This results in about 20 to 40 bytes per element, independent of the length of the strings.
+ * <p>
+ * Different strings with the same fingerprint are considered equal. While this is extremely unlikely for 128 bit
+ * fingerprints, it can be ruled out by using exact comparison. This stores the strings additionally and only uses
+ * fingerprints to find them.
+ * <p>
+ * Not thread-safe.
+ */
+class FingerprintSet implements FingerprintStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final boolean exactComparison;
+    /** Two {@code long}s per slot: high and low part of the fingerprint. Both zero means the slot is empty. */
+    private long[] table;
+    /** Only used for exact comparison, one string per slot. */
+    private String[] strings;
+    private int capacity;
+    private int size;
+
+    /**
+     * @param exactComparison {@code true} to additionally compare the strings if their fingerprints are equal.
+     */
+    FingerprintSet(boolean exactComparison) {
+        this.exactComparison = exactComparison;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public boolean add(String string) {
+        Fingerprint fingerprint = Fingerprint.of(string);
+        return add(fingerprint.getHigh(), fingerprint.getLow(), string);
+    }
+
+    /**
+     * Visible for testing.
+     */
+    boolean add(long high, long low, String string) {
+        if (high == 0 && low == 0) {
+            // Reserved for empty slots
+            low = 1;
+        }
+        int mask = capacity - 1;
+        int slot = (int) high & mask;
+        while (!isEmpty(slot)) {
+            if (table[2 * slot] == high && table[2 * slot + 1] == low
+                && (!exactComparison || strings[slot].equals(string))) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        set(slot, high, low, string);
+        size++;
+        // Keep the load factor below 3/4 to keep probing sequences short
+        if (4L * size > 3L * capacity) {
+            grow();
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        allocate(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    int size() { return size; }
+
+    private boolean isEmpty(int slot) {
+        return table[2 * slot] == 0 && table[2 * slot + 1] == 0;
+    }
+
+    private void set(int slot, long high, long low, String string) {
+        table[2 * slot] = high;
+        table[2 * slot + 1] = low;
+        if (exactComparison) {
+            strings[slot] = string;
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        table = new long[2 * newCapacity];
+        strings = exactComparison ? new String[newCapacity] : null;
+    }
+
+    private void grow() {
+        long[] oldTable = table;
+        String[] oldStrings = strings;
+        int oldCapacity = capacity;
+        allocate(2 * oldCapacity);
+        int mask = capacity - 1;
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            long high = oldTable[2 * oldSlot];
+            long low = oldTable[2 * oldSlot + 1];
+            if (high != 0 || low != 0) {
+                int slot = (int) high & mask;
+                while (!isEmpty(slot)) {
+                    slot = (slot + 1) & mask;
+                }
+                set(slot, high, low, exactComparison ? oldStrings[oldSlot] : null);
+            }
+        }
+    }
+}
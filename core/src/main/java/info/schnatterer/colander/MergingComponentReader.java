@@ -0,0 +1,315 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyList;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * Reads the components of several calendars as if they were a single calendar, using a k-way merge by start date
+ * ({@code DTSTART}). Only the next component of each calendar is held in memory.
+ * <p>
+ * If each calendar is sorted by start date, so is the result. Components without start date (such as time zones) are
+ * returned as soon as they are read. Calendars define their time zones before the other components, so all time zones
+ * are returned first. Time zones with the same {@code TZID} in several calendars are returned only once: The
+ * definition of the first calendar is used. A warning is logged if another calendar defines the time zone differently.
+ * <p>
+ * The calendar properties and the raw bytes of the beginning and the end of the calendar are taken from the first
+ * calendar.
+ */
+class MergingComponentReader extends ComponentReader {
+    private static final Logger LOG = LoggerFactory.getLogger(MergingComponentReader.class);
+
+    /** Start of components that have no start date, so they are returned right away. */
+    static final long NO_START = Long.MIN_VALUE;
+    private static final String DTSTART = Property.DTSTART;
+    private static final String TZID = Property.TZID;
+    private static final String TZID_PARAMETER = ";TZID=";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final List<ComponentReader> readers = new ArrayList<>();
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparingLong((Head head) -> head.start)
+        .thenComparingInt(head -> head.readerIndex)
+        .thenComparingLong(head -> head.sequence));
+    /** Fingerprints of the raw content of the time zones returned so far, by {@code TZID}. */
+    private final Map<String, Fingerprint> timeZones = new HashMap<>();
+    private boolean started = false;
+    private long sequence = 0;
+    /** The reader of the component returned by the last call to {@link #readRaw()}. */
+    private Head current;
+
+    MergingComponentReader() {
+        // Nothing is read by this reader itself, only by the readers that are added
+        super(InputStream.nullInputStream());
+    }
+
+    /**
+     * Adds a calendar to merge. Must be called before reading.
+     *
+     * @param reader reads the calendar. Closed along with this reader.
+     */
+    void add(ComponentReader reader) {
+        if (started) {
+            throw new IllegalStateException("Can't add calendars after reading started");
+        }
+        readers.add(reader);
+    }
+
+    /**
+     * @return the properties of the first calendar
+     */
+    @Override
+    PropertyList<Property> getCalendarProperties() throws IOException {
+        return readers.get(0).getCalendarProperties();
+    }
+
+    /**
+     * @return the raw bytes of the beginning of the first calendar. {@code null} if sources are not recorded.
+     */
+    @Override
+    SourceRange getHeaderSource() throws IOException {
+        return readers.get(0).getHeaderSource();
+    }
+
+    @Override
+    SourceRange getComponentSource() {
+        return current == null ? null : current.source;
+    }
+
+    /**
+     * @return the raw bytes of the end of the first calendar. {@code null} if sources are not recorded.
+     */
+    @Override
+    SourceRange getTrailerSource() {
+        return readers.get(0).getTrailerSource();
+    }
+
+    @Override
+    Optional<RawComponent> readRaw() throws IOException {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < readers.size(); i++) {
+                readHead(i);
+            }
+        } else if (current != null) {
+            // Read ahead only now, so that the last component was parsed before the next one of the same calendar
+            readHead(current.readerIndex);
+        }
+
+        current = heads.poll();
+        while (current != null && isDuplicateTimeZone(current.component)) {
+            // Parse anyway, so the time zone is known to the other components of its calendar
+            readers.get(current.readerIndex).parse(current.component);
+            readHead(current.readerIndex);
+            current = heads.poll();
+        }
+        return current == null ? Optional.empty() : Optional.of(current.component);
+    }
+
+    /**
+     * Parses a component returned by {@link #readRaw()} with the reader of its calendar, so that the time zones of
+     * that calendar are known. Must be called before reading the next component.
+     */
+    @Override
+    CalendarComponent parse(RawComponent component) {
+        return readers.get(current.readerIndex).parse(component);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (ComponentReader reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private void readHead(int readerIndex) throws IOException {
+        ComponentReader reader = readers.get(readerIndex);
+        Optional<RawComponent> component = reader.readRaw();
+        if (component.isPresent()) {
+            heads.add(new Head(component.get(), reader.getComponentSource(), readerIndex, getStart(component.get()),
+                sequence++));
+        }
+    }
+
+    private boolean isDuplicateTimeZone(RawComponent component) {
+        if (!Component.VTIMEZONE.equals(component.getName())) {
+            return false;
+        }
+        String line = findProperty(component, TZID);
+        int valueSeparator = line == null ? -1 : indexOfValueSeparator(line);
+        if (valueSeparator < 0) {
+            // Invalid without TZID, so it can't be referenced anyway
+            return false;
+        }
+        String tzid = line.substring(valueSeparator + 1).trim();
+        Fingerprint fingerprint = Fingerprint.of(component.getContent());
+        Fingerprint first = timeZones.putIfAbsent(tzid, fingerprint);
+        if (first != null && !first.equals(fingerprint)) {
+            LOG.warn("Time zone {} is defined differently in several calendars. Using the definition of the first "
+                + "calendar that defines it", tzid);
+        }
+        return first != null;
+    }
+
+    /**
+     * Determines the start of a component from its raw {@code DTSTART} property, without parsing the component.
+     * Dates start at midnight. Floating times and time zones that are no IANA time zone IDs are treated as UTC.
+     *
+     * @return the start in seconds since the epoch or {@link #NO_START} if the component has no start date or it
+     * can't be read
+     */
+    static long getStart(RawComponent component) {
+        String dtStart = findProperty(component, DTSTART);
+        return dtStart == null ? NO_START : getStart(dtStart);
+    }
+
+    /**
+     * @return the first line (unfolded) of the property {@code name} of the component itself, not of its sub
+     * components (such as alarms), or {@code null} if the component has no such property
+     */
+    private static String findProperty(RawComponent component, String name) {
+        String content = new String(component.getContent(), StandardCharsets.UTF_8).replaceAll("\r?\n[ \t]", "");
+        int depth = 0;
+        for (String line : content.split("\r?\n")) {
+            if (line.regionMatches(true, 0, "BEGIN:", 0, 6)) {
+                depth++;
+            } else if (line.regionMatches(true, 0, "END:", 0, 4)) {
+                depth--;
+            } else if (depth == 1 && line.regionMatches(true, 0, name, 0, name.length())
+                && line.length() > name.length()
+                && (line.charAt(name.length()) == ':' || line.charAt(name.length()) == ';')) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private static long getStart(String dtStart) {
+        int valueSeparator = indexOfValueSeparator(dtStart);
+        if (valueSeparator < 0) {
+            return NO_START;
+        }
+        String parameters = dtStart.substring(DTSTART.length(), valueSeparator);
+        String value = dtStart.substring(valueSeparator + 1).trim();
+        try {
+            if (value.length() == 8) {
+                return LocalDate.parse(value, DateTimeFormatter.BASIC_ISO_DATE).atStartOfDay()
+                    .toEpochSecond(ZoneOffset.UTC);
+            }
+            LocalDateTime dateTime = LocalDateTime.parse(value.substring(0, Math.min(15, value.length())), DATE_TIME);
+            if (value.endsWith("Z")) {
+                return dateTime.toEpochSecond(ZoneOffset.UTC);
+            }
+            return dateTime.atZone(getZone(parameters)).toEpochSecond();
+        } catch (DateTimeException e) {
+            return NO_START;
+        }
+    }
+
+    /**
+     * @return the index of the colon that separates name and parameters from the value, skipping quoted parameter
+     * values
+     */
+    private static int indexOfValueSeparator(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ZoneId getZone(String parameters) {
+        int tzidStart = parameters.toUpperCase(Locale.ROOT).indexOf(TZID_PARAMETER);
+        if (tzidStart < 0) {
+            return ZoneOffset.UTC;
+        }
+        int tzidEnd = parameters.indexOf(';', tzidStart + TZID_PARAMETER.length());
+        String tzid = parameters.substring(tzidStart + TZID_PARAMETER.length(),
+            tzidEnd < 0 ? parameters.length() : tzidEnd).replace("\"", "");
+        try {
+            return ZoneId.of(tzid);
+        } catch (DateTimeException e) {
+            return ZoneOffset.UTC;
+        }
+    }
+
+    /**
+     * The next component of a calendar.
+     */
+    private static class Head {
+        private final RawComponent component;
+        private final SourceRange source;
+        private final int readerIndex;
+        private final long start;
+        /** Keeps the order of components with the same start within a calendar. */
+        private final long sequence;
+
+        Head(RawComponent component, SourceRange source, int readerIndex, long start, long sequence) {
+            this.component = component;
+            this.source = source;
+            this.readerIndex = readerIndex;
+            this.start = start;
+            this.sequence = sequence;
+        }
+    }
+}
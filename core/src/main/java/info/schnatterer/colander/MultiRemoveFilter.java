@@ -0,0 +1,150 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies multiple {@link RemoveFilter}s on the same {@link Property} at once: The property value is scanned only once
+ * for all terms using an {@link AhoCorasick} automaton. The result is the same as applying the {@link RemoveFilter}s
+ * one after another.
+ */
+class MultiRemoveFilter implements VerdictColanderFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(MultiRemoveFilter.class);
+
+    private final String propertyName;
+    private final List<RemoveFilter> rules;
+    private final AhoCorasick automaton;
+
+    /**
+     * @param propertyName the event property to search
+     * @param rules        the remove rules to apply. All of them must refer to {@code propertyName}.
+     */
+    MultiRemoveFilter(String propertyName, List<RemoveFilter> rules) {
+        this.propertyName = propertyName;
+        this.rules = rules;
+        this.automaton = new AhoCorasick(rules.stream()
+            .map(RemoveFilter::getPropertyContainsString)
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Merges {@link RemoveFilter}s on the same property into one {@link MultiRemoveFilter}. Only filters within a
+     * sequence of subsequent {@link RemoveFilter}s are merged, as filters in between might change the properties.
+     * Within such a sequence the order does not matter, as a component is removed if any of them matches.
+     *
+     * @param filters the filters to merge
+     * @return a new list containing the merged filters
+     */
+    static List<ColanderFilter> merge(List<ColanderFilter> filters) {
+        List<ColanderFilter> merged = new ArrayList<>();
+        Map<String, List<RemoveFilter>> rulesByProperty = new LinkedHashMap<>();
+        for (ColanderFilter filter : filters) {
+            if (filter instanceof RemoveFilter) {
+                RemoveFilter removeFilter = (RemoveFilter) filter;
+                rulesByProperty.computeIfAbsent(removeFilter.getPropertyName(), key -> new ArrayList<>())
+                    .add(removeFilter);
+            } else {
+                addMerged(rulesByProperty, merged);
+                merged.add(filter);
+            }
+        }
+        addMerged(rulesByProperty, merged);
+        return merged;
+    }
+
+    private static void addMerged(Map<String, List<RemoveFilter>> rulesByProperty, List<ColanderFilter> merged) {
+        rulesByProperty.forEach((propertyName, rules) -> {
+            if (rules.size() == 1) {
+                merged.add(rules.get(0));
+            } else {
+                merged.add(new MultiRemoveFilter(propertyName, rules));
+            }
+        });
+        rulesByProperty.clear();
+    }
+
+    @Override
+    public FilterVerdict applyWithVerdict(CalendarComponent component) {
+        Property property = component.getProperty(propertyName);
+        if (property == null || property.getValue() == null) {
+            return FilterVerdict.unchanged(component);
+        }
+        Optional<String> matchingTerm = findMatch(property.getValue());
+        if (matchingTerm.isPresent()) {
+            LOG.debug("Removing component {}, because property {} contains \"{}\"", component.getName(),
+                propertyName, matchingTerm.get());
+            return FilterVerdict.removed();
+        }
+        return FilterVerdict.unchanged(component);
+    }
+
+    /**
+     * @param value the property value to search
+     * @return the term that matches {@code value}, i.e. the term that would cause the component to be removed. Empty if
+     * no term matches.
+     */
+    Optional<String> findMatch(String value) {
+        return automaton.find(value);
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Optional<Set<String>> getAccessedProperties() {
+        return Optional.of(Collections.singleton(propertyName));
+    }
+
+    List<RemoveFilter> getRules() { return rules; }
+
+    String getPropertyName() { return propertyName; }
+
+    @Override
+    public String toString() {
+        return "MultiRemoveFilter{" +
+            "propertyName='" + propertyName + '\'' +
+            ", terms=" + automaton.getTerms() +
+            '}';
+    }
+
+    @Override
+    public Optional<String> getConfiguration() {
+        return Optional.of(FilterConfiguration.of("MultiRemoveFilter", propertyName, automaton.getTerms()));
+    }
+}
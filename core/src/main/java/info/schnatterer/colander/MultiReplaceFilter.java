@@ -0,0 +1,146 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies multiple {@link ReplaceFilter}s on the same {@link Property} at once: The property is looked up once, all
+ * precompiled rules are applied to its value in sequence and the value is set once. The result is the same as applying
+ * the {@link ReplaceFilter}s one after another.
+ */
+class MultiReplaceFilter implements VerdictColanderFilter {
+    private final String propertyName;
+    private final List<ReplaceFilter> rules;
+
+    /**
+     * @param propertyName the event property to replace
+     * @param rules        the replace rules to apply in sequence. All of them must refer to {@code propertyName}.
+     */
+    MultiReplaceFilter(String propertyName, List<ReplaceFilter> rules) {
+        this.propertyName = propertyName;
+        this.rules = rules;
+    }
+
+    /**
+     * Merges subsequent {@link ReplaceFilter}s on the same property into one {@link MultiReplaceFilter}. Only
+     * subsequent filters are merged, so the order in which filters are applied is maintained.
+     *
+     * @param filters the filters to merge
+     * @return a new list containing the merged filters
+     */
+    static List<ColanderFilter> merge(List<ColanderFilter> filters) {
+        List<ColanderFilter> merged = new ArrayList<>();
+        List<ReplaceFilter> rules = new ArrayList<>();
+        for (ColanderFilter filter : filters) {
+            if (!rules.isEmpty() && !isReplaceFilterOn(filter, rules.get(0).getPropertyName())) {
+                merged.add(create(rules));
+                rules = new ArrayList<>();
+            }
+            if (filter instanceof ReplaceFilter) {
+                rules.add((ReplaceFilter) filter);
+            } else {
+                merged.add(filter);
+            }
+        }
+        if (!rules.isEmpty()) {
+            merged.add(create(rules));
+        }
+        return merged;
+    }
+
+    private static boolean isReplaceFilterOn(ColanderFilter filter, String propertyName) {
+        return filter instanceof ReplaceFilter && ((ReplaceFilter) filter).getPropertyName().equals(propertyName);
+    }
+
+    private static ColanderFilter create(List<ReplaceFilter> rules) {
+        if (rules.size() == 1) {
+            return rules.get(0);
+        }
+        return new MultiReplaceFilter(rules.get(0).getPropertyName(), rules);
+    }
+
+    @Override
+    public FilterVerdict applyWithVerdict(CalendarComponent component) {
+        Property property = component.getProperty(propertyName);
+        if (property == null || property.getValue() == null) {
+            return FilterVerdict.unchanged(component);
+        }
+        String value = property.getValue();
+        String replacedValue = value;
+        for (ReplaceFilter rule : rules) {
+            replacedValue = rule.replaceAll(replacedValue);
+        }
+        // Don't set unchanged values, as setting might involve parsing
+        if (replacedValue.equals(value)) {
+            return FilterVerdict.unchanged(component);
+        }
+        try {
+            property.setValue(replacedValue);
+        } catch (IOException | URISyntaxException | ParseException e) {
+            throw new ColanderParserException(e);
+        }
+        return FilterVerdict.changed(component);
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Optional<Set<String>> getAccessedProperties() {
+        return Optional.of(Collections.singleton(propertyName));
+    }
+
+    List<ReplaceFilter> getRules() { return rules; }
+
+    String getPropertyName() { return propertyName; }
+
+    @Override
+    public String toString() {
+        return "MultiReplaceFilter{" +
+            "propertyName='" + propertyName + '\'' +
+            ", rules=" + rules +
+            '}';
+    }
+
+    @Override
+    public Optional<String> getConfiguration() {
+        List<String> ruleConfigurations =
+            rules.stream().map(rule -> rule.getConfiguration().orElse(null)).collect(Collectors.toList());
+        return Optional.of(FilterConfiguration.of("MultiReplaceFilter", propertyName, ruleConfigurations));
+    }
+}
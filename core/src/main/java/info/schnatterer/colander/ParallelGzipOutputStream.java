@@ -0,0 +1,219 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes gzip compressed data, compressing blocks of the data in parallel.
+ * <p>
+ * The data is split into blocks that are deflated independently, each using the end of the previous block as
+ * dictionary, so the compression ratio is almost the same as with {@link java.util.zip.GZIPOutputStream}. Each block
+ * but the last ends with a sync flush, so the compressed blocks can just be concatenated. The result is a single gzip
+ * member that can be read by any gzip implementation.
+ */
+class ParallelGzipOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int DEFLATE_BUFFER_SIZE = 16 * 1024;
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b, // Magic
+        Deflater.DEFLATED, // Compression method
+        0, // Flags
+        0, 0, 0, 0, // Modification time: None
+        0, // Extra flags
+        (byte) 0xff // Operating system: Unknown
+    };
+
+    private final OutputStream output;
+    private final Executor executor;
+    private final int blockSize;
+    /** Blocks being compressed, in the order they have to be written. */
+    private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private final int maxPending;
+    private final CRC32 crc = new CRC32();
+    private long size = 0;
+    private byte[] block;
+    private int blockLength = 0;
+    /** The end of the previous block. */
+    private byte[] dictionary;
+    private boolean headerWritten = false;
+    private boolean closed = false;
+
+    /**
+     * Compresses on the {@link ForkJoinPool#commonPool()}.
+     */
+    ParallelGzipOutputStream(OutputStream output) {
+        this(output, ForkJoinPool.commonPool(), BLOCK_SIZE, ForkJoinPool.getCommonPoolParallelism() * 2);
+    }
+
+    /**
+     * @param executor   compresses the blocks
+     * @param blockSize  number of uncompressed bytes per block
+     * @param maxPending number of blocks that are compressed concurrently. Further writes block until the oldest block
+     *                   is written. Limits memory use.
+     */
+    ParallelGzipOutputStream(OutputStream output, Executor executor, int blockSize, int maxPending) {
+        this.output = output;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxPending = Math.max(1, maxPending);
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        int written = 0;
+        while (written < length) {
+            int chunk = Math.min(length - written, blockSize - blockLength);
+            System.arraycopy(bytes, offset + written, block, blockLength, chunk);
+            blockLength += chunk;
+            written += chunk;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Compresses the data written so far and writes it to the underlying stream. Calling this often reduces the
+     * compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (blockLength > 0) {
+            submitBlock(false);
+        }
+        while (!pending.isEmpty()) {
+            writeNextBlock();
+        }
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try (OutputStream out = output) {
+            submitBlock(true);
+            while (!pending.isEmpty()) {
+                writeNextBlock();
+            }
+            writeTrailer();
+        } finally {
+            closed = true;
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        if (!headerWritten) {
+            output.write(HEADER);
+            headerWritten = true;
+        }
+        byte[] data = block;
+        int length = blockLength;
+        byte[] blockDictionary = dictionary;
+        crc.update(data, 0, length);
+        size += length;
+        pending.add(CompletableFuture.supplyAsync(() -> deflate(data, length, blockDictionary, last), executor));
+
+        dictionary = length > 0 ? Arrays.copyOfRange(data, Math.max(0, length - DICTIONARY_SIZE), length) : dictionary;
+        block = new byte[blockSize];
+        blockLength = 0;
+        while (pending.size() > maxPending) {
+            writeNextBlock();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        try {
+            output.write(pending.remove().join());
+        } catch (CompletionException e) {
+            throw new IOException("Compressing output failed", e.getCause());
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        writeIntLittleEndian(crc.getValue());
+        // Modulo 2^32, as defined by RFC 1952
+        writeIntLittleEndian(size);
+    }
+
+    private void writeIntLittleEndian(long value) throws IOException {
+        output.write(new byte[] { (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24) });
+    }
+
+    private static byte[] deflate(byte[] data, int length, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + DEFLATE_BUFFER_SIZE);
+            byte[] buffer = new byte[DEFLATE_BUFFER_SIZE];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // The output is complete once the buffer is not filled up
+                int deflated;
+                do {
+                    deflated = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, deflated);
+                } while (deflated == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
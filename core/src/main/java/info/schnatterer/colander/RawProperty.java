@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.ParameterList;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyFactoryImpl;
+
+import java.net.URISyntaxException;
+
+/**
+ * A property that was not parsed into its typed ical4j class (such as {@code DtStart}), but is kept as it was read.
+ * Its value is neither parsed nor unescaped, so it is written back exactly as it was read.
+ * <p>
+ * Created when parsing lazily, for all properties that no filter accesses. See
+ * {@link ColanderFilter#getAccessedProperties()}.
+ */
+final class RawProperty extends Property {
+    private static final long serialVersionUID = 1L;
+
+    private String value;
+
+    RawProperty(String name, ParameterList parameters, String value) {
+        super(name, parameters, PropertyFactoryImpl.getInstance());
+        this.value = value;
+    }
+
+    /**
+     * @return the value as it was read, i.e. still escaped
+     */
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Not parsed, so nothing to validate.
+     */
+    @Override
+    public void validate() {
+        // Nothing to validate
+    }
+
+    /**
+     * Copies the property without parsing it.
+     */
+    @Override
+    public Property copy() throws URISyntaxException {
+        return new RawProperty(getName(), new ParameterList(getParameters(), false), value);
+    }
+}
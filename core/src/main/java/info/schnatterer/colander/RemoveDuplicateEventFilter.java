@@ -23,88 +23,140 @@
  */
 package info.schnatterer.colander;
 
+import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.CalendarComponent;
 import net.fortuna.ical4j.model.component.VEvent;
-import net.fortuna.ical4j.model.property.Description;
-import net.fortuna.ical4j.model.property.DtEnd;
-import net.fortuna.ical4j.model.property.DtStart;
-import net.fortuna.ical4j.model.property.Summary;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 
 /**
  * Remove event when summary, description, start date or end date are the same in another event.
+ * <p>
+ * Only a {@link Fingerprint} of these properties is kept per event, so memory usage is a few dozen bytes per event.
+ * Different events with the same fingerprint are extremely unlikely, but can be ruled out using exact comparison,
+ * which additionally keeps the compared properties as string.
+ * <p>
+ * For more events than fit into the heap, the fingerprints can be stored on disk, using only a fixed amount of heap.
+ * The results are the same as when storing them in memory.
  */
-public class RemoveDuplicateEventFilter extends TypedColanderFilter<VEvent>{
+public class RemoveDuplicateEventFilter extends TypedColanderFilter<VEvent>
+    implements VerdictColanderFilter, Closeable {
 
-    private Set<VEvent> filteredEvents = new HashSet<>();
+    private final FingerprintStore filteredEvents;
+
+    public RemoveDuplicateEventFilter() {
+        this(false);
+    }
+
+    /**
+     * @param exactComparison {@code true} to compare the properties of events with the same fingerprint.
+     */
+    public RemoveDuplicateEventFilter(boolean exactComparison) {
+        this(new FingerprintSet(exactComparison));
+    }
+
+    /**
+     * Creates a filter that stores the events seen so far on disk.
+     *
+     * @param exactComparison {@code true} to compare the properties of events with the same fingerprint.
+     * @param memoryBudget    heap memory to use, in bytes. Must be at least 8 MB.
+     * @throws IllegalArgumentException if {@code memoryBudget} is too small
+     */
+    public RemoveDuplicateEventFilter(boolean exactComparison, long memoryBudget) {
+        this(new DiskFingerprintSet(exactComparison, memoryBudget));
+    }
+
+    /**
+     * Visible for testing.
+     */
+    RemoveDuplicateEventFilter(FingerprintStore filteredEvents) {
+        super(VEvent.class);
+        this.filteredEvents = filteredEvents;
+    }
 
     @Override
     public Optional<CalendarComponent> applyTyped(VEvent event) {
-        ComparisonVEvent comparisonVEvent = new ComparisonVEvent(event);
-
-        if (filteredEvents.contains(comparisonVEvent)) {
-            return Optional.empty();
-        } else {
-            filteredEvents.add(comparisonVEvent);
+        boolean added;
+        try {
+            added = filteredEvents.add(comparisonKey(event));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (added) {
             return Optional.of(event);
+        } else {
+            return Optional.empty();
         }
     }
 
+    /**
+     * Only removes events, never changes them.
+     */
+    @Override
+    public FilterVerdict applyWithVerdict(CalendarComponent component) {
+        return FilterVerdict.unchangedOrRemoved(apply(component));
+    }
 
     /**
-     * Class that specifies the attributes of a {@link VEvent} that are compared when looking for "duplicates".
+     * Forgets all events seen so far and deletes any files written.
      */
-    private static class ComparisonVEvent extends VEvent {
-        private Summary summary;
-        private Description description;
-        private DtStart startDate;
-        private DtEnd endDate;
+    @Override
+    public void close() throws IOException {
+        filteredEvents.close();
+    }
 
-        ComparisonVEvent(VEvent eventToCompare) {
-            this.summary = eventToCompare.getSummary();
-            this.description = eventToCompare.getDescription();
-            this.startDate = eventToCompare.getStartDate();
-            this.endDate = eventToCompare.getEndDate();
-        }
+    /**
+     * Includes {@code DURATION}, because {@link VEvent#getEndDate()} derives the end date from it if there is no
+     * {@code DTEND}.
+     */
+    @Override
+    public Optional<Set<String>> getAccessedProperties() {
+        return Optional.of(new HashSet<>(Arrays.asList(Property.SUMMARY, Property.DESCRIPTION, Property.DTSTART,
+            Property.DTEND, Property.DURATION)));
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-            if (!super.equals(o)) {
-                return false;
-            }
+    @Override
+    public Optional<String> getConfiguration() {
+        // Storing fingerprints on disk or comparing exactly returns the same results
+        return Optional.of(FilterConfiguration.of("RemoveDuplicateEventFilter"));
+    }
 
-            ComparisonVEvent that = (ComparisonVEvent) o;
+    /**
+     * Specifies the attributes of a {@link VEvent} that are compared when looking for "duplicates".
+     *
+     * @return a string that is equal for events whose summary, description, start date and end date are equal.
+     */
+    static String comparisonKey(VEvent event) {
+        StringBuilder key = new StringBuilder();
+        appendTo(key, event.getSummary());
+        appendTo(key, event.getDescription());
+        appendTo(key, event.getStartDate());
+        appendTo(key, event.getEndDate());
+        return key.toString();
+    }
 
-            if (summary != null ? !summary.equals(that.summary) : that.summary != null) {
-                return false;
-            }
-            if (description != null ? !description.equals(that.description) : that.description != null) {
-                return false;
-            }
-            //noinspection SimplifiableIfStatement
-            if (startDate != null ? !startDate.equals(that.startDate) : that.startDate != null) {
-                return false;
-            }
-            return endDate != null ? endDate.equals(that.endDate) : that.endDate == null;
+    /**
+     * Appends parameters and value of {@code property}, each prefixed with its length. This way, the key is unambiguous
+     * and {@code null} values can be distinguished from empty ones.
+     */
+    private static void appendTo(StringBuilder key, Property property) {
+        if (property == null) {
+            key.append('-');
+            return;
         }
-
-        @Override
-        public int hashCode() {
-            int result = super.hashCode();
-            result = 31 * result + (summary != null ? summary.hashCode() : 0);
-            result = 31 * result + (description != null ? description.hashCode() : 0);
-            result = 31 * result + (startDate != null ? startDate.hashCode() : 0);
-            result = 31 * result + (endDate != null ? endDate.hashCode() : 0);
-            return result;
+        String parameters = property.getParameters().toString();
+        key.append('+').append(parameters.length()).append(':').append(parameters);
+        String value = property.getValue();
+        if (value == null) {
+            key.append('-');
+        } else {
+            key.append('+').append(value.length()).append(':').append(value);
         }
     }
 }
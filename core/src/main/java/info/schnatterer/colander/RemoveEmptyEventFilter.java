@@ -23,10 +23,14 @@
  */
 package info.schnatterer.colander;
 
+import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.CalendarComponent;
 import net.fortuna.ical4j.model.component.VEvent;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Removes event when it has
@@ -35,7 +39,11 @@ import java.util.Optional;
  *     <li>no description.</li>
  * </ul>
  */
-public class RemoveEmptyEventFilter extends TypedColanderFilter<VEvent> {
+public class RemoveEmptyEventFilter extends TypedColanderFilter<VEvent> implements VerdictColanderFilter {
+
+    public RemoveEmptyEventFilter() {
+        super(VEvent.class);
+    }
 
     @Override
     protected Optional<CalendarComponent> applyTyped(VEvent event) {
@@ -46,4 +54,27 @@ public class RemoveEmptyEventFilter extends TypedColanderFilter<VEvent> {
             return Optional.of(event);
         }
     }
+
+    /**
+     * Only removes events, never changes them.
+     */
+    @Override
+    public FilterVerdict applyWithVerdict(CalendarComponent component) {
+        return FilterVerdict.unchangedOrRemoved(apply(component));
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Optional<Set<String>> getAccessedProperties() {
+        return Optional.of(new HashSet<>(Arrays.asList(Property.SUMMARY, Property.DESCRIPTION)));
+    }
+
+    @Override
+    public Optional<String> getConfiguration() {
+        return Optional.of(FilterConfiguration.of("RemoveEmptyEventFilter"));
+    }
 }
@@ -26,12 +26,14 @@ package info.schnatterer.colander;
 import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.CalendarComponent;
 
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Removes calender component, when one of its properties contains a specific string.
  */
-public class RemoveFilter implements ColanderFilter {
+public class RemoveFilter implements VerdictColanderFilter {
     private String propertyContainsString;
     private final String propertyName;
 
@@ -45,11 +47,11 @@ public class RemoveFilter implements ColanderFilter {
     }
 
     @Override
-    public Optional<CalendarComponent> apply(CalendarComponent component) {
+    public FilterVerdict applyWithVerdict(CalendarComponent component) {
         if (contains(component.getProperty(propertyName))) {
-            return Optional.empty();
+            return FilterVerdict.removed();
         } else {
-            return Optional.of(component);
+            return FilterVerdict.unchanged(component);
         }
     }
 
@@ -62,4 +64,27 @@ public class RemoveFilter implements ColanderFilter {
     }
 
     public String getPropertyName() { return propertyName; }
+
+    @Override
+    public String toString() {
+        return "RemoveFilter{" +
+            "propertyName='" + propertyName + '\'' +
+            ", propertyContainsString='" + propertyContainsString + '\'' +
+            '}';
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Optional<Set<String>> getAccessedProperties() {
+        return Optional.of(Collections.singleton(propertyName));
+    }
+
+    @Override
+    public Optional<String> getConfiguration() {
+        return Optional.of(FilterConfiguration.of("RemoveFilter", propertyName, propertyContainsString));
+    }
 }
@@ -29,16 +29,23 @@ import net.fortuna.ical4j.model.component.CalendarComponent;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Replaces regex in a {@link Property} of a calender component.
  */
-public class ReplaceFilter implements ColanderFilter {
+public class ReplaceFilter implements VerdictColanderFilter {
 
     private final String stringToReplace;
     private final String regex;
     private final String propertyName;
+    /** Compiled once, {@link Matcher}s are reused per thread. */
+    private final Pattern pattern;
+    private final ThreadLocal<Matcher> matcher;
 
     /**
      * @param regex regex to match
@@ -49,29 +56,47 @@ public class ReplaceFilter implements ColanderFilter {
         this.regex = regex;
         this.stringToReplace = stringToReplace;
         this.propertyName = propertyName;
+        this.pattern = Pattern.compile(regex);
+        this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
     }
 
     @Override
-    public Optional<CalendarComponent> apply(CalendarComponent component) {
+    public FilterVerdict applyWithVerdict(CalendarComponent component) {
+        boolean changed;
         try {
-            replace(component.getProperty(propertyName));
+            changed = replace(component.getProperty(propertyName));
         } catch (IOException | URISyntaxException | ParseException e) {
             throw new ColanderParserException(e);
         }
-        return Optional.of(component);
+        return changed ? FilterVerdict.changed(component) : FilterVerdict.unchanged(component);
     }
 
     /**
      * Visible for testing.
+     *
+     * @return {@code true} if the value of the property was changed
      */
-    void replace(Property property) throws IOException, URISyntaxException, ParseException {
+    boolean replace(Property property) throws IOException, URISyntaxException, ParseException {
         if (property == null) {
-            return;
+            return false;
         }
         String value = property.getValue();
         if (value != null) {
-            property.setValue(value.replaceAll(regex, stringToReplace));
+            String replacedValue = replaceAll(value);
+            // Don't set unchanged values, as setting might involve parsing
+            if (!replacedValue.equals(value)) {
+                property.setValue(replacedValue);
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Same as {@link String#replaceAll(String, String)}, but without compiling the regex again.
+     */
+    String replaceAll(String value) {
+        return matcher.get().reset(value).replaceAll(stringToReplace);
     }
 
     public String getRegex() { return regex; }
@@ -79,4 +104,28 @@ public class ReplaceFilter implements ColanderFilter {
     public String getStringToReplace() { return stringToReplace; }
 
     public String getPropertyName() { return propertyName; }
+
+    @Override
+    public String toString() {
+        return "ReplaceFilter{" +
+            "propertyName='" + propertyName + '\'' +
+            ", regex='" + regex + '\'' +
+            ", stringToReplace='" + stringToReplace + '\'' +
+            '}';
+    }
+
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Optional<Set<String>> getAccessedProperties() {
+        return Optional.of(Collections.singleton(propertyName));
+    }
+
+    @Override
+    public Optional<String> getConfiguration() {
+        return Optional.of(FilterConfiguration.of("ReplaceFilter", propertyName, regex, stringToReplace));
+    }
 }
@@ -0,0 +1,203 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cache of whole output files, keyed by the input file and the configuration of the filters. When neither changed,
+ * the output of the last run can be reused, without reading the input.
+ * <p>
+ * Input files are identified by their size, last modification time and the fingerprint of samples of their content
+ * (beginning, middle and end). Small files are sampled completely. That way, looking up a file takes constant time,
+ * no matter how large it is.
+ * <p>
+ * Each output is stored as a file in the cache directory, named after the key. The last modification time of a
+ * cached file is the time it was last used. When the cache exceeds its maximum size, the least recently used files
+ * are evicted.
+ * <p>
+ * Thread-safe, the cache directory can be shared by concurrent runs.
+ */
+class ResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResultCache.class);
+
+    /** Incremented when the output of the same configuration changes, so outdated results are not reused. */
+    private static final int VERSION = 1;
+    static final int SAMPLE_SIZE = 64 * 1024;
+    static final String EXTENSION = ".ics";
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * @param directory the directory to store the results in. Created if it does not exist.
+     * @param maxSize   maximum total size of the cached results, in bytes
+     */
+    ResultCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param input         the input file
+     * @param configuration the configuration of the filters and of everything else that affects the output
+     * @return the key of the result of rinsing {@code input} with {@code configuration}
+     * @throws IOException if the input can't be read
+     */
+    Fingerprint key(Path input, String configuration) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Fingerprint sample = Fingerprint.of(readSample(channel, size));
+            return Fingerprint.of(FilterConfiguration.of("ResultCache", VERSION, configuration, size,
+                Files.getLastModifiedTime(input).toMillis(), sample.getHigh(), sample.getLow()));
+        }
+    }
+
+    /**
+     * @return the cached result of {@code key} or {@code null} if not cached
+     * @throws IOException if the cache can't be accessed
+     */
+    Path get(Fingerprint key) throws IOException {
+        Path result = resolve(key);
+        try {
+            // Mark as recently used
+            Files.setLastModifiedTime(result, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            LOG.debug("Result {} not cached", result);
+            return null;
+        }
+        LOG.info("Reusing cached result {}", result);
+        return result;
+    }
+
+    /**
+     * Stores a copy of {@code output} as result of {@code key} and evicts the least recently used results, if the
+     * cache exceeds its maximum size.
+     *
+     * @throws IOException if the cache can't be written
+     */
+    void put(Fingerprint key, Path output) throws IOException {
+        Files.createDirectories(directory);
+        Path result = resolve(key);
+        Path temp = Files.createTempFile(directory, result.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(output, temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, result, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, result, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        LOG.debug("Cached result {}", result);
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used results until the cache does not exceed its maximum size.
+     */
+    void evict() throws IOException {
+        List<CachedResult> results = new ArrayList<>();
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    results.add(new CachedResult(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    size += attributes.size();
+                } catch (NoSuchFileException e) {
+                    // Evicted concurrently
+                }
+            }
+        }
+        results.sort(Comparator.comparingLong(result -> result.lastUsed));
+        for (CachedResult result : results) {
+            if (size <= maxSize) {
+                break;
+            }
+            LOG.debug("Evicting cached result {}", result.file);
+            Files.deleteIfExists(result.file);
+            size -= result.size;
+        }
+    }
+
+    private Path resolve(Fingerprint key) {
+        return directory.resolve(String.format("%016x%016x", key.getHigh(), key.getLow()) + EXTENSION);
+    }
+
+    /**
+     * @return the whole content of small files, otherwise its beginning, middle and end
+     */
+    private static byte[] readSample(FileChannel channel, long size) throws IOException {
+        if (size <= 3L * SAMPLE_SIZE) {
+            byte[] sample = new byte[(int) size];
+            readFully(channel, ByteBuffer.wrap(sample), 0);
+            return sample;
+        }
+        byte[] sample = new byte[3 * SAMPLE_SIZE];
+        readFully(channel, ByteBuffer.wrap(sample, 0, SAMPLE_SIZE), 0);
+        readFully(channel, ByteBuffer.wrap(sample, SAMPLE_SIZE, SAMPLE_SIZE), size / 2);
+        readFully(channel, ByteBuffer.wrap(sample, 2 * SAMPLE_SIZE, SAMPLE_SIZE), size - SAMPLE_SIZE);
+        return sample;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new IOException("Unexpected end of file while sampling");
+            }
+        }
+    }
+
+    private static class CachedResult {
+        private final Path file;
+        private final long size;
+        private final long lastUsed;
+
+        CachedResult(Path file, long size, long lastUsed) {
+            this.file = file;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
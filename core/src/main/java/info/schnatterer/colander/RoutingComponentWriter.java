@@ -0,0 +1,311 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyList;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Writes each component to one of several outputs, depending on its route. Each output is written on its own thread,
+ * so serializing and writing the components of different outputs happens in parallel.
+ * <p>
+ * Everything that is not written to a {@link #route(CalendarComponent) route}, i.e. the beginning and the end of the
+ * calendar as well as time zones, is written to all outputs, including the ones created later. That way, each output
+ * is a complete calendar. Outputs are only created when the first component is routed to them.
+ */
+class RoutingComponentWriter extends ComponentWriter {
+    /** Number of components that are buffered per output before writing blocks. */
+    private static final int QUEUE_SIZE = 256;
+
+    private final Function<CalendarComponent, String> router;
+    private final OutputFactory outputs;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "colander-route");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    /** Everything written to all outputs so far, so it can be written to outputs that are created later. */
+    private final List<Broadcast> preamble = new ArrayList<>();
+
+    /**
+     * @param router  returns the route of a component or {@code null} for the default route
+     * @param outputs creates the output of a route
+     */
+    RoutingComponentWriter(Function<CalendarComponent, String> router, OutputFactory outputs) {
+        // Nothing is written by this writer itself, only by the writers of the routes
+        super(OutputStream.nullOutputStream());
+        this.router = router;
+        this.outputs = outputs;
+    }
+
+    /**
+     * @return the writer of the component's route or this writer for time zones, which are written to all outputs.
+     * Components that are known only in serialized form ({@code null}) are written to the default route.
+     */
+    @Override
+    ComponentWriter route(CalendarComponent component) throws IOException {
+        if (component != null && Component.VTIMEZONE.equals(component.getName())) {
+            return this;
+        }
+        return getRoute(component == null ? null : router.apply(component));
+    }
+
+    @Override
+    void writeStart(PropertyList<Property> calendarProperties) throws IOException {
+        broadcast(writer -> writer.writeStart(calendarProperties));
+    }
+
+    @Override
+    void write(CalendarComponent component) throws IOException {
+        // Serialize only once for all outputs
+        write(component.toString());
+    }
+
+    @Override
+    void write(String component) throws IOException {
+        broadcast(writer -> writer.write(component));
+    }
+
+    @Override
+    void writeVerbatim(SourceRange range) throws IOException {
+        broadcast(writer -> writer.writeVerbatim(range));
+    }
+
+    /**
+     * Writes the end of the calendar to all outputs. If no component was written at all, the default output is
+     * created, so there's always an output.
+     */
+    @Override
+    void writeEnd() throws IOException {
+        if (routes.isEmpty()) {
+            getRoute(null);
+        }
+        for (Route route : routes.values()) {
+            route.writeEnd();
+        }
+    }
+
+    @Override
+    void writeEnd(SourceRange range) throws IOException {
+        if (routes.isEmpty()) {
+            getRoute(null);
+        }
+        for (Route route : routes.values()) {
+            route.writeEnd(range);
+        }
+    }
+
+    /**
+     * Waits until all outputs are written and closes them.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        try {
+            for (Route route : routes.values()) {
+                try {
+                    route.close();
+                } catch (IOException e) {
+                    if (exception == null) {
+                        exception = e;
+                    } else {
+                        exception.addSuppressed(e);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private Route getRoute(String name) throws IOException {
+        Route route = routes.get(name);
+        if (route == null) {
+            route = new Route(outputs.create(name));
+            routes.put(name, route);
+            for (Broadcast broadcast : preamble) {
+                broadcast.writeTo(route);
+            }
+        }
+        return route;
+    }
+
+    private void broadcast(Broadcast broadcast) throws IOException {
+        preamble.add(broadcast);
+        for (Route route : routes.values()) {
+            broadcast.writeTo(route);
+        }
+    }
+
+    /**
+     * Creates the output of a route.
+     */
+    @FunctionalInterface
+    interface OutputFactory {
+        /**
+         * @param route the name of the route or {@code null} for the default route
+         */
+        OutputStream create(String route) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Broadcast {
+        void writeTo(ComponentWriter writer) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface WriteAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Writes to one output on a separate thread. Failures are thrown by the next write or by {@link #close()}.
+     */
+    private class Route extends ComponentWriter {
+        private final BlockingQueue<WriteAction> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final WriteAction end = () -> { };
+        /** Only used by the worker thread. */
+        private final ComponentWriter writer;
+        private final Future<?> worker;
+        /** Whether the failure of the worker has been thrown already, so it's not thrown again on close. */
+        private boolean failureThrown = false;
+
+        Route(OutputStream output) {
+            super(OutputStream.nullOutputStream());
+            writer = new ComponentWriter(output);
+            worker = executor.submit(this::drain);
+        }
+
+        @Override
+        void writeStart(PropertyList<Property> calendarProperties) throws IOException {
+            enqueue(() -> writer.writeStart(calendarProperties));
+        }
+
+        @Override
+        void write(CalendarComponent component) throws IOException {
+            enqueue(() -> writer.write(component));
+        }
+
+        @Override
+        void write(String component) throws IOException {
+            enqueue(() -> writer.write(component));
+        }
+
+        @Override
+        void writeVerbatim(SourceRange range) throws IOException {
+            enqueue(() -> writer.writeVerbatim(range));
+        }
+
+        @Override
+        void writeEnd() throws IOException {
+            enqueue(writer::writeEnd);
+        }
+
+        @Override
+        void writeEnd(SourceRange range) throws IOException {
+            enqueue(() -> writer.writeEnd(range));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (failureThrown) {
+                return;
+            }
+            if (!worker.isDone()) {
+                enqueue(end);
+            }
+            awaitWorker();
+        }
+
+        private Void drain() throws IOException, InterruptedException {
+            try {
+                WriteAction action = queue.take();
+                while (action != end) {
+                    action.run();
+                    action = queue.take();
+                }
+            } finally {
+                writer.close();
+            }
+            return null;
+        }
+
+        private void enqueue(WriteAction action) throws IOException {
+            try {
+                // Don't block forever when the worker failed
+                while (!queue.offer(action, 100, TimeUnit.MILLISECONDS)) {
+                    if (worker.isDone()) {
+                        awaitWorker();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing");
+            }
+            if (worker.isDone()) {
+                awaitWorker();
+            }
+        }
+
+        private void awaitWorker() throws IOException {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing");
+            } catch (ExecutionException e) {
+                failureThrown = true;
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * A range of raw bytes of the input, such as a single component including its line terminators. Either refers to a
+ * region of a file channel, so it can be transferred without copying it into memory, or holds the bytes themselves
+ * when the input is not a file.
+ */
+final class SourceRange {
+    private final FileChannel channel;
+    private final long position;
+    private final long length;
+    private final byte[] bytes;
+
+    private SourceRange(FileChannel channel, long position, long length, byte[] bytes) {
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+        this.bytes = bytes;
+    }
+
+    static SourceRange of(FileChannel channel, long position, long length) {
+        return new SourceRange(channel, position, length, null);
+    }
+
+    static SourceRange of(byte[] bytes) {
+        return new SourceRange(null, 0, bytes.length, bytes);
+    }
+
+    /**
+     * @return the channel to read the range from or {@code null} when the range holds its bytes.
+     */
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * @return the bytes of the range or {@code null} when the range refers to a {@link #getChannel() channel}.
+     */
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return {@code true} if {@code next} starts right where this range ends in the same channel
+     */
+    boolean isFollowedBy(SourceRange next) {
+        return channel != null && channel == next.channel && position + length == next.position;
+    }
+
+    /**
+     * @return a range spanning this range and {@code next}. Only valid if {@link #isFollowedBy(SourceRange)}.
+     */
+    SourceRange join(SourceRange next) {
+        return of(channel, position, length + next.length);
+    }
+
+    @Override
+    public String toString() {
+        return "SourceRange{" +
+            (channel != null ? "position=" + position + ", " : "") +
+            "length=" + length +
+            '}';
+    }
+}
@@ -26,13 +26,32 @@ package info.schnatterer.colander;
 import net.fortuna.ical4j.model.component.CalendarComponent;
 
 import java.lang.reflect.ParameterizedType;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Base class for filters, that filter only specific
  */
 public abstract class TypedColanderFilter<T extends CalendarComponent> implements ColanderFilter {
 
+    private final Class<T> filteredComponentType;
+
+    /**
+     * Determines the calender component type that this filter applies to from the type argument of the subclass,
+     * using reflection. Only works for direct subclasses that don't have type parameters themselves. Prefer
+     * {@link #TypedColanderFilter(Class)}, which also works without runtime reflection (e.g. in native executables).
+     */
+    protected TypedColanderFilter() {
+        this.filteredComponentType = getFilteredComponentType();
+    }
+
+    /**
+     * @param filteredComponentType the calender component type that this filter applies to.
+     */
+    protected TypedColanderFilter(Class<T> filteredComponentType) {
+        this.filteredComponentType = filteredComponentType;
+    }
 
     /**
      * Template method for concrete classes. Same as {@link #apply(CalendarComponent)}, but casted to the calender
@@ -46,9 +65,16 @@ public abstract class TypedColanderFilter<T extends CalendarComponent> implement
     protected abstract Optional<CalendarComponent> applyTyped(T concreteComponent);
 
 
+    /**
+     * @return the calender component type that this filter applies to.
+     */
+    @Override
+    public Optional<Set<Class<? extends CalendarComponent>>> getComponentTypes() {
+        return Optional.of(Collections.singleton(filteredComponentType));
+    }
+
     @Override
     public Optional<CalendarComponent> apply(CalendarComponent abstractComponent) {
-        Class<T> filteredComponentType = getFilteredComponentType();
         if (filteredComponentType.isInstance(abstractComponent)) {
             return applyTyped(filteredComponentType.cast(abstractComponent));
         } else {
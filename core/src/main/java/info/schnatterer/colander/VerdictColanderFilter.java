@@ -0,0 +1,52 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.util.Optional;
+
+/**
+ * {@link ColanderFilter} that reports whether it changed a component. Other filters are only known to change a
+ * component when they return another one. Otherwise, the filter chain has to compare hash codes of the component
+ * before and after applying such filters. This is expensive, as it traverses all properties, and misses changes when
+ * hash codes collide.
+ */
+@FunctionalInterface
+public interface VerdictColanderFilter extends ColanderFilter {
+
+    /**
+     * Filters a calendar component and reports what happened to it.
+     *
+     * @param component subject to be filtered. Never {@code null}!
+     * @return whether the component is kept unchanged, changed or removed. Never {@code null}.
+     * @throws ColanderParserException if anything goes wrong
+     */
+    FilterVerdict applyWithVerdict(CalendarComponent component);
+
+    @Override
+    default Optional<CalendarComponent> apply(CalendarComponent component) {
+        return applyWithVerdict(component).getComponent();
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class AhoCorasickTest {
+
+    @Test
+    public void find() {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "his", "hers"));
+        assertThat(automaton.find("ushers")).hasValue("she");
+        assertThat(automaton.find("this")).hasValue("his");
+        assertThat(automaton.find("hxrs")).isEmpty();
+    }
+
+    @Test
+    public void findViaFailureNode() {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("abcd", "bce"));
+        assertThat(automaton.find("xabce")).hasValue("bce");
+    }
+
+    @Test
+    public void findTermContainedInOtherTerm() {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("abcd", "bc"));
+        assertThat(automaton.find("abcx")).hasValue("bc");
+    }
+
+    @Test
+    public void findEmptyTerm() {
+        assertThat(new AhoCorasick(Collections.singletonList("")).find("anything")).hasValue("");
+        assertThat(new AhoCorasick(Collections.singletonList("")).find("")).hasValue("");
+    }
+
+    @Test
+    public void findNoTerms() {
+        assertThat(new AhoCorasick(Collections.emptyList()).find("anything")).isEmpty();
+    }
+
+    @Test
+    public void findDuplicateTerms() {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("a", "a"));
+        assertThat(automaton.find("bab")).hasValue("a");
+    }
+
+    @Test
+    public void findSameAsContains() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            List<String> terms = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                terms.add(randomString(random, 1 + random.nextInt(4)));
+            }
+            String text = randomString(random, random.nextInt(30));
+            boolean expected = terms.stream().anyMatch(text::contains);
+
+            AhoCorasick automaton = new AhoCorasick(terms);
+
+            assertEquals("Terms " + terms + " in text " + text, expected, automaton.find(text).isPresent());
+            automaton.find(text).ifPresent(term -> assertThat(text).contains(term));
+        }
+    }
+
+    private String randomString(Random random, int length) {
+        StringBuilder string = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            string.append((char) ('a' + random.nextInt(3)));
+        }
+        return string.toString();
+    }
+}
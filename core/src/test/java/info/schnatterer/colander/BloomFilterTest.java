@@ -0,0 +1,81 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void put() {
+        BloomFilter bloomFilter = new BloomFilter(1024);
+        assertTrue("New fingerprint", bloomFilter.put(42, 23));
+        assertFalse("Fingerprint possibly contained", bloomFilter.put(42, 23));
+    }
+
+    @Test
+    public void putNoFalseNegatives() {
+        BloomFilter bloomFilter = new BloomFilter(64);
+        for (int i = 0; i < 1000; i++) {
+            Fingerprint fingerprint = Fingerprint.of(Integer.toString(i));
+            bloomFilter.put(fingerprint.getHigh(), fingerprint.getLow());
+        }
+        for (int i = 0; i < 1000; i++) {
+            Fingerprint fingerprint = Fingerprint.of(Integer.toString(i));
+            assertFalse("False negative for " + i, bloomFilter.put(fingerprint.getHigh(), fingerprint.getLow()));
+        }
+    }
+
+    @Test
+    public void putFalsePositiveRate() {
+        // 10 bits per element
+        int elements = 10_000;
+        BloomFilter bloomFilter = new BloomFilter(elements * 10 / 8);
+        for (int i = 0; i < elements; i++) {
+            Fingerprint fingerprint = Fingerprint.of(Integer.toString(i));
+            bloomFilter.put(fingerprint.getHigh(), fingerprint.getLow());
+        }
+        // Probing adds as well, so probe only a few elements in order not to change the ratio too much
+        int probes = elements / 10;
+        int falsePositives = 0;
+        for (int i = elements; i < elements + probes; i++) {
+            Fingerprint fingerprint = Fingerprint.of(Integer.toString(i));
+            if (!bloomFilter.put(fingerprint.getHigh(), fingerprint.getLow())) {
+                falsePositives++;
+            }
+        }
+        assertTrue("Unexpected amount of false positives " + falsePositives, falsePositives < probes * 3 / 100);
+    }
+
+    @Test
+    public void clear() {
+        BloomFilter bloomFilter = new BloomFilter(1024);
+        bloomFilter.put(42, 23);
+        bloomFilter.clear();
+        assertTrue("New fingerprint after clear", bloomFilter.put(42, 23));
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import info.schnatterer.colander.test.ITCases;
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.component.VTimeZone;
+import net.fortuna.ical4j.model.property.DtStart;
+import net.fortuna.ical4j.model.property.Summary;
+import net.fortuna.ical4j.model.property.TzId;
+import org.hamcrest.junit.ExpectedException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class ByteBufferCalendarParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void parseSameAsCalendarBuilder() throws Exception {
+        byte[] ics = Files.readAllBytes(Paths.get(ITCases.getFilePathTestIcs(folder)));
+
+        assertEquals(new CalendarBuilder().build(new StringReader(new String(ics, StandardCharsets.UTF_8))),
+            parse(ByteBuffer.wrap(ics)));
+    }
+
+    @Test
+    public void parseSameAsCalendarBuilderDirectBuffer() throws Exception {
+        byte[] ics = Files.readAllBytes(Paths.get(ITCases.getFilePathTestIcs(folder)));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ics.length);
+        buffer.put(ics).flip();
+
+        assertEquals(new CalendarBuilder().build(new StringReader(new String(ics, StandardCharsets.UTF_8))),
+            parse(buffer));
+    }
+
+    @Test
+    public void parseFoldedLinesParametersAndUnicode() throws Exception {
+        String ics = String.join("\r\n",
+            "BEGIN:VCALENDAR",
+            "VERSION:2.0",
+            "",
+            "BEGIN:VEVENT",
+            "SUMMARY;LANGUAGE=de:Frühstück mit Jörg, ",
+            " María \\; und ",
+            "\tdem Rest",
+            "ATTENDEE;CN=\"Doe; John: Jr.\";ROLE=REQ-PARTICIPANT:mailto:john@example.com",
+            "DESCRIPTION:Line\\nbreak",
+            "DTSTART;VALUE=DATE:20170102",
+            "BEGIN:VALARM",
+            "ACTION:DISPLAY",
+            "TRIGGER;VALUE=DURATION:-PT15M",
+            "END:VALARM",
+            "END:VEVENT",
+            "END:VCALENDAR",
+            "");
+
+        Calendar expected = new CalendarBuilder().build(new StringReader(ics));
+        Calendar actual = parse(ByteBuffer.wrap(ics.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(expected, actual);
+        VEvent event = (VEvent) actual.getComponent(VEvent.VEVENT);
+        assertEquals("Frühstück mit Jörg, María ; und dem Rest", event.getSummary().getValue());
+        assertEquals("Doe; John: Jr.",
+            event.getProperty(Property.ATTENDEE).getParameter("CN").getValue());
+        assertEquals(1, event.getAlarms().size());
+    }
+
+    @Test
+    public void parseLineFeedsAndByteOrderMark() throws Exception {
+        String ics = "\uFEFFBEGIN:VCALENDAR\nVERSION:2.0\nBEGIN:VTODO\nSUMMARY:todo\nEND:VTODO\nEND:VCALENDAR";
+
+        Calendar actual = parse(ByteBuffer.wrap(ics.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("2.0", actual.getVersion().getValue());
+        assertEquals("todo", actual.getComponents().get(0).getProperty(Property.SUMMARY).getValue());
+    }
+
+    @Test
+    public void parseBufferPosition() throws Exception {
+        byte[] ics = "xxBEGIN:VCALENDAR\r\nVERSION:2.0\r\nEND:VCALENDAR\r\nxx".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(ics, 2, ics.length - 4);
+
+        assertEquals("2.0", parse(buffer).getVersion().getValue());
+        assertEquals("Position of buffer", 2, buffer.position());
+    }
+
+    @Test
+    public void parseLazy() throws Exception {
+        String ics = String.join("\r\n",
+            "BEGIN:VCALENDAR",
+            "VERSION:2.0",
+            "BEGIN:VTIMEZONE",
+            "TZID:Europe/Berlin",
+            "BEGIN:STANDARD",
+            "DTSTART:19701025T030000",
+            "TZOFFSETFROM:+0200",
+            "TZOFFSETTO:+0100",
+            "END:STANDARD",
+            "END:VTIMEZONE",
+            "BEGIN:VEVENT",
+            "SUMMARY:Summary\\, escaped",
+            "DTSTART;TZID=Europe/Berlin:20170102T100000",
+            "ATTENDEE;CN=\"Doe; John\":mailto:john@example.com",
+            "DESCRIPTION:Line\\nbreak",
+            "END:VEVENT",
+            "END:VCALENDAR",
+            "");
+
+        Calendar eager = new CalendarBuilder().build(new StringReader(ics));
+        ByteBufferCalendarParser parser = new ByteBufferCalendarParser(
+            ByteBuffer.wrap(ics.getBytes(StandardCharsets.UTF_8)), Collections.singleton(Property.SUMMARY));
+        Calendar lazy = new LazyCalendarBuilder(parser).build(new StringReader(""));
+
+        VEvent event = (VEvent) lazy.getComponent(VEvent.VEVENT);
+        assertThat(event.getSummary()).isInstanceOf(Summary.class);
+        assertEquals("Summary, escaped", event.getSummary().getValue());
+        assertThat(event.getProperty(Property.DTSTART)).isInstanceOf(RawProperty.class);
+        assertEquals("Value is not unescaped", "Line\\nbreak", event.getProperty(Property.DESCRIPTION).getValue());
+        assertEquals("Doe; John", event.getProperty(Property.ATTENDEE).getParameter("CN").getValue());
+        assertThat(lazy.getComponent(VTimeZone.VTIMEZONE).getProperty(Property.TZID)).isInstanceOf(TzId.class);
+        assertThat(((VTimeZone) lazy.getComponent(VTimeZone.VTIMEZONE)).getObservances().get(0)
+            .getProperty(Property.DTSTART)).isInstanceOf(DtStart.class);
+        assertEquals("Written the same way", eager.toString(), lazy.toString());
+    }
+
+    @Test
+    public void parseNoCalendar() throws Exception {
+        expectedException.expect(ParserException.class);
+        expectedException.expectMessage("Expected [BEGIN:VCALENDAR]");
+
+        parse(ByteBuffer.wrap("BEGIN:VEVENT\r\nEND:VEVENT\r\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parseUnexpectedEnd() throws Exception {
+        expectedException.expect(ParserException.class);
+        expectedException.expectMessage("Unexpected end of calendar");
+
+        parse(ByteBuffer.wrap("BEGIN:VCALENDAR\r\nBEGIN:VEVENT\r\nEND:VEVENT\r\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parseMissingColon() throws Exception {
+        expectedException.expect(ParserException.class);
+        expectedException.expectMessage("Error at line 2");
+
+        parse(ByteBuffer.wrap("BEGIN:VCALENDAR\r\nVERSION\r\nEND:VCALENDAR\r\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parseIllegalProperty() throws Exception {
+        expectedException.expect(ParserException.class);
+        expectedException.expectMessage("Error at line 3");
+
+        parse(ByteBuffer.wrap("BEGIN:VCALENDAR\r\nBEGIN:VEVENT\r\nNOT-A-PROPERTY:value\r\nEND:VEVENT\r\nEND:VCALENDAR\r\n"
+            .getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Calendar parse(ByteBuffer buffer) throws Exception {
+        return new CalendarBuilder(new ByteBufferCalendarParser(buffer)).build(new StringReader(""));
+    }
+}
@@ -23,29 +23,45 @@
  */
 package info.schnatterer.colander;
 
+import info.schnatterer.colander.test.ITCases;
 import net.fortuna.ical4j.data.CalendarBuilder;
 import net.fortuna.ical4j.data.CalendarOutputter;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
 import net.fortuna.ical4j.validate.ValidationException;
 import org.hamcrest.junit.ExpectedException;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.startsWith;
@@ -59,6 +75,8 @@ public class ColanderIOTest {
 
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
     @Mock
     private CalendarBuilder builder;
     @Mock
@@ -71,10 +89,9 @@ public class ColanderIOTest {
     @Test
     public void read() throws Exception {
         Calendar expectedCalendar = mock(Calendar.class);
-        InputStream stream = mock(InputStream.class);
-        when(builder.build(stream)).thenReturn(expectedCalendar);
+        when(builder.build(any(InputStream.class))).thenReturn(expectedCalendar);
 
-        Calendar actualCalender = io.read(stream);
+        Calendar actualCalender = io.read(new ByteArrayInputStream(new byte[0]));
         assertSame("Unexpected calendar returned", expectedCalendar, actualCalender);
     }
 
@@ -85,7 +102,61 @@ public class ColanderIOTest {
 
         this.expectedException.expect(ColanderParserException.class);
         this.expectedException.expectMessage(expectedException.getMessage());
-        io.read(mock(InputStream.class));
+        io.read(new ByteArrayInputStream(new byte[0]));
+    }
+
+    @Test
+    public void readFile() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+
+        assertEquals(new CalendarBuilder().build(new FileInputStream(inputPath)), new ColanderIO().read(inputPath));
+    }
+
+    @Test
+    public void readFileLazy() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+
+        Calendar eager = new ColanderIO().read(inputPath);
+        Calendar lazy = new ColanderIO().read(inputPath, Collections.singleton(Property.SUMMARY));
+
+        assertEquals(eager.getComponents().size(), lazy.getComponents().size());
+        CalendarComponent event = lazy.getComponent(Component.VEVENT);
+        assertEquals(eager.getComponent(Component.VEVENT).getProperty(Property.SUMMARY),
+            event.getProperty(Property.SUMMARY));
+        assertTrue("Not parsed", event.getProperty(Property.DTSTART) instanceof RawProperty);
+    }
+
+    @Test
+    public void readFileGzip() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        String compressedPath = gzip(inputPath);
+
+        assertEquals(new ColanderIO().read(inputPath), new ColanderIO().read(compressedPath));
+        assertEquals(new ColanderIO().read(inputPath),
+            new ColanderIO().read(new ByteArrayInputStream(Files.readAllBytes(Paths.get(compressedPath)))));
+    }
+
+    @Test
+    public void readZstd() throws Exception {
+        expectedException.expect(ColanderParserException.class);
+        expectedException.expectMessage("zstd");
+
+        new ColanderIO().read(new ByteArrayInputStream(new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0 }));
+    }
+
+    @Test
+    public void readFileNotFound() throws Exception {
+        expectedException.expect(FileNotFoundException.class);
+
+        new ColanderIO().read(folder.getRoot() + "/doesNotExist.ics");
+    }
+
+    @Test
+    public void readByteBufferException() throws Exception {
+        expectedException.expect(ColanderParserException.class);
+        expectedException.expectMessage("Expected [BEGIN:VCALENDAR]");
+
+        new ColanderIO().read(ByteBuffer.wrap("VERSION:2.0".getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -135,6 +206,15 @@ public class ColanderIOTest {
         verifyDateInNewFileName(outputPath, dateBefore, "");
     }
 
+    @Test
+    public void writePathNullInputPathCompressed() throws Exception {
+        LocalDateTime dateBefore = createComparableDateNow(LocalDateTime.now().format(formatter), formatter);
+
+        io.write(mock(Calendar.class), null, "a/b.ics.gz");
+
+        verifyDateInNewFileName(outputPath, dateBefore, "\\.ics\\.gz");
+    }
+
     @Test
     public void writeFileExists() throws Exception {
         expectedException.expect(FileAlreadyExistsException.class);
@@ -152,6 +232,58 @@ public class ColanderIOTest {
         io.write(mock(Calendar.class), null, null);
     }
 
+    @Test
+    public void writeStream() throws Exception {
+        io.write(mock(Calendar.class), outStream);
+
+        assertNotEquals("write() did not write anything", 0,
+            ((ByteArrayOutputStream) outStream).toByteArray().length);
+    }
+
+    @Test
+    public void streamStreams() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new ColanderIO().stream(new ByteArrayInputStream(Files.readAllBytes(Paths.get(inputPath))), output,
+            new FilterChain(Collections.emptyList()), false);
+
+        assertEquals(new CalendarBuilder().build(new FileInputStream(inputPath)),
+            new CalendarBuilder().build(new ByteArrayInputStream(output.toByteArray())));
+    }
+
+    @Test
+    public void streamCompressed() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        String outputPath = folder.getRoot() + "/out.ics.gz";
+
+        new ColanderIO().stream(gzip(inputPath), outputPath, new FilterChain(Collections.emptyList()), true);
+
+        try (InputStream output = new GZIPInputStream(new FileInputStream(outputPath))) {
+            assertArrayEquals(Files.readAllBytes(Paths.get(inputPath)), output.readAllBytes());
+        }
+    }
+
+    @Test
+    public void createOutputFile() throws Exception {
+        assertSame(outStream, io.createOutputFile("expectedFile"));
+        assertEquals("expectedFile", outputPath);
+    }
+
+    @Test
+    public void createOutputFileExists() throws Exception {
+        expectedException.expect(FileAlreadyExistsException.class);
+
+        io.createOutputFile(createPathToClassFile());
+    }
+
+    @Test
+    public void createOutputFileNull() throws Exception {
+        expectedException.expect(ColanderParserException.class);
+
+        io.createOutputFile(null);
+    }
+
     /**
      * Answer that makes mock throw an {@link ValidationException} on each method call.
      */
@@ -167,6 +299,14 @@ public class ColanderIOTest {
         }
     }
 
+    private String gzip(String path) throws IOException {
+        String compressedPath = path + Compression.GZIP_EXTENSION;
+        try (OutputStream output = new GZIPOutputStream(new FileOutputStream(compressedPath))) {
+            Files.copy(Paths.get(path), output);
+        }
+        return compressedPath;
+    }
+
     private String createPathToClassFile() {
         return getClass().getProtectionDomain().getCodeSource().getLocation().getPath()
             + getClass().getName().replace(".", "/") + ".class";
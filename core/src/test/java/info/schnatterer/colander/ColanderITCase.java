@@ -24,14 +24,32 @@
 package info.schnatterer.colander;
 
 import info.schnatterer.colander.test.ITCases;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
 import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VEvent;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -44,9 +62,193 @@ public class ColanderITCase {
 
     @Test
     public void endToEnd() throws Exception {
+        endToEnd(Colander::toss);
+    }
+
+    @Test
+    public void endToEndStreaming() throws Exception {
+        endToEnd(inputPath -> Colander.toss(inputPath).streaming());
+    }
+
+    @Test
+    public void endToEndPassthroughUnchanged() throws Exception {
+        endToEnd(inputPath -> Colander.toss(inputPath).passthroughUnchanged());
+    }
+
+    @Test
+    public void passthroughUnchangedIsByteExact() throws Exception {
         String outputPath = folder.getRoot().toString() + "/out.ics";
         String inputPath = ITCases.getFilePathTestIcs(folder);
+
         Colander.toss(inputPath)
+            .filter(Optional::of)
+            .passthroughUnchanged()
+            .rinse()
+            .toFile(outputPath);
+
+        assertArrayEquals(Files.readAllBytes(Paths.get(inputPath)), Files.readAllBytes(Paths.get(outputPath)));
+    }
+
+    @Test
+    public void cacheSameAsWithoutCache() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        String cachePath = folder.getRoot().toString() + "/cache";
+        String expectedPath = folder.getRoot().toString() + "/expected.ics";
+        rinseWithoutDuplicateRemoval(Colander.toss(inputPath).streaming(), expectedPath);
+
+        for (int run = 0; run < 2; run++) {
+            String outputPath = folder.getRoot().toString() + "/out" + run + ".ics";
+            rinseWithoutDuplicateRemoval(Colander.toss(inputPath).cache(cachePath), outputPath);
+            assertArrayEquals("Run " + run, Files.readAllBytes(Paths.get(expectedPath)),
+                Files.readAllBytes(Paths.get(outputPath)));
+        }
+    }
+
+    @Test
+    public void cachedResultSameAsWithoutCache() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        String cachePath = folder.getRoot().toString() + "/resultCache";
+        String expectedPath = folder.getRoot().toString() + "/expected.ics";
+        rinseWithoutDuplicateRemoval(Colander.toss(inputPath), expectedPath);
+
+        for (int run = 0; run < 2; run++) {
+            String outputPath = folder.getRoot().toString() + "/out" + run + ".ics";
+            rinseWithoutDuplicateRemoval(Colander.toss(inputPath).cacheResult(cachePath, Long.MAX_VALUE), outputPath);
+            assertArrayEquals("Run " + run, Files.readAllBytes(Paths.get(expectedPath)),
+                Files.readAllBytes(Paths.get(outputPath)));
+        }
+        assertEquals("Cached results", 1, new File(cachePath).list().length);
+    }
+
+    @Test
+    public void mergeRemovesDuplicatesAcrossFiles() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        String copyPath = folder.getRoot().toString() + "/copy.ics";
+        Files.copy(Paths.get(inputPath), Paths.get(copyPath));
+        Calendar expected = Colander.toss(inputPath).removeDuplicateEvents().rinse().toCalendar();
+
+        Calendar merged = Colander.toss(Arrays.asList(inputPath, copyPath)).removeDuplicateEvents()
+            .passthroughUnchanged().rinse().toCalendar();
+
+        assertEquals("Components", new HashSet<>(expected.getComponents()), new HashSet<>(merged.getComponents()));
+        assertEquals("Events", expected.getComponents(Component.VEVENT).size(),
+            merged.getComponents(Component.VEVENT).size());
+        assertEquals("Time zones", 1, merged.getComponents(Component.VTIMEZONE).size());
+    }
+
+    @Test
+    public void routeWritesEachComponentToOneFile() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        String outputPath = folder.getRoot().toString() + "/out.ics";
+        Calendar expected = Colander.toss(inputPath).removeDuplicateEvents().replaceInSummary("Replace", "Replace!")
+            .rinse().toCalendar();
+
+        Colander.toss(inputPath).removeDuplicateEvents().replaceInSummary("Replace", "Replace!")
+            .route("replaced", component -> {
+                Property summary = component.getProperty(Property.SUMMARY);
+                return summary != null && summary.getValue().contains("Replace!");
+            })
+            .routeByType()
+            .passthroughUnchanged()
+            .rinseRouted()
+            .toFile(outputPath);
+
+        assertFalse("No components without route", new File(outputPath).exists());
+        Set<CalendarComponent> actual = new HashSet<>();
+        for (String route : Arrays.asList("replaced", "vevent", "vtodo")) {
+            Calendar routed = new ColanderIO().read(ColanderIO.getRoutePath(outputPath, route));
+            assertEquals("Time zones in " + route, 1, routed.getComponents(Component.VTIMEZONE).size());
+            actual.addAll(routed.getComponents());
+        }
+        assertEquals("Replaced", 2,
+            new ColanderIO().read(ColanderIO.getRoutePath(outputPath, "replaced")).getComponents().size() - 1);
+        assertEquals("Components", new HashSet<>(expected.getComponents()), actual);
+    }
+
+    private static void rinseWithoutDuplicateRemoval(Colander.ColanderBuilder builder, String outputPath)
+        throws Exception {
+        builder
+            .removeEmptyEvents()
+            .removePropertyContains(Property.SUMMARY, "Remove me")
+            .removeDescriptionContains("Remove me 2")
+            .replaceInProperty(Property.DESCRIPTION, "L.ne", "Line")
+            .replaceInSummary("Replace", "Replace!")
+            .rinse()
+            .toFile(outputPath);
+    }
+
+    @Test
+    public void endToEndStreams() throws Exception {
+        String outputPath = folder.getRoot().toString() + "/out.ics";
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        Colander.toss(new FileInputStream(inputPath))
+            .removeDuplicateEvents()
+            .removeEmptyEvents()
+            .removePropertyContains(Property.SUMMARY, "Remove me")
+            .removeDescriptionContains("Remove me 2")
+            .replaceInProperty(Property.DESCRIPTION, "L.ne", "Line")
+            .replaceInSummary("Replace", "Replace!")
+            .streaming()
+            .rinse()
+            .toStream(new FileOutputStream(outputPath));
+        ITCases.verifyParsedIcs(inputPath, outputPath);
+    }
+
+    @Test
+    public void endToEndLazyProperties() throws Exception {
+        // A NOP filter that declares its properties, so the calendar is actually parsed lazily
+        endToEnd(inputPath -> Colander.toss(inputPath).lazyProperties(), new ColanderFilter() {
+            @Override
+            public Optional<CalendarComponent> apply(CalendarComponent component) {
+                return Optional.of(component);
+            }
+
+            @Override
+            public Optional<Set<String>> getAccessedProperties() {
+                return Optional.of(Collections.emptySet());
+            }
+        });
+    }
+
+    @Test
+    public void lazyPropertiesToCalendarParsesAllProperties() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        Calendar expected = Colander.toss(inputPath).removeSummaryContains("Remove me").rinse().toCalendar();
+
+        Calendar calendar = Colander.toss(inputPath).lazyProperties().removeSummaryContains("Remove me").rinse()
+            .toCalendar();
+
+        for (CalendarComponent component : calendar.getComponents()) {
+            assertThat(component.getProperties()).noneMatch(property -> property instanceof RawProperty);
+        }
+        VEvent event = (VEvent) calendar.getComponent(Component.VEVENT);
+        assertEquals("Start", ((VEvent) expected.getComponent(Component.VEVENT)).getStartDate(), event.getStartDate());
+        assertEquals("Components", expected.getComponents(), calendar.getComponents());
+    }
+
+    @Test
+    public void lazyPropertiesRemoveDuplicateEventsWithDuration() throws Exception {
+        String event = "BEGIN:VEVENT\r\nUID:1\r\nDTSTAMP:20170101T000000Z\r\nDTSTART:20170101T100000Z\r\n"
+            + "DURATION:PT1H\r\nSUMMARY:Duration only\r\nEND:VEVENT\r\n";
+        File input = folder.newFile("duration.ics");
+        Files.write(input.toPath(), ("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:test\r\n" + event + event
+            + "END:VCALENDAR\r\n").getBytes(StandardCharsets.UTF_8));
+
+        Calendar calendar = Colander.toss(input.toString()).lazyProperties().removeDuplicateEvents().rinse()
+            .toCalendar();
+
+        assertEquals("Events", 1, calendar.getComponents(Component.VEVENT).size());
+    }
+
+    private void endToEnd(Function<String, Colander.ColanderBuilder> toss) throws Exception {
+        endToEnd(toss, Optional::of);
+    }
+
+    private void endToEnd(Function<String, Colander.ColanderBuilder> toss, ColanderFilter nopFilter)
+        throws Exception {
+        String outputPath = folder.getRoot().toString() + "/out.ics";
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        toss.apply(inputPath)
             .removeDuplicateEvents()
             .removeEmptyEvents()
             .removePropertyContains(Property.SUMMARY, "Remove me")
@@ -55,8 +257,7 @@ public class ColanderITCase {
             .replaceInProperty(Property.DESCRIPTION, "L.ne", "Line")
             // Convenience: replace in property summary
             .replaceInSummary("Replace", "Replace!")
-            // NOP filter
-            .filter(Optional::of)
+            .filter(nopFilter)
             .rinse()
             .toFile(outputPath);
         assertTrue("Output not written", new File(outputPath).exists());
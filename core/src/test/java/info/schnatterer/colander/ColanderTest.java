@@ -25,27 +25,54 @@ package info.schnatterer.colander;
 
 import info.schnatterer.colander.Colander.ColanderBuilder;
 import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Date;
 import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.VEvent;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class ColanderTest {
     private String expectedFilePath = "file";
     private FilterChain filterChain = mock(FilterChain.class);
     private Calendar cal = mock(Calendar.class);
+    private ResultCache resultCache = mock(ResultCache.class);
+    private Set<String> readMaterializedProperties;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     @Test
     public void toss() throws Exception {
@@ -58,6 +85,18 @@ public class ColanderTest {
         assertThat(colanderBuilder.filters).first().isOfAnyClassIn(RemoveDuplicateEventFilter.class);
     }
 
+    @Test
+    public void removeDuplicateEventsExactComparison() throws Exception {
+        ColanderBuilder colanderBuilder = Colander.toss(expectedFilePath).removeDuplicateEvents(true);
+        assertThat(colanderBuilder.filters).first().isOfAnyClassIn(RemoveDuplicateEventFilter.class);
+    }
+
+    @Test
+    public void removeDuplicateEventsOnDisk() throws Exception {
+        ColanderBuilder colanderBuilder = Colander.toss(expectedFilePath).removeDuplicateEventsOnDisk(16L * 1024 * 1024);
+        assertThat(colanderBuilder.filters).first().isOfAnyClassIn(RemoveDuplicateEventFilter.class);
+    }
+
     @Test
     public void removeEmptyEvents() throws Exception {
         ColanderBuilder colanderBuilder = Colander.toss(expectedFilePath).removeEmptyEvents();
@@ -143,6 +182,14 @@ public class ColanderTest {
     }
 
 
+    @Test
+    public void parallel() {
+        ColanderBuilder colanderBuilder = Colander.toss(expectedFilePath);
+        assertNull("Pool before parallel()", colanderBuilder.pool);
+
+        assertSame(ForkJoinPool.commonPool(), colanderBuilder.parallel().pool);
+    }
+
     @Test
     public void rinseToCalendar() throws Exception {
         ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath);
@@ -152,6 +199,318 @@ public class ColanderTest {
         assertSame(cal, builder.rinse().toCalendar());
     }
 
+    @Test
+    public void rinseFilterStatistics() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath);
+        List<FilterStatistics> statistics = Collections.singletonList(new FilterStatistics(mock(ColanderFilter.class)));
+        when(filterChain.run(any(Calendar.class))).thenReturn(cal);
+        when(filterChain.getStatistics()).thenReturn(statistics);
+
+        assertSame(statistics, builder.rinse().getFilterStatistics());
+    }
+
+    @Test
+    public void adaptiveOrder() throws Exception {
+        ColanderBuilder builder = Colander.toss(expectedFilePath).adaptiveOrder();
+
+        assertEquals(ColanderBuilder.DEFAULT_ADAPTIVE_SAMPLE_SIZE, builder.adaptiveSampleSize);
+        assertEquals(42, builder.adaptiveOrder(42).adaptiveSampleSize);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void adaptiveOrderInvalidSampleSize() throws Exception {
+        Colander.toss(expectedFilePath).adaptiveOrder(0);
+    }
+
+    @Test
+    public void rinseLazyProperties() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath).lazyProperties();
+        Set<String> accessedProperties = Collections.singleton(Property.SUMMARY);
+        when(filterChain.getAccessedProperties()).thenReturn(Optional.of(accessedProperties));
+        when(filterChain.run(any(Calendar.class))).thenReturn(cal);
+
+        assertThat(builder.rinse()).isInstanceOf(Colander.LazyColanderResult.class);
+        assertSame(accessedProperties, readMaterializedProperties);
+    }
+
+    @Test
+    public void rinseLazyPropertiesNotDeclared() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath).lazyProperties();
+        when(filterChain.getAccessedProperties()).thenReturn(Optional.empty());
+        when(filterChain.run(any(Calendar.class))).thenReturn(cal);
+
+        builder.rinse();
+
+        assertNull(readMaterializedProperties);
+    }
+
+    @Test
+    public void rinseNotLazy() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath);
+        when(filterChain.run(any(Calendar.class))).thenReturn(cal);
+
+        builder.rinse();
+
+        assertNull(readMaterializedProperties);
+        verify(filterChain, never()).getAccessedProperties();
+    }
+
+    @Test
+    public void rinseStreaming() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath).streaming();
+
+        Colander.ColanderResult result = builder.rinse();
+
+        assertThat(result).isInstanceOf(Colander.StreamingColanderResult.class);
+        // Not run before the result is consumed
+        verify(filterChain, never()).run(any(Calendar.class));
+        verify(filterChain, never()).run(any(ComponentReader.class), any(ComponentWriter.class));
+    }
+
+    @Test
+    public void tossMultipleFiles() throws Exception {
+        ColanderBuilder builder = Colander.toss(Arrays.asList("a.ics", "b.ics"));
+
+        assertEquals("File path", "a.ics", builder.filePath);
+        assertTrue("Streaming", builder.streaming);
+        assertThat(builder.mergedFilePaths).containsExactly("a.ics", "b.ics");
+        assertThat(builder.rinse()).isInstanceOf(Colander.MergingColanderResult.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tossNoFiles() throws Exception {
+        Colander.toss(Collections.emptyList());
+    }
+
+    @Test
+    public void routeByType() throws Exception {
+        ColanderBuilder builder = Colander.toss(expectedFilePath).routeByType();
+
+        assertTrue("Streaming", builder.streaming);
+        assertEquals("Route", "vevent", builder.routers.get(0).apply(new VEvent()));
+        assertNotNull("Result", builder.rinseRouted());
+    }
+
+    @Test
+    public void routeByYearAndMonth() throws Exception {
+        ColanderBuilder builder = Colander.toss(expectedFilePath).routeByYear().routeByMonth();
+        VEvent event = new VEvent(new Date("20170315"), "summary");
+
+        assertEquals("Year", "2017", builder.routers.get(0).apply(event));
+        assertEquals("Month", "2017-03", builder.routers.get(1).apply(event));
+        assertNull("No start", builder.routers.get(0).apply(new VEvent()));
+    }
+
+    @Test
+    public void routeSkipsResultCache() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath).cacheResult("dir", 42)
+            .route("summary", component -> true);
+        when(filterChain.getConfiguration()).thenReturn(Optional.of("filters"));
+
+        builder.rinseRouted();
+
+        verifyZeroInteractions(resultCache);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rinseWithRoutes() throws Exception {
+        Colander.toss(expectedFilePath).routeByType().rinse();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rinseRoutedWithoutRoutes() throws Exception {
+        Colander.toss(expectedFilePath).rinseRouted();
+    }
+
+    @Test
+    public void cache() throws Exception {
+        ColanderBuilder builder = Colander.toss(expectedFilePath).cache("cacheFile");
+
+        assertEquals("Cache file", "cacheFile", builder.cacheFile);
+        assertTrue("Streaming", builder.streaming);
+    }
+
+    @Test
+    public void passthroughUnchanged() throws Exception {
+        ColanderBuilder builder = Colander.toss(expectedFilePath).passthroughUnchanged();
+
+        assertTrue("Passthrough unchanged", builder.passthroughUnchanged);
+        assertTrue("Streaming", builder.streaming);
+    }
+
+    @Test
+    public void cacheResult() throws Exception {
+        ColanderBuilder builder = Colander.toss(expectedFilePath).cacheResult("dir", 42);
+
+        assertEquals("Directory", "dir", builder.resultCacheDirectory);
+        assertEquals("Max size", 42, builder.resultCacheMaxSize);
+        assertFalse("Streaming", builder.streaming);
+    }
+
+    @Test
+    public void rinseResultCacheHit() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath).cacheResult("dir", 42);
+        Fingerprint key = Fingerprint.of("key");
+        when(filterChain.getConfiguration()).thenReturn(Optional.of("filters"));
+        when(resultCache.key(eq(Paths.get(expectedFilePath)), contains("filters"))).thenReturn(key);
+        when(resultCache.get(key)).thenReturn(Paths.get("cached"));
+
+        Colander.ColanderResult result = builder.rinse();
+
+        assertThat(result).isInstanceOf(Colander.CachedColanderResult.class);
+        verify(filterChain, never()).run(any(Calendar.class));
+    }
+
+    @Test
+    public void rinseResultCacheMiss() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath).cacheResult("dir", 42);
+        when(filterChain.getConfiguration()).thenReturn(Optional.of("filters"));
+        when(filterChain.run(any(Calendar.class))).thenReturn(cal);
+
+        Colander.ColanderResult result = builder.rinse();
+
+        assertThat(result).isInstanceOf(Colander.ResultCachingColanderResult.class);
+        assertSame(cal, result.toCalendar());
+    }
+
+    @Test
+    public void rinseResultCacheConfigurationNotDeclared() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(expectedFilePath).cacheResult("dir", 42);
+        when(filterChain.getConfiguration()).thenReturn(Optional.empty());
+
+        Colander.ColanderResult result = builder.rinse();
+
+        assertThat(result).isNotInstanceOf(Colander.ResultCachingColanderResult.class);
+        verifyZeroInteractions(resultCache);
+    }
+
+    @Test
+    public void rinseResultCachingToFile() throws Exception {
+        Colander.ColanderResult result = mock(Colander.ColanderResult.class);
+        Fingerprint key = Fingerprint.of("key");
+        String outputPath = new File(folder.getRoot(), "out.ics").getPath();
+
+        new Colander.ResultCachingColanderResult("in", result, resultCache, key).toFile(outputPath);
+
+        verify(result).toFile(outputPath);
+        verify(resultCache).put(key, Paths.get(outputPath));
+    }
+
+    @Test
+    public void rinseResultCachingToStream() throws Exception {
+        Colander.ColanderResult result = new Colander.ColanderResult("in", cal) {
+            @Override
+            public void toFile(String outputPath) throws IOException {
+                Files.write(Paths.get(outputPath), "rinsed".getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        Fingerprint key = Fingerprint.of("key");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new Colander.ResultCachingColanderResult("in", result, resultCache, key).toStream(output);
+
+        assertEquals("rinsed", output.toString("UTF-8"));
+        verify(resultCache).put(eq(key), any(Path.class));
+    }
+
+    @Test
+    public void rinseCachedToFile() throws Exception {
+        Path cached = folder.newFile().toPath();
+        Files.write(cached, "cached".getBytes(StandardCharsets.UTF_8));
+        Path output = new File(folder.getRoot(), "out.ics").toPath();
+
+        new Colander.CachedColanderResult("in", cached).toFile(output.toString());
+
+        assertEquals("cached", new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = FileAlreadyExistsException.class)
+    public void rinseCachedToFileExists() throws Exception {
+        Path cached = folder.newFile().toPath();
+
+        new Colander.CachedColanderResult("in", cached).toFile(folder.newFile().getPath());
+    }
+
+    @Test
+    public void rinseCachedToStream() throws Exception {
+        Path cached = folder.newFile().toPath();
+        Files.write(cached, "cached".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new Colander.CachedColanderResult("in", cached).toStream(output);
+
+        assertEquals("cached", output.toString("UTF-8"));
+    }
+
+    @Test
+    public void rinseStreamingToFile() throws Exception {
+        StreamingColanderResultForTest colanderResult = new StreamingColanderResultForTest("in", filterChain);
+
+        colanderResult.toFile("out");
+
+        assertSame("in", colanderResult.streamedInputPath);
+        assertSame("out", colanderResult.streamedOutputPath);
+        assertSame(filterChain, colanderResult.streamedFilterChain);
+    }
+
+    @Test
+    public void rinseStreamingToCalendar() throws Exception {
+        StreamingColanderResultForTest colanderResult = new StreamingColanderResultForTest("in", filterChain);
+        when(filterChain.run(cal)).thenReturn(cal);
+
+        assertSame(cal, colanderResult.toCalendar());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rinseStreamingConsumeTwice() throws Exception {
+        StreamingColanderResultForTest colanderResult = new StreamingColanderResultForTest("in", filterChain);
+        colanderResult.toFile("out");
+
+        colanderResult.toFile("out2");
+    }
+
+    @Test
+    public void tossStream() throws Exception {
+        InputStream input = new ByteArrayInputStream(new byte[0]);
+
+        ColanderBuilder builder = Colander.toss(input);
+
+        assertSame(input, builder.input);
+        assertNull(builder.filePath);
+    }
+
+    @Test
+    public void rinseStream() throws Exception {
+        ColanderBuilder builder = new ColanderBuilderForTest(new ByteArrayInputStream(new byte[0])).lazyProperties();
+        when(filterChain.run(cal)).thenReturn(cal);
+
+        assertSame(cal, builder.rinse().toCalendar());
+        verify(filterChain, never()).getAccessedProperties();
+    }
+
+    @Test
+    public void rinseStreamingFromStream() throws Exception {
+        InputStream input = new ByteArrayInputStream(new byte[0]);
+        OutputStream output = new ByteArrayOutputStream();
+        StreamingColanderResultForTest colanderResult = new StreamingColanderResultForTest(input, filterChain);
+
+        colanderResult.toStream(output);
+
+        assertSame(input, colanderResult.streamedInput);
+        assertSame(output, colanderResult.streamedOutput);
+    }
+
+    @Test
+    public void rinseToStream() throws Exception {
+        ColanderResultForTest colanderResult = new ColanderResultForTest("dontcare", cal);
+        OutputStream output = new ByteArrayOutputStream();
+
+        colanderResult.toStream(output);
+
+        assertSame(output, colanderResult.writtenOutput);
+        assertSame(cal, colanderResult.writtenCal);
+    }
+
     @Test
     public void rinseToFile() throws Exception {
         ColanderResultForTest colanderResult = new ColanderResultForTest("dontcare", cal);
@@ -202,8 +561,18 @@ public class ColanderTest {
             super(filePath);
         }
 
+        ColanderBuilderForTest(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        Calendar read(String filePath, Set<String> materializedProperties) throws IOException {
+            readMaterializedProperties = materializedProperties;
+            return cal;
+        }
+
         @Override
-        Calendar read(String filePath) throws IOException {
+        Calendar read(InputStream input) {
             return cal;
         }
 
@@ -211,11 +580,53 @@ public class ColanderTest {
         FilterChain createFilterChain() {
             return filterChain;
         }
+
+        @Override
+        ResultCache createResultCache() {
+            return resultCache;
+        }
+    }
+
+    private class StreamingColanderResultForTest extends Colander.StreamingColanderResult {
+        String streamedInputPath;
+        String streamedOutputPath;
+        FilterChain streamedFilterChain;
+
+        InputStream streamedInput;
+        OutputStream streamedOutput;
+
+        StreamingColanderResultForTest(String inputFilePath, FilterChain filterChain) {
+            super(inputFilePath, filterChain);
+        }
+
+        StreamingColanderResultForTest(InputStream input, FilterChain filterChain) {
+            super(null, input, filterChain, false);
+        }
+
+        @Override
+        void stream(InputStream input, OutputStream output, FilterChain filterChain) {
+            streamedInput = input;
+            streamedOutput = output;
+            streamedFilterChain = filterChain;
+        }
+
+        @Override
+        void stream(String inputFilePath, String outputPath, FilterChain filterChain) {
+            streamedInputPath = inputFilePath;
+            streamedOutputPath = outputPath;
+            streamedFilterChain = filterChain;
+        }
+
+        @Override
+        Calendar read(String inputFilePath) {
+            return cal;
+        }
     }
 
     private class ColanderResultForTest extends Colander.ColanderResult {
         Calendar writtenCal;
         String writtenPath;
+        OutputStream writtenOutput;
 
         ColanderResultForTest(String filePath, Calendar result) {
             super(filePath, result);
@@ -226,6 +637,12 @@ public class ColanderTest {
             writtenCal = result;
             writtenPath = path;
         }
+
+        @Override
+        void write(Calendar result, OutputStream output) {
+            writtenCal = result;
+            writtenOutput = output;
+        }
     }
 
 }
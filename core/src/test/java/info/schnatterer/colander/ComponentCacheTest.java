@@ -0,0 +1,199 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ComponentCacheTest {
+
+    private static final String CONFIGURATION = "configuration";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Fingerprint removed = Fingerprint.of("removed");
+    private final Fingerprint changed = Fingerprint.of("changed");
+    private final Fingerprint unchanged = Fingerprint.of("unchanged");
+
+    @Test
+    public void getPut() throws Exception {
+        try (ComponentCache cache = open(file())) {
+            assertNull("Not cached yet", cache.get(changed));
+
+            putAll(cache);
+
+            assertEntries(cache);
+        }
+    }
+
+    @Test
+    public void getPutAcrossRuns() throws Exception {
+        Path file = file();
+        try (ComponentCache cache = open(file)) {
+            putAll(cache);
+        }
+
+        try (ComponentCache cache = open(file)) {
+            assertEquals("Size", 3, cache.size());
+            assertEntries(cache);
+        }
+    }
+
+    @Test
+    public void putTwice() throws Exception {
+        try (ComponentCache cache = open(file())) {
+            cache.put(changed, "first", true);
+            cache.put(changed, "second", false);
+
+            assertEquals("first", cache.get(changed).getComponent());
+            assertEquals("Size", 1, cache.size());
+        }
+    }
+
+    @Test
+    public void openDifferentConfiguration() throws Exception {
+        Path file = file();
+        try (ComponentCache cache = open(file)) {
+            putAll(cache);
+        }
+
+        try (ComponentCache cache = new ComponentCache(file)) {
+            cache.open("other configuration");
+            assertEquals("Size", 0, cache.size());
+            assertNull("Cached for other configuration", cache.get(changed));
+        }
+    }
+
+    @Test
+    public void openNoCacheFile() throws Exception {
+        Path file = file();
+        Files.write(file, "no cache".getBytes());
+
+        try (ComponentCache cache = open(file)) {
+            assertEquals("Size", 0, cache.size());
+            putAll(cache);
+            assertEntries(cache);
+        }
+    }
+
+    @Test
+    public void openIncompleteRecord() throws Exception {
+        Path file = file();
+        try (ComponentCache cache = open(file)) {
+            putAll(cache);
+        }
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 1));
+
+        try (ComponentCache cache = open(file)) {
+            assertEquals("Size", 2, cache.size());
+            // Use the remaining records, so they are not compacted away
+            cache.get(removed);
+            cache.get(changed);
+            cache.put(unchanged, "unchanged", false);
+        }
+
+        try (ComponentCache cache = open(file)) {
+            assertEntries(cache);
+        }
+    }
+
+    @Test
+    public void closeCompacts() throws Exception {
+        Path file = file();
+        try (ComponentCache cache = open(file)) {
+            putAll(cache);
+        }
+        long sizeBefore = Files.size(file);
+
+        try (ComponentCache cache = open(file)) {
+            cache.get(changed);
+        }
+
+        assertTrue("Not compacted", Files.size(file) < sizeBefore);
+        try (ComponentCache cache = open(file)) {
+            assertEquals("Size", 1, cache.size());
+            assertEquals("changed", cache.get(changed).getComponent());
+        }
+    }
+
+    @Test
+    public void closeDoesNotCompactWhenMostRecordsUsed() throws Exception {
+        Path file = file();
+        try (ComponentCache cache = open(file)) {
+            putAll(cache);
+        }
+
+        try (ComponentCache cache = open(file)) {
+            cache.get(changed);
+            cache.get(unchanged);
+        }
+
+        try (ComponentCache cache = open(file)) {
+            assertEquals("Size", 3, cache.size());
+        }
+    }
+
+    private void putAll(ComponentCache cache) throws Exception {
+        cache.put(removed, null, false);
+        cache.put(changed, "changed", true);
+        cache.put(unchanged, "unchanged", false);
+    }
+
+    private void assertEntries(ComponentCache cache) throws Exception {
+        ComponentCache.Entry removedEntry = cache.get(removed);
+        assertTrue("Removed", removedEntry.isRemoved());
+        assertNull("Removed component", removedEntry.getComponent());
+
+        ComponentCache.Entry changedEntry = cache.get(changed);
+        assertFalse("Changed removed", changedEntry.isRemoved());
+        assertTrue("Changed", changedEntry.isChanged());
+        assertEquals("changed", changedEntry.getComponent());
+
+        ComponentCache.Entry unchangedEntry = cache.get(unchanged);
+        assertFalse("Unchanged", unchangedEntry.isChanged());
+        assertEquals("unchanged", unchangedEntry.getComponent());
+    }
+
+    private Path file() {
+        return folder.getRoot().toPath().resolve("cache");
+    }
+
+    private static ComponentCache open(Path file) throws Exception {
+        ComponentCache cache = new ComponentCache(file);
+        cache.open(CONFIGURATION);
+        return cache;
+    }
+}
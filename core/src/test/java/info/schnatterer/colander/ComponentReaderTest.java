@@ -0,0 +1,230 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import info.schnatterer.colander.test.ITCases;
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VEvent;
+import org.hamcrest.junit.ExpectedException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class ComponentReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void readSameAsCalendarBuilder() throws Exception {
+        String inputPath = ITCases.getFilePathTestIcs(folder);
+        Calendar expectedCalendar = new CalendarBuilder().build(new FileInputStream(inputPath));
+
+        try (ComponentReader reader = new ComponentReader(new FileInputStream(inputPath))) {
+            assertEquals("Calendar properties", expectedCalendar.getProperties(), reader.getCalendarProperties());
+            assertEquals("Components", expectedCalendar.getComponents(), readAll(reader));
+        }
+    }
+
+    @Test
+    public void readFoldedLinesAndSubComponents() throws Exception {
+        ComponentReader reader = createReader(
+            "BEGIN:VCALENDAR",
+            "VERSION:2.0",
+            "BEGIN:VEVENT",
+            "SUMMARY:folded",
+            "  summary",
+            "BEGIN:VALARM",
+            "ACTION:DISPLAY",
+            "END:VALARM",
+            "END:VEVENT",
+            "BEG",
+            " IN:VTODO",
+            "SUMMARY:todo",
+            "END:VTODO",
+            "END:VCALENDAR");
+
+        assertEquals("2.0", reader.getCalendarProperties().getProperty(Property.VERSION).getValue());
+        List<CalendarComponent> components = readAll(reader);
+        assertEquals("Number of components", 2, components.size());
+        VEvent event = (VEvent) components.get(0);
+        assertEquals("folded summary", event.getSummary().getValue());
+        assertEquals("Number of alarms", 1, event.getAlarms().size());
+        assertEquals("todo", components.get(1).getProperty(Property.SUMMARY).getValue());
+        assertThat(reader.read()).isEmpty();
+    }
+
+    @Test
+    public void readNoComponents() throws Exception {
+        ComponentReader reader = createReader("BEGIN:VCALENDAR", "VERSION:2.0", "END:VCALENDAR");
+
+        assertThat(reader.read()).isEmpty();
+        assertEquals("2.0", reader.getCalendarProperties().getProperty(Property.VERSION).getValue());
+    }
+
+    @Test
+    public void readNoCalendar() throws Exception {
+        expectedException.expect(ColanderParserException.class);
+        expectedException.expectMessage("Expected BEGIN:VCALENDAR");
+
+        createReader("BEGIN:VEVENT", "END:VEVENT").read();
+    }
+
+    @Test
+    public void readUnexpectedEnd() throws Exception {
+        expectedException.expect(ColanderParserException.class);
+        expectedException.expectMessage("Unexpected end");
+
+        createReader("BEGIN:VCALENDAR", "BEGIN:VEVENT", "SUMMARY:unfinished").read();
+    }
+
+    @Test
+    public void readPropertyAfterComponent() throws Exception {
+        ComponentReader reader = createReader("BEGIN:VCALENDAR", "BEGIN:VEVENT", "END:VEVENT", "VERSION:2.0",
+            "END:VCALENDAR");
+        reader.read();
+
+        expectedException.expect(ColanderParserException.class);
+        expectedException.expectMessage("VERSION:2.0");
+        reader.read();
+    }
+
+    @Test
+    public void readSourcesFromStream() throws Exception {
+        String header = "BEGIN:VCALENDAR\nVERSION:2.0\n";
+        String event = "\nBEGIN:VEVENT\nSUMMARY:fol\r\n ded\nEND:VEVENT\n";
+        String todo = "BEGIN:VTODO\r\nEND:VTODO\r\n";
+        String trailer = "\r\nEND:VCALENDAR\n";
+        ComponentReader reader = new ComponentReader(
+            new ByteArrayInputStream((header + event + todo + trailer).getBytes(StandardCharsets.UTF_8)), true);
+
+        assertEquals(header, new String(reader.getHeaderSource().getBytes(), StandardCharsets.UTF_8));
+        assertThat(reader.read()).isPresent();
+        assertEquals(event, new String(reader.getComponentSource().getBytes(), StandardCharsets.UTF_8));
+        assertThat(reader.read()).isPresent();
+        assertEquals(todo, new String(reader.getComponentSource().getBytes(), StandardCharsets.UTF_8));
+        assertThat(reader.read()).isEmpty();
+        assertEquals(trailer, new String(reader.getTrailerSource().getBytes(), StandardCharsets.UTF_8));
+        assertThat(reader.getComponentSource()).isNull();
+    }
+
+    @Test
+    public void readSourcesFromFile() throws Exception {
+        File input = new File(ITCases.getFilePathTestIcs(folder));
+        byte[] expected = Files.readAllBytes(input.toPath());
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (ComponentReader reader = new ComponentReader(new FileInputStream(input), true)) {
+            SourceRange header = reader.getHeaderSource();
+            assertEquals("Header position", 0, header.getPosition());
+            append(actual, header);
+            long end = header.getLength();
+            while (reader.read().isPresent()) {
+                SourceRange component = reader.getComponentSource();
+                assertThat(component.getBytes()).isNull();
+                assertEquals("Component position", end, component.getPosition());
+                append(actual, component);
+                end += component.getLength();
+            }
+            append(actual, reader.getTrailerSource());
+        }
+
+        assertEquals(new String(expected, StandardCharsets.UTF_8),
+            new String(actual.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readWithoutSources() throws Exception {
+        ComponentReader reader = createReader("BEGIN:VCALENDAR", "BEGIN:VEVENT", "END:VEVENT", "END:VCALENDAR");
+
+        assertThat(reader.getHeaderSource()).isNull();
+        assertThat(reader.read()).isPresent();
+        assertThat(reader.getComponentSource()).isNull();
+        assertThat(reader.read()).isEmpty();
+        assertThat(reader.getTrailerSource()).isNull();
+    }
+
+    private void append(ByteArrayOutputStream output, SourceRange range) throws Exception {
+        byte[] bytes = new byte[(int) range.getLength()];
+        range.getChannel().read(ByteBuffer.wrap(bytes), range.getPosition());
+        output.write(bytes);
+    }
+
+    @Test
+    public void readRawAndParse() throws Exception {
+        ComponentReader reader = createReader(
+            "BEGIN:VCALENDAR",
+            "VERSION:2.0",
+            "BEGIN:VEVENT",
+            "SUMMARY:folded",
+            "  summary",
+            "END:VEVENT",
+            "",
+            "END:VCALENDAR");
+
+        ComponentReader.RawComponent rawComponent = reader.readRaw().orElseThrow(AssertionError::new);
+
+        assertEquals("Name", "VEVENT", rawComponent.getName());
+        assertEquals("Content", "BEGIN:VEVENT\r\nSUMMARY:folded\r\n  summary\r\nEND:VEVENT\r\n",
+            new String(rawComponent.getContent(), StandardCharsets.UTF_8));
+        assertEquals("Parsed summary", "folded summary",
+            reader.parse(rawComponent).getProperty(Property.SUMMARY).getValue());
+        assertThat(reader.readRaw()).isEmpty();
+    }
+
+    private ComponentReader createReader(String... lines) {
+        return new ComponentReader(
+            new ByteArrayInputStream((String.join("\r\n", lines) + "\r\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private List<CalendarComponent> readAll(ComponentReader reader) throws Exception {
+        List<CalendarComponent> components = new ArrayList<>();
+        Optional<CalendarComponent> component = reader.read();
+        while (component.isPresent()) {
+            components.add(component.get());
+            component = reader.read();
+        }
+        return components;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import info.schnatterer.colander.test.ITCases;
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.data.CalendarOutputter;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.PropertyList;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ComponentWriterTest {
+    private static final VEvent EVENT = new VEvent(new PropertyList<>());
+    private static final String EXPECTED_FROM_FILE = "0123" + EVENT + "4567" + "89";
+
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeSameAsCalendarOutputter() throws Exception {
+        Calendar calendar = new CalendarBuilder().build(new FileInputStream(ITCases.getFilePathTestIcs(folder)));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new CalendarOutputter(false).output(calendar, expected);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (ComponentWriter writer = new ComponentWriter(actual)) {
+            writer.writeStart(calendar.getProperties());
+            for (CalendarComponent component : calendar.getComponents()) {
+                writer.write(component);
+            }
+            writer.writeEnd();
+        }
+
+        assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+    }
+
+    @Test
+    public void writeVerbatimBytes() throws Exception {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (ComponentWriter writer = new ComponentWriter(actual)) {
+            writer.writeVerbatim(SourceRange.of(bytes("BEGIN:VCALENDAR\n")));
+            writer.write(EVENT);
+            writer.writeVerbatim(SourceRange.of(bytes("BEGIN:VTODO\nEND:VTODO\n")));
+            writer.writeEnd();
+        }
+
+        assertEquals("BEGIN:VCALENDAR\n" + EVENT + "BEGIN:VTODO\nEND:VTODO\nEND:VCALENDAR\r\n",
+            actual.toString("UTF-8"));
+    }
+
+    @Test
+    public void writeVerbatimFromFileToFile() throws Exception {
+        File output = folder.newFile();
+        writeVerbatimFromFile(new FileOutputStream(output));
+
+        assertEquals(EXPECTED_FROM_FILE, new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeVerbatimFromFileToStream() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeVerbatimFromFile(output);
+
+        assertEquals(EXPECTED_FROM_FILE, output.toString("UTF-8"));
+    }
+
+    @Test
+    public void writeVerbatimCompressedCloseToGzip() throws Exception {
+        // Alternate between serialized components and verbatim ranges, as when passing through unchanged components
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ComponentWriter writer = new ComponentWriter(new ParallelGzipOutputStream(compressed))) {
+            for (int i = 0; i < 10_000; i++) {
+                String verbatim = "BEGIN:VTODO\r\nUID:" + i + "\r\nEND:VTODO\r\n";
+                writer.write(EVENT);
+                writer.writeVerbatim(SourceRange.of(bytes(verbatim)));
+                plain.write(bytes(EVENT + verbatim));
+            }
+        }
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        try (OutputStream output = new GZIPOutputStream(sequential)) {
+            output.write(plain.toByteArray());
+        }
+
+        assertArrayEquals(plain.toByteArray(), readAllBytes(new GZIPInputStream(
+            new ByteArrayInputStream(compressed.toByteArray()))));
+        assertTrue("Compressed size " + compressed.size() + " not close to " + sequential.size(),
+            compressed.size() < sequential.size() * 1.1);
+    }
+
+    /**
+     * Writes some ranges of the input file "0123456789" verbatim, with a component written in between.
+     */
+    private void writeVerbatimFromFile(OutputStream output) throws IOException {
+        File input = folder.newFile();
+        Files.write(input.toPath(), bytes("0123456789"));
+        try (FileInputStream in = new FileInputStream(input);
+             ComponentWriter writer = new ComponentWriter(output)) {
+            writer.writeVerbatim(SourceRange.of(in.getChannel(), 0, 2));
+            // Subsequent ranges are joined
+            writer.writeVerbatim(SourceRange.of(in.getChannel(), 2, 2));
+            writer.write(EVENT);
+            writer.writeVerbatim(SourceRange.of(in.getChannel(), 4, 4));
+            writer.writeEnd(SourceRange.of(in.getChannel(), 8, 2));
+        }
+    }
+
+    private static byte[] readAllBytes(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
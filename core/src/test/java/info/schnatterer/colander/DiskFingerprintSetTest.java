@@ -0,0 +1,103 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiskFingerprintSetTest {
+
+    @Test
+    public void add() throws Exception {
+        try (DiskFingerprintSet set = new DiskFingerprintSet(false, DiskFingerprintSet.MIN_MEMORY_BUDGET)) {
+            assertTrue(set.add("a"));
+            assertTrue(set.add("b"));
+            assertFalse(set.add("a"));
+            assertFalse(set.add("b"));
+        }
+    }
+
+    @Test
+    public void addSameAsInMemory() throws Exception {
+        testSameAsInMemory(false);
+    }
+
+    @Test
+    public void addSameAsInMemoryExactComparison() throws Exception {
+        testSameAsInMemory(true);
+    }
+
+    @Test
+    public void addEvictsLoadedPartitions() throws Exception {
+        try (DiskFingerprintSet set = new DiskFingerprintSet(true, DiskFingerprintSet.MIN_MEMORY_BUDGET)) {
+            // Long strings, so loaded partitions quickly exceed the memory budget
+            String padding = new String(new char[10_000]).replace('\0', 'x');
+            for (int i = 0; i < 500; i++) {
+                assertTrue(set.add(padding + i));
+            }
+            for (int i = 0; i < 500; i++) {
+                assertFalse(set.add(padding + i));
+            }
+            assertTrue("Loaded partitions not evicted",
+                set.getLoadedPartitionCount() < DiskFingerprintSet.PARTITIONS);
+        }
+    }
+
+    @Test
+    public void close() throws Exception {
+        DiskFingerprintSet set = new DiskFingerprintSet(false, DiskFingerprintSet.MIN_MEMORY_BUDGET);
+        set.add("a");
+        Path directory = set.getDirectory();
+        assertTrue("Spill directory not created", Files.isDirectory(directory));
+
+        set.close();
+
+        assertFalse("Spill directory not deleted", Files.exists(directory));
+        assertTrue("Not reset", set.add("a"));
+        set.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void memoryBudgetTooSmall() {
+        new DiskFingerprintSet(false, DiskFingerprintSet.MIN_MEMORY_BUDGET - 1);
+    }
+
+    private void testSameAsInMemory(boolean exactComparison) throws Exception {
+        Random random = new Random(42);
+        FingerprintSet expected = new FingerprintSet(exactComparison);
+        try (DiskFingerprintSet actual = new DiskFingerprintSet(exactComparison, DiskFingerprintSet.MIN_MEMORY_BUDGET)) {
+            for (int i = 0; i < 50_000; i++) {
+                String string = Integer.toString(random.nextInt(20_000));
+                assertEquals("Different result for " + string, expected.add(string), actual.add(string));
+            }
+        }
+    }
+}
@@ -26,25 +26,44 @@ package info.schnatterer.colander;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.ComponentList;
 import net.fortuna.ical4j.model.Date;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyList;
 import net.fortuna.ical4j.model.component.*;
 import net.fortuna.ical4j.model.property.Summary;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 public class FilterChainTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private ColanderFilter passThroughFilter1 = mock(ColanderFilter.class);
     private ColanderFilter passThroughFilter2 = mock(ColanderFilter.class);
     private VEvent inputEvent = new VEvent();
@@ -80,6 +99,24 @@ public class FilterChainTest {
         otherComponents.forEach( calendarComponent -> outputCalendar.getComponents().contains(calendarComponent));
     }
 
+    @Test
+    public void getAccessedProperties() {
+        when(passThroughFilter1.getAccessedProperties()).thenReturn(Optional.of(Collections.singleton(Property.SUMMARY)));
+        when(passThroughFilter2.getAccessedProperties()).thenReturn(Optional.of(Collections.singleton(Property.DTSTART)));
+
+        assertThat(new FilterChain(Arrays.asList(passThroughFilter1, passThroughFilter2)).getAccessedProperties())
+            .hasValueSatisfying(properties ->
+                assertThat(properties).containsExactlyInAnyOrder(Property.SUMMARY, Property.DTSTART));
+    }
+
+    @Test
+    public void getAccessedPropertiesNotDeclared() {
+        when(passThroughFilter1.getAccessedProperties()).thenReturn(Optional.of(Collections.singleton(Property.SUMMARY)));
+
+        assertThat(new FilterChain(Arrays.asList(passThroughFilter1, passThroughFilter2)).getAccessedProperties())
+            .isEmpty();
+    }
+
     @Test
     public void testParseDelete() {
 
@@ -106,6 +143,330 @@ public class FilterChainTest {
         assertTrue("Event 2 not in output calender", outputCalendar.getComponents().contains(event2));
     }
 
+    @Test
+    public void testParseClosesCloseableFilters() throws Exception {
+        ClosableFilter closeableFilter = mock(ClosableFilter.class);
+        when(closeableFilter.apply(any(VEvent.class))).thenAnswer(new PassThroughAnswer());
+        FilterChain pipe = new FilterChain(Arrays.asList(passThroughFilter1, closeableFilter));
+
+        pipe.run(new Calendar(new ComponentList<CalendarComponent>() {{
+            add(inputEvent);
+        }}));
+
+        InOrder inOrder = inOrder(closeableFilter);
+        inOrder.verify(closeableFilter).apply(inputEvent);
+        inOrder.verify(closeableFilter).close();
+    }
+
+    @Test
+    public void testParseClosesCloseableFiltersOnException() throws Exception {
+        ClosableFilter closeableFilter = mock(ClosableFilter.class);
+        when(closeableFilter.apply(any(VEvent.class))).thenThrow(new ColanderParserException("mocked"));
+        FilterChain pipe = new FilterChain(Collections.singletonList(closeableFilter));
+
+        try {
+            pipe.run(new Calendar(new ComponentList<CalendarComponent>() {{
+                add(inputEvent);
+            }}));
+        } catch (ColanderParserException e) {
+            // Expected
+        }
+
+        verify(closeableFilter).close();
+    }
+
+    @Test
+    public void testParseAdaptiveOrder() {
+        testParseAdaptiveOrder(null);
+    }
+
+    @Test
+    public void testParseAdaptiveOrderParallel() {
+        testParseAdaptiveOrder(new ForkJoinPool(2));
+    }
+
+    private void testParseAdaptiveOrder(ForkJoinPool pool) {
+        ColanderFilter keepFilter = mock(ColanderFilter.class);
+        when(keepFilter.apply(any(VEvent.class))).thenAnswer(new PassThroughAnswer());
+        when(keepFilter.isStateless()).thenReturn(true);
+        when(keepFilter.getAccessedProperties()).thenReturn(Optional.of(Collections.singleton(Property.DESCRIPTION)));
+        ColanderFilter removeFilter = mock(ColanderFilter.class);
+        when(removeFilter.apply(any(VEvent.class))).thenReturn(Optional.empty());
+        when(removeFilter.isStateless()).thenReturn(true);
+        when(removeFilter.getAccessedProperties()).thenReturn(Optional.of(Collections.singleton(Property.SUMMARY)));
+        int components = pool == null ? 3 : FilterChain.PARALLEL_BATCH_SIZE + 1;
+        Calendar cal = new Calendar();
+        for (int i = 0; i < components; i++) {
+            cal.getComponents().add(new VEvent(new Date(), "event" + i));
+        }
+        FilterChain pipe = new FilterChain(Arrays.asList(keepFilter, removeFilter), pool, 1);
+
+        assertThat(pipe.run(cal).getComponents()).isEmpty();
+
+        // Reordered after the first component (sequential) or the first batch (parallel)
+        int sample = pool == null ? 1 : FilterChain.PARALLEL_BATCH_SIZE;
+        assertEquals("Invocations of keep filter", sample, pipe.getStatistics().get(0).getInvocations());
+        assertEquals("Invocations of remove filter", components, pipe.getStatistics().get(1).getInvocations());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        VEvent event1 = new VEvent(new Date(), "event1");
+        VEvent event2 = new VEvent(new Date(), "event2");
+        ComponentReader reader = mock(ComponentReader.class);
+        ComponentWriter writer = mockWriter();
+        PropertyList<Property> calendarProperties = new PropertyList<>();
+        when(reader.getCalendarProperties()).thenReturn(calendarProperties);
+        stubRead(reader, event1, event2);
+
+        ColanderFilter deleteEventFilter = mock(ColanderFilter.class);
+        when(deleteEventFilter.apply(any(VEvent.class))).thenAnswer(new PassThroughAnswer());
+        when(deleteEventFilter.apply(event1)).thenReturn(Optional.empty());
+        FilterChain pipe = new FilterChain(Arrays.asList(passThroughFilter1, deleteEventFilter));
+
+        pipe.run(reader, writer);
+
+        InOrder inOrder = inOrder(writer);
+        inOrder.verify(writer).writeStart(calendarProperties);
+        inOrder.verify(writer).write(event2);
+        inOrder.verify(writer).writeEnd();
+        verify(writer, never()).write(event1);
+    }
+
+    @Test
+    public void testStreamPassthroughUnchanged() throws Exception {
+        testStreamPassthroughUnchanged(null);
+    }
+
+    @Test
+    public void testStreamPassthroughUnchangedParallel() throws Exception {
+        testStreamPassthroughUnchanged(new ForkJoinPool(2));
+    }
+
+    private void testStreamPassthroughUnchanged(ForkJoinPool pool) throws Exception {
+        VEvent removed = new VEvent(new Date(), "removed");
+        VEvent changed = new VEvent(new Date(), "changed");
+        VEvent unchanged = new VEvent(new Date(), "unchanged");
+        SourceRange header = SourceRange.of(new byte[1]);
+        SourceRange unchangedSource = SourceRange.of(new byte[2]);
+        SourceRange trailer = SourceRange.of(new byte[3]);
+        ComponentReader reader = mock(ComponentReader.class);
+        ComponentWriter writer = mockWriter();
+        when(reader.getHeaderSource()).thenReturn(header);
+        stubRead(reader, removed, changed, unchanged);
+        when(reader.getComponentSource()).thenReturn(SourceRange.of(new byte[4]), SourceRange.of(new byte[5]),
+            unchangedSource);
+        when(reader.getTrailerSource()).thenReturn(trailer);
+
+        VerdictColanderFilter filter = component -> {
+            if (component == removed) {
+                return FilterVerdict.removed();
+            }
+            return component == changed ? FilterVerdict.changed(component) : FilterVerdict.unchanged(component);
+        };
+        new FilterChain(Arrays.asList(passThroughFilter1, filter), pool).run(reader, writer);
+
+        InOrder inOrder = inOrder(writer);
+        inOrder.verify(writer).writeVerbatim(header);
+        inOrder.verify(writer).write(changed);
+        inOrder.verify(writer).writeVerbatim(unchangedSource);
+        inOrder.verify(writer).writeEnd(trailer);
+        verify(writer, never()).writeStart(any());
+        verify(writer, never()).write(removed);
+        verify(writer, never()).write(unchanged);
+        verify(writer, times(2)).writeVerbatim(any());
+    }
+
+    @Test
+    public void testParallelSameAsSequential() {
+        List<CalendarComponent> components = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            components.add(new VEvent(new Date(0), "event" + (i % 300) + (i % 7 == 0 ? " remove" : "")));
+            if (i % 100 == 0) {
+                components.add(new VToDo(new Date(0), "todo" + i));
+            }
+        }
+
+        Calendar sequential = createStatefulChain(null).run(createCalendar(components));
+        Calendar parallel = createStatefulChain(new ForkJoinPool(4)).run(createCalendar(components));
+
+        assertThat(parallel.getComponents()).hasSize(sequential.getComponents().size());
+        assertThat(summaries(parallel)).containsExactlyElementsOf(summaries(sequential));
+    }
+
+    @Test
+    public void testStatistics() {
+        testStatistics(null);
+    }
+
+    @Test
+    public void testStatisticsParallel() {
+        testStatistics(new ForkJoinPool(2));
+    }
+
+    private void testStatistics(ForkJoinPool pool) {
+        List<CalendarComponent> components = Arrays.asList(
+            new VEvent(new Date(0), "event1"),
+            new VEvent(new Date(0), "event2 remove"),
+            new VEvent(new Date(0), "event3"));
+        RemoveFilter removeFilter = new RemoveFilter("remove", Property.SUMMARY);
+        ReplaceFilter replaceFilter = new ReplaceFilter("event3", "evt3", Property.SUMMARY);
+        FilterChain pipe = new FilterChain(Arrays.asList(removeFilter, replaceFilter), pool);
+
+        pipe.run(createCalendar(components));
+
+        List<FilterStatistics> statistics = pipe.getStatistics();
+        assertThat(statistics).hasSize(2);
+        assertStatistics(statistics.get(0), removeFilter, 3, 1, 0);
+        assertStatistics(statistics.get(1), replaceFilter, 2, 0, 1);
+    }
+
+    private void assertStatistics(FilterStatistics statistics, ColanderFilter expectedFilter, long expectedInvocations,
+                                  long expectedRemoved, long expectedChanged) {
+        assertSame(expectedFilter, statistics.getFilter());
+        assertEquals("Invocations", expectedInvocations, statistics.getInvocations());
+        assertEquals("Removed", expectedRemoved, statistics.getRemoved());
+        assertEquals("Changed", expectedChanged, statistics.getChanged());
+        assertTrue("Nanos", statistics.getNanos() > 0);
+    }
+
+    @Test
+    public void testStatisticsVerdict() {
+        VEvent event = new VEvent(new Date(0), "event");
+        // Changes the event, but reports it as unchanged: The verdict is trusted, no hash codes are compared
+        VerdictColanderFilter unreportedChange = component -> {
+            ((VEvent) component).getSummary().setValue("changed");
+            return FilterVerdict.unchanged(component);
+        };
+        VerdictColanderFilter reportedChange = FilterVerdict::changed;
+        FilterChain pipe = new FilterChain(Arrays.asList(unreportedChange, reportedChange));
+
+        pipe.run(createCalendar(Collections.singletonList(event)));
+
+        assertEquals("Changed", 0, pipe.getStatistics().get(0).getChanged());
+        assertEquals("Changed", 1, pipe.getStatistics().get(1).getChanged());
+    }
+
+    @Test
+    public void testStatisticsFiltersNotReportingChanges() {
+        VEvent event = new VEvent(new Date(0), "event");
+        ColanderFilter changeInPlace = component -> {
+            ((VEvent) component).getSummary().setValue("changed");
+            return Optional.of(component);
+        };
+        ColanderFilter replaceComponent = component -> Optional.of(new VEvent(new Date(0), "changed"));
+        FilterChain pipe = new FilterChain(Arrays.asList(passThroughFilter1, changeInPlace, replaceComponent));
+
+        pipe.run(createCalendar(Collections.singletonList(event)));
+
+        assertEquals("Changed", 0, pipe.getStatistics().get(0).getChanged());
+        assertEquals("Changed in place", 0, pipe.getStatistics().get(1).getChanged());
+        assertEquals("Replaced", 1, pipe.getStatistics().get(2).getChanged());
+    }
+
+    @Test
+    public void testStatisticsChangedInPlace() {
+        VEvent changed = new VEvent(new Date(0), "changed");
+        VEvent unchanged = new VEvent(new Date(0), "unchanged");
+        ColanderFilter changeInPlace = component -> {
+            Summary summary = ((VEvent) component).getSummary();
+            if (summary.getValue().equals("changed")) {
+                summary.setValue("changed!");
+            }
+            return Optional.of(component);
+        };
+        FilterChain pipe = new FilterChain(Arrays.asList(passThroughFilter1, changeInPlace));
+
+        pipe.run(createCalendar(Arrays.asList(changed, unchanged)));
+
+        assertEquals("Before", 0, pipe.getStatistics().get(0).getChanged());
+        assertEquals("Changed in place", 1, pipe.getStatistics().get(1).getChanged());
+    }
+
+    @Test
+    public void testStreamPassthroughChangedInPlace() throws Exception {
+        VEvent changed = new VEvent(new Date(0), "changed");
+        VEvent unchanged = new VEvent(new Date(0), "unchanged");
+        SourceRange unchangedSource = SourceRange.of(new byte[2]);
+        ComponentReader reader = stubRead(mock(ComponentReader.class), changed, unchanged);
+        when(reader.getComponentSource()).thenReturn(SourceRange.of(new byte[1]), unchangedSource);
+        ComponentWriter writer = mockWriter();
+        ColanderFilter changeInPlace = component -> {
+            if (component == changed) {
+                changed.getSummary().setValue("changed!");
+            }
+            return Optional.of(component);
+        };
+
+        new FilterChain(Arrays.asList(passThroughFilter1, changeInPlace)).run(reader, writer);
+
+        verify(writer).write(changed);
+        verify(writer).writeVerbatim(unchangedSource);
+        verify(writer, never()).write(unchanged);
+    }
+
+    @Test
+    public void testDispatchByComponentType() {
+        testDispatchByComponentType(null);
+    }
+
+    @Test
+    public void testDispatchByComponentTypeParallel() {
+        testDispatchByComponentType(new ForkJoinPool(2));
+    }
+
+    private void testDispatchByComponentType(ForkJoinPool pool) {
+        List<CalendarComponent> components = Arrays.asList(
+            new VTimeZone(),
+            new VEvent(new Date(0), "event"),
+            new VToDo(new Date(0), "todo"));
+        RemoveEmptyEventFilter eventFilter = new RemoveEmptyEventFilter();
+        RemoveFilter removeFilter = new RemoveFilter("remove", Property.SUMMARY);
+        FilterChain pipe = new FilterChain(Arrays.asList(eventFilter, removeFilter), pool);
+
+        Calendar result = pipe.run(createCalendar(components));
+
+        assertThat(result.getComponents()).hasSize(3);
+        assertEquals("Event filter invocations", 1, pipe.getStatistics().get(0).getInvocations());
+        assertEquals("Remove filter invocations", 3, pipe.getStatistics().get(1).getInvocations());
+    }
+
+    @Test
+    public void testDispatchComponentTypeChanged() {
+        ColanderFilter todoToEvent = component -> Optional.of(
+            component instanceof VToDo ? new VEvent(new Date(0), "former todo") : component);
+        TypedColanderFilter<VEvent> removeEvents = new TypedColanderFilter<VEvent>(VEvent.class) {
+            @Override
+            protected Optional<CalendarComponent> applyTyped(VEvent concreteComponent) {
+                return Optional.empty();
+            }
+        };
+        FilterChain pipe = new FilterChain(Arrays.asList(todoToEvent, removeEvents));
+
+        assertThat(pipe.filterEvent(new VToDo(new Date(0), "todo"))).isEmpty();
+    }
+
+    @Test
+    public void testStreamParallel() throws Exception {
+        VEvent event1 = new VEvent(new Date(), "event1");
+        VEvent event2 = new VEvent(new Date(), "event2");
+        VEvent event3 = new VEvent(new Date(), "event3");
+        ComponentReader reader = mock(ComponentReader.class);
+        ComponentWriter writer = mockWriter();
+        when(reader.getCalendarProperties()).thenReturn(new PropertyList<>());
+        stubRead(reader, event1, event2, event3);
+        FilterChain pipe = new FilterChain(Collections.singletonList(new RemoveFilter("2", Property.SUMMARY)),
+            new ForkJoinPool(2));
+
+        pipe.run(reader, writer);
+
+        InOrder inOrder = inOrder(writer);
+        inOrder.verify(writer).write(event1);
+        inOrder.verify(writer).write(event3);
+        inOrder.verify(writer).writeEnd();
+        verify(writer, never()).write(event2);
+    }
+
     @Test
     public void testFilterEvent() {
         FilterChain pipe = new FilterChain(Arrays.asList(passThroughFilter1, passThroughFilter2));
@@ -128,6 +489,203 @@ public class FilterChainTest {
         assertThat(vEvent).withFailMessage("Event not deleted").isEmpty();
     }
 
+    @Test
+    public void getConfiguration() {
+        FilterChain pipe = new FilterChain(Arrays.asList(
+            new RemoveFilter("a", Property.SUMMARY), new RemoveEmptyEventFilter()));
+
+        assertThat(pipe.getConfiguration()).contains(FilterConfiguration.of("FilterChain", Arrays.asList(
+            FilterConfiguration.of("RemoveFilter", Property.SUMMARY, "a"),
+            FilterConfiguration.of("RemoveEmptyEventFilter"))));
+    }
+
+    @Test
+    public void getConfigurationNotDeclared() {
+        FilterChain pipe = new FilterChain(Arrays.asList(new RemoveEmptyEventFilter(), passThroughFilter1));
+
+        assertThat(pipe.getConfiguration()).isEmpty();
+    }
+
+    @Test
+    public void testStreamCache() throws Exception {
+        testStreamCache(null);
+    }
+
+    @Test
+    public void testStreamCacheParallel() throws Exception {
+        testStreamCache(new ForkJoinPool(2));
+    }
+
+    private void testStreamCache(ForkJoinPool pool) throws Exception {
+        VEvent removed = new VEvent(new Date(), "removed");
+        VEvent changed = new VEvent(new Date(), "changed");
+        VEvent unchanged = new VEvent(new Date(), "unchanged");
+        CountingFilter filter = new CountingFilter();
+        ComponentCache cache = new ComponentCache(folder.getRoot().toPath().resolve("cache"));
+
+        ComponentWriter writer = mockWriter();
+        new FilterChain(Collections.singletonList(filter), pool, 0, cache)
+            .run(stubRead(mock(ComponentReader.class), removed, changed, unchanged), writer);
+        assertEquals("Invocations first run", 3, filter.invocations.get());
+        verify(writer).write(changed.toString());
+        verify(writer).write(unchanged.toString());
+
+        writer = mockWriter();
+        FilterChain pipe = new FilterChain(Collections.singletonList(filter), pool, 0, cache);
+        ComponentReader reader = stubRead(mock(ComponentReader.class), removed, changed, unchanged);
+        pipe.run(reader, writer);
+
+        assertEquals("Invocations second run", 3, filter.invocations.get());
+        verify(reader, never()).parse(any());
+        InOrder inOrder = inOrder(writer);
+        inOrder.verify(writer).write(changed.toString());
+        inOrder.verify(writer).write(unchanged.toString());
+        inOrder.verify(writer).writeEnd();
+        verify(writer, times(2)).write(anyString());
+        verify(writer, never()).write(any(CalendarComponent.class));
+    }
+
+    @Test
+    public void testStreamCachePassthroughUnchanged() throws Exception {
+        VEvent changed = new VEvent(new Date(), "changed");
+        VEvent unchanged = new VEvent(new Date(), "unchanged");
+        SourceRange changedSource = SourceRange.of(new byte[1]);
+        SourceRange unchangedSource = SourceRange.of(new byte[2]);
+        CountingFilter filter = new CountingFilter();
+        ComponentCache cache = new ComponentCache(folder.getRoot().toPath().resolve("cache"));
+        new FilterChain(Collections.singletonList(filter), null, 0, cache)
+            .run(stubRead(mock(ComponentReader.class), changed, unchanged), mockWriter());
+
+        ComponentReader reader = stubRead(mock(ComponentReader.class), changed, unchanged);
+        when(reader.getComponentSource()).thenReturn(changedSource, unchangedSource);
+        ComponentWriter writer = mockWriter();
+        new FilterChain(Collections.singletonList(filter), null, 0, cache).run(reader, writer);
+
+        verify(writer).write(changed.toString());
+        verify(writer).writeVerbatim(unchangedSource);
+        verify(writer, never()).writeVerbatim(changedSource);
+    }
+
+    @Test
+    public void testStreamCacheTimeZonesAlwaysParsed() throws Exception {
+        VTimeZone timeZone = new VTimeZone();
+        CountingFilter filter = new CountingFilter();
+        ComponentCache cache = new ComponentCache(folder.getRoot().toPath().resolve("cache"));
+        for (int run = 0; run < 2; run++) {
+            ComponentReader reader = stubRead(mock(ComponentReader.class), timeZone);
+            new FilterChain(Collections.singletonList(filter), null, 0, cache).run(reader, mockWriter());
+            verify(reader).parse(any());
+        }
+        assertEquals("Invocations", 2, filter.invocations.get());
+    }
+
+    @Test
+    public void testStreamCacheStatefulFilter() throws Exception {
+        testStreamCacheNotUsed(new RemoveDuplicateEventFilter());
+    }
+
+    @Test
+    public void testStreamCacheConfigurationNotDeclared() throws Exception {
+        testStreamCacheNotUsed(passThroughFilter1);
+    }
+
+    private void testStreamCacheNotUsed(ColanderFilter filter) throws Exception {
+        ComponentCache cache = mock(ComponentCache.class);
+        when(passThroughFilter1.isStateless()).thenReturn(true);
+
+        new FilterChain(Collections.singletonList(filter), null, 0, cache)
+            .run(stubRead(mock(ComponentReader.class), inputEvent), mockWriter());
+
+        verifyZeroInteractions(cache);
+    }
+
+    /**
+     * Stubs {@link ComponentReader#readRaw()} and {@link ComponentReader#parse(ComponentReader.RawComponent)}, so
+     * that {@code reader} returns {@code components}.
+     */
+    private static ComponentReader stubRead(ComponentReader reader, CalendarComponent... components)
+        throws IOException {
+        List<Optional<ComponentReader.RawComponent>> rawComponents = new ArrayList<>();
+        for (CalendarComponent component : components) {
+            ComponentReader.RawComponent rawComponent = new ComponentReader.RawComponent(component.getName(),
+                component.toString().getBytes(StandardCharsets.UTF_8));
+            when(reader.parse(rawComponent)).thenReturn(component);
+            rawComponents.add(Optional.of(rawComponent));
+        }
+        rawComponents.add(Optional.empty());
+        when(reader.readRaw()).thenReturn(rawComponents.get(0),
+            rawComponents.subList(1, rawComponents.size()).toArray(new Optional[0]));
+        return reader;
+    }
+
+    /**
+     * @return a mocked writer that writes all components itself, like an unrouted {@link ComponentWriter}
+     */
+    private static ComponentWriter mockWriter() throws IOException {
+        ComponentWriter writer = mock(ComponentWriter.class);
+        when(writer.route(any())).thenReturn(writer);
+        return writer;
+    }
+
+    private FilterChain createStatefulChain(ForkJoinPool pool) {
+        return new FilterChain(Arrays.asList(
+            new RemoveFilter("remove", Property.SUMMARY),
+            new ReplaceFilter("event", "evt", Property.SUMMARY),
+            new RemoveDuplicateEventFilter(),
+            new RemoveFilter("evt1", Property.SUMMARY)),
+            pool);
+    }
+
+    private Calendar createCalendar(List<CalendarComponent> components) {
+        ComponentList<CalendarComponent> componentList = new ComponentList<>();
+        components.forEach(component -> componentList.add(copy(component)));
+        return new Calendar(componentList);
+    }
+
+    private CalendarComponent copy(CalendarComponent component) {
+        try {
+            return (CalendarComponent) component.copy();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<String> summaries(Calendar calendar) {
+        return calendar.getComponents().stream()
+            .map(component -> component.getName() + component.getProperty(Property.SUMMARY).getValue())
+            .collect(Collectors.toList());
+    }
+
+    private interface ClosableFilter extends ColanderFilter, Closeable { }
+
+    /**
+     * Stateless filter that removes components with summary "removed" and changes the ones with summary "changed".
+     */
+    private static class CountingFilter implements VerdictColanderFilter {
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        @Override
+        public FilterVerdict applyWithVerdict(CalendarComponent component) {
+            invocations.incrementAndGet();
+            Property summaryProperty = component.getProperty(Property.SUMMARY);
+            String summary = summaryProperty == null ? null : summaryProperty.getValue();
+            if ("removed".equals(summary)) {
+                return FilterVerdict.removed();
+            }
+            return "changed".equals(summary) ? FilterVerdict.changed(component) : FilterVerdict.unchanged(component);
+        }
+
+        @Override
+        public boolean isStateless() {
+            return true;
+        }
+
+        @Override
+        public Optional<String> getConfiguration() {
+            return Optional.of("CountingFilter");
+        }
+    }
+
     private static class PassThroughAnswer implements Answer<Optional<CalendarComponent>> {
         @Override
         public Optional<CalendarComponent> answer(InvocationOnMock invocationOnMock) throws Throwable {
@@ -0,0 +1,55 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilterConfigurationTest {
+
+    @Test
+    public void of() {
+        assertThat(FilterConfiguration.of("Filter", "SUMMARY", null, Arrays.asList("a", "bc")))
+            .isEqualTo("Filter(+7:SUMMARY-[2:+1:a+2:bc])");
+    }
+
+    @Test
+    public void ofNoValues() {
+        assertThat(FilterConfiguration.of("Filter")).isEqualTo("Filter()");
+    }
+
+    @Test
+    public void ofUnambiguous() {
+        assertThat(FilterConfiguration.of("Filter", "a", "b"))
+            .isNotEqualTo(FilterConfiguration.of("Filter", "a+1:b"))
+            .isNotEqualTo(FilterConfiguration.of("Filter", Arrays.asList("a", "b")))
+            .isNotEqualTo(FilterConfiguration.of("Filter", "a", Collections.singletonList("b")));
+        assertThat(FilterConfiguration.of("Filter", null, "-"))
+            .isNotEqualTo(FilterConfiguration.of("Filter", "-", null));
+    }
+}
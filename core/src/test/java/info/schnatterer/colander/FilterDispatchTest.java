@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.component.VTimeZone;
+import net.fortuna.ical4j.model.component.VToDo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FilterDispatchTest {
+
+    private final FilterStatistics allTypes = new FilterStatistics(Optional::of);
+    private final FilterStatistics events = new FilterStatistics(new TypedFilter(VEvent.class));
+    private final FilterStatistics eventsAndTodos = new FilterStatistics(new TypedFilter(VEvent.class, VToDo.class));
+
+    private final FilterDispatch dispatch = new FilterDispatch(Arrays.asList(allTypes, events, eventsAndTodos));
+
+    @Test
+    public void getIndices() {
+        assertArrayEquals("Event", new int[] { 0, 1, 2 }, dispatch.getIndices(VEvent.class));
+        assertArrayEquals("ToDo", new int[] { 0, 2 }, dispatch.getIndices(VToDo.class));
+        assertArrayEquals("Time zone", new int[] { 0 }, dispatch.getIndices(VTimeZone.class));
+    }
+
+    @Test
+    public void getIndicesSubclass() {
+        VEvent subclass = new VEvent() { };
+
+        assertArrayEquals(new int[] { 0, 1, 2 }, dispatch.getIndices(subclass.getClass()));
+    }
+
+    @Test
+    public void getIndicesNone() {
+        FilterDispatch eventsOnly = new FilterDispatch(Collections.singletonList(events));
+
+        assertArrayEquals(new int[0], eventsOnly.getIndices(VTimeZone.class));
+    }
+
+    @Test
+    public void getIndicesCached() {
+        assertSame(dispatch.getIndices(VEvent.class), dispatch.getIndices(VEvent.class));
+    }
+
+    @Test
+    public void getPositionAfter() {
+        assertEquals("After first", 1, dispatch.getPositionAfter(VToDo.class, 0));
+        assertEquals("After skipped", 1, dispatch.getPositionAfter(VToDo.class, 1));
+        assertEquals("After last", 2, dispatch.getPositionAfter(VToDo.class, 2));
+    }
+
+    private static class TypedFilter implements ColanderFilter {
+        private final Set<Class<? extends CalendarComponent>> types;
+
+        @SafeVarargs
+        TypedFilter(Class<? extends CalendarComponent>... types) {
+            this.types = new HashSet<>(Arrays.asList(types));
+        }
+
+        @Override
+        public Optional<CalendarComponent> apply(CalendarComponent component) {
+            return Optional.of(component);
+        }
+
+        @Override
+        public Optional<Set<Class<? extends CalendarComponent>>> getComponentTypes() {
+            return Optional.of(types);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Property;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilterOrderTest {
+
+    @Test
+    public void optimize() {
+        FilterStatistics expensive = statistics(filter(Property.DESCRIPTION), 1000, 0);
+        FilterStatistics cheapSelective = statistics(filter(Property.SUMMARY), 10, 5);
+        FilterStatistics cheapLessSelective = statistics(filter(Property.LOCATION), 10, 1);
+
+        assertThat(FilterOrder.optimize(Arrays.asList(expensive, cheapLessSelective, cheapSelective)))
+            .containsExactly(cheapSelective, cheapLessSelective, expensive);
+    }
+
+    @Test
+    public void optimizeKeepsOrderOfSameProperty() {
+        FilterStatistics replace = statistics(filter(Property.SUMMARY), 1000, 0);
+        FilterStatistics removeOther = statistics(filter(Property.DESCRIPTION), 10, 2);
+        FilterStatistics remove = statistics(filter("summary"), 10, 5);
+
+        assertThat(FilterOrder.optimize(Arrays.asList(replace, removeOther, remove)))
+            .containsExactly(removeOther, replace, remove);
+    }
+
+    @Test
+    public void optimizeKeepsOrderOfEqualRank() {
+        FilterStatistics first = statistics(filter(Property.SUMMARY), 10, 0);
+        FilterStatistics second = statistics(filter(Property.DESCRIPTION), 10, 0);
+
+        assertThat(FilterOrder.optimize(Arrays.asList(first, second))).containsExactly(first, second);
+    }
+
+    @Test
+    public void optimizeDoesNotMoveAcrossBarriers() {
+        FilterStatistics expensive1 = statistics(filter(Property.SUMMARY), 1000, 0);
+        FilterStatistics stateful = statistics(mock(ColanderFilter.class), 10, 5);
+        FilterStatistics expensive2 = statistics(filter(Property.SUMMARY), 1000, 0);
+        ColanderFilter undeclaredFilter = mock(ColanderFilter.class);
+        when(undeclaredFilter.isStateless()).thenReturn(true);
+        FilterStatistics undeclared = statistics(undeclaredFilter, 10, 5);
+        FilterStatistics cheap = statistics(filter(Property.DESCRIPTION), 10, 5);
+
+        assertThat(FilterOrder.optimize(Arrays.asList(expensive1, stateful, expensive2, undeclared, cheap)))
+            .containsExactly(expensive1, stateful, expensive2, undeclared, cheap);
+    }
+
+    @Test
+    public void rank() {
+        assertThat(FilterOrder.rank(statistics(filter(Property.SUMMARY), 100, 4))).isEqualTo(25.0);
+        assertThat(FilterOrder.rank(statistics(filter(Property.SUMMARY), 100, 0))).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    private static ColanderFilter filter(String... accessedProperties) {
+        ColanderFilter filter = mock(ColanderFilter.class);
+        when(filter.isStateless()).thenReturn(true);
+        when(filter.getAccessedProperties()).thenReturn(Optional.of(new HashSet<>(Arrays.asList(accessedProperties))));
+        return filter;
+    }
+
+    /**
+     * @return statistics of 10 invocations, taking {@code nanos} altogether
+     */
+    private static FilterStatistics statistics(ColanderFilter filter, long nanos, int removed) {
+        FilterStatistics statistics = new FilterStatistics(filter);
+        for (int i = 0; i < 10; i++) {
+            statistics.record(i == 0 ? nanos : 0, i < removed, false);
+        }
+        return statistics;
+    }
+}
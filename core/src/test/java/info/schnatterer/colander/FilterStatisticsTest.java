@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FilterStatisticsTest {
+    private ColanderFilter filter = new RemoveFilter("a", "b");
+    private FilterStatistics statistics = new FilterStatistics(filter);
+
+    @Test
+    public void record() {
+        statistics.record(10, false, false);
+        statistics.record(20, true, false);
+        statistics.record(30, false, true);
+
+        assertSame(filter, statistics.getFilter());
+        assertEquals("Invocations", 3, statistics.getInvocations());
+        assertEquals("Removed", 1, statistics.getRemoved());
+        assertEquals("Changed", 1, statistics.getChanged());
+        assertEquals("Nanos", 60, statistics.getNanos());
+    }
+
+    @Test
+    public void recordNothing() {
+        assertEquals("Invocations", 0, statistics.getInvocations());
+        assertEquals("Removed", 0, statistics.getRemoved());
+        assertEquals("Changed", 0, statistics.getChanged());
+        assertEquals("Nanos", 0, statistics.getNanos());
+    }
+
+    @Test
+    public void testToString() {
+        statistics.record(TimeUnit.MILLISECONDS.toNanos(42), true, false);
+
+        assertThat(statistics.toString())
+            .contains(filter.toString())
+            .contains("invocations=1")
+            .contains("removed=1")
+            .contains("changed=0")
+            .contains("millis=42");
+    }
+}
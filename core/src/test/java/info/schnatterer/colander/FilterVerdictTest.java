@@ -0,0 +1,68 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.component.VEvent;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FilterVerdictTest {
+    private VEvent event = new VEvent();
+
+    @Test
+    public void unchanged() {
+        FilterVerdict verdict = FilterVerdict.unchanged(event);
+        assertThat(verdict.getComponent()).hasValue(event);
+        assertFalse("Changed", verdict.isChanged());
+        assertFalse("Removed", verdict.isRemoved());
+    }
+
+    @Test
+    public void changed() {
+        FilterVerdict verdict = FilterVerdict.changed(event);
+        assertThat(verdict.getComponent()).hasValue(event);
+        assertTrue("Changed", verdict.isChanged());
+        assertFalse("Removed", verdict.isRemoved());
+    }
+
+    @Test
+    public void removed() {
+        FilterVerdict verdict = FilterVerdict.removed();
+        assertThat(verdict.getComponent()).isEmpty();
+        assertFalse("Changed", verdict.isChanged());
+        assertTrue("Removed", verdict.isRemoved());
+    }
+
+    @Test
+    public void unchangedOrRemoved() {
+        assertThat(FilterVerdict.unchangedOrRemoved(Optional.of(event)).getComponent()).hasValue(event);
+        assertFalse("Changed", FilterVerdict.unchangedOrRemoved(Optional.of(event)).isChanged());
+        assertTrue("Removed", FilterVerdict.unchangedOrRemoved(Optional.empty()).isRemoved());
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintSetTest {
+
+    @Test
+    public void add() {
+        FingerprintSet set = new FingerprintSet(false);
+        assertTrue(set.add("a"));
+        assertTrue(set.add("b"));
+        assertFalse(set.add("a"));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void addEmptyString() {
+        // The fingerprint of the empty string is zero, which is also used for empty slots
+        FingerprintSet set = new FingerprintSet(false);
+        assertTrue(set.add(""));
+        assertFalse(set.add(""));
+    }
+
+    @Test
+    public void addGrows() {
+        FingerprintSet set = new FingerprintSet(true);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue("Not added " + i, set.add(Integer.toString(i)));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse("Added twice " + i, set.add(Integer.toString(i)));
+        }
+        assertEquals(10_000, set.size());
+    }
+
+    @Test
+    public void addCollision() {
+        FingerprintSet set = new FingerprintSet(false);
+        assertTrue(set.add(42, 23, "a"));
+        assertFalse("Same fingerprint is considered equal", set.add(42, 23, "b"));
+    }
+
+    @Test
+    public void addCollisionExactComparison() {
+        FingerprintSet set = new FingerprintSet(true);
+        assertTrue(set.add(42, 23, "a"));
+        assertTrue("Same fingerprint but different string", set.add(42, 23, "b"));
+        assertFalse(set.add(42, 23, "a"));
+        assertFalse(set.add(42, 23, "b"));
+        assertEquals(2, set.size());
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintTest {
+
+    @Test
+    public void of() {
+        // Reference value of MurmurHash3_x64_128 with seed 0
+        Fingerprint fingerprint = Fingerprint.of("hell");
+        assertEquals(0x629942693e10f867L, fingerprint.getHigh());
+        assertEquals(0x92db0b82baeb5347L, fingerprint.getLow());
+    }
+
+    @Test
+    public void ofEmpty() {
+        Fingerprint fingerprint = Fingerprint.of("");
+        assertEquals(0, fingerprint.getHigh());
+        assertEquals(0, fingerprint.getLow());
+    }
+
+    @Test
+    public void ofDifferentLengths() {
+        // Covers all tail lengths
+        Set<String> fingerprints = new HashSet<>();
+        StringBuilder string = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            string.append('a');
+            Fingerprint fingerprint = Fingerprint.of(string.toString());
+            assertTrue("Duplicate fingerprint for length " + string.length(),
+                fingerprints.add(fingerprint.getHigh() + "/" + fingerprint.getLow()));
+        }
+    }
+
+    @Test
+    public void ofEqual() {
+        Fingerprint fingerprint1 = Fingerprint.of("SUMMARY:hällo");
+        Fingerprint fingerprint2 = Fingerprint.of("SUMMARY:hällo");
+        assertEquals(fingerprint1.getHigh(), fingerprint2.getHigh());
+        assertEquals(fingerprint1.getLow(), fingerprint2.getLow());
+    }
+
+    @Test
+    public void equalsAndHashCode() {
+        assertEquals(Fingerprint.of("SUMMARY:hällo"), Fingerprint.of("SUMMARY:hällo"));
+        assertEquals(Fingerprint.of("SUMMARY:hällo").hashCode(), Fingerprint.of("SUMMARY:hällo").hashCode());
+        assertNotEquals(Fingerprint.of("SUMMARY:hällo"), Fingerprint.of("SUMMARY:hallo"));
+        assertNotEquals(new Fingerprint(1, 2), new Fingerprint(2, 1));
+    }
+}
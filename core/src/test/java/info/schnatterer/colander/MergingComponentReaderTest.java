@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.component.VTimeZone;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class MergingComponentReaderTest {
+    private static final String[] TIME_ZONE = {
+        "BEGIN:VTIMEZONE",
+        "TZID:Europe/Berlin",
+        "BEGIN:STANDARD",
+        "DTSTART:19701025T030000",
+        "TZOFFSETFROM:+0200",
+        "TZOFFSETTO:+0100",
+        "END:STANDARD",
+        "END:VTIMEZONE"
+    };
+
+    @Test
+    public void mergeByStart() throws Exception {
+        MergingComponentReader reader = createReader(
+            calendar("first", event("a1", "20170101T100000Z"), event("a2", "20170103T100000Z")),
+            calendar("second", event("b1", "20170102T100000Z"), event("b2", "20170104T100000Z")),
+            calendar("third", event("c1", "20170101T100000Z")));
+
+        assertThat(readSummaries(reader)).containsExactly("a1", "c1", "b1", "a2", "b2");
+        assertEquals("Properties of first calendar", "first",
+            reader.getCalendarProperties().getProperty(Property.PRODID).getValue());
+    }
+
+    @Test
+    public void mergeTimeZones() throws Exception {
+        MergingComponentReader reader = createReader(
+            calendar("first", TIME_ZONE, event("a1", "TZID=Europe/Berlin", "20170101T100000")),
+            calendar("second", TIME_ZONE, event("b1", "TZID=Europe/Berlin", "20170101T090000")));
+
+        List<CalendarComponent> components = readAll(reader);
+
+        assertThat(components.stream().map(Component::getName))
+            .containsExactly(Component.VTIMEZONE, Component.VEVENT, Component.VEVENT);
+        VEvent second = (VEvent) components.get(1);
+        assertEquals("b1", second.getSummary().getValue());
+        assertEquals("Time zone known to second calendar", "Europe/Berlin",
+            second.getStartDate().getTimeZone().getID());
+    }
+
+    @Test
+    public void mergeTimeZonesSameIdDifferentDefinition() throws Exception {
+        String[] otherDefinition = TIME_ZONE.clone();
+        otherDefinition[4] = "TZOFFSETFROM:+0130";
+        MergingComponentReader reader = createReader(
+            calendar("first", TIME_ZONE, event("a1", "TZID=Europe/Berlin", "20170101T100000")),
+            calendar("second", otherDefinition, event("b1", "TZID=Europe/Berlin", "20170101T090000")));
+
+        List<CalendarComponent> components = readAll(reader);
+
+        assertThat(components.stream().map(Component::getName))
+            .containsExactly(Component.VTIMEZONE, Component.VEVENT, Component.VEVENT);
+        assertEquals("Definition of first calendar", "+0200",
+            ((VTimeZone) components.get(0)).getObservances().get(0).getProperty(Property.TZOFFSETFROM).getValue());
+    }
+
+    @Test
+    public void mergeEmptyCalendar() throws Exception {
+        MergingComponentReader reader = createReader(
+            calendar("first"),
+            calendar("second", event("b1", "20170102T100000Z")));
+
+        assertThat(readSummaries(reader)).containsExactly("b1");
+        assertThat(reader.read()).isEmpty();
+    }
+
+    @Test
+    public void getStart() throws Exception {
+        assertEquals(LocalDateTime.of(2017, 1, 1, 10, 0).toEpochSecond(ZoneOffset.UTC),
+            getStart("DTSTART:20170101T100000Z"));
+        assertEquals(LocalDateTime.of(2017, 1, 1, 10, 0).atZone(ZoneId.of("Europe/Berlin")).toEpochSecond(),
+            getStart("DTSTART;TZID=\"Europe/Berlin\":20170101T100000"));
+        assertEquals("Floating", LocalDateTime.of(2017, 1, 1, 10, 0).toEpochSecond(ZoneOffset.UTC),
+            getStart("DTSTART:20170101T100000"));
+        assertEquals("Unknown time zone", LocalDateTime.of(2017, 1, 1, 10, 0).toEpochSecond(ZoneOffset.UTC),
+            getStart("DTSTART;TZID=W. Europe Standard Time:20170101T100000"));
+        assertEquals("Date", LocalDate.of(2017, 1, 1).atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+            getStart("DTSTART;VALUE=DATE:20170101"));
+        assertEquals("Invalid", MergingComponentReader.NO_START, getStart("DTSTART:tomorrow"));
+        assertEquals("None", MergingComponentReader.NO_START, getStart("SUMMARY:DTSTART:20170101T100000Z"));
+    }
+
+    @Test
+    public void getStartIgnoresSubComponents() throws Exception {
+        byte[] content = String.join("\r\n", "BEGIN:VTODO", "BEGIN:VALARM", "DTSTART:20170101T100000Z", "END:VALARM",
+            "END:VTODO", "").getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(MergingComponentReader.NO_START,
+            MergingComponentReader.getStart(new ComponentReader.RawComponent("VTODO", content)));
+    }
+
+    private static long getStart(String dtStart) {
+        byte[] content = String.join("\r\n", "BEGIN:VEVENT", "SUMMARY:x", dtStart, "END:VEVENT", "")
+            .getBytes(StandardCharsets.UTF_8);
+        return MergingComponentReader.getStart(new ComponentReader.RawComponent("VEVENT", content));
+    }
+
+    private static String[] event(String summary, String start) {
+        return new String[] { "BEGIN:VEVENT", "SUMMARY:" + summary, "DTSTART:" + start, "END:VEVENT" };
+    }
+
+    private static String[] event(String summary, String startParameters, String start) {
+        return new String[] {
+            "BEGIN:VEVENT", "SUMMARY:" + summary, "DTSTART;" + startParameters + ":" + start, "END:VEVENT" };
+    }
+
+    private static String calendar(String productId, String[]... components) {
+        List<String> lines = new ArrayList<>();
+        lines.add("BEGIN:VCALENDAR");
+        lines.add("VERSION:2.0");
+        lines.add("PRODID:" + productId);
+        for (String[] component : components) {
+            lines.addAll(List.of(component));
+        }
+        lines.add("END:VCALENDAR");
+        return String.join("\r\n", lines) + "\r\n";
+    }
+
+    private static MergingComponentReader createReader(String... calendars) {
+        MergingComponentReader reader = new MergingComponentReader();
+        for (String calendar : calendars) {
+            reader.add(new ComponentReader(new ByteArrayInputStream(calendar.getBytes(StandardCharsets.UTF_8))));
+        }
+        return reader;
+    }
+
+    private static List<String> readSummaries(MergingComponentReader reader) throws Exception {
+        return readAll(reader).stream().map(component -> component.getProperty(Property.SUMMARY).getValue())
+            .collect(Collectors.toList());
+    }
+
+    private static List<CalendarComponent> readAll(MergingComponentReader reader) throws Exception {
+        List<CalendarComponent> components = new ArrayList<>();
+        Optional<CalendarComponent> component = reader.read();
+        while (component.isPresent()) {
+            components.add(component.get());
+            component = reader.read();
+        }
+        return components;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Date;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.property.Summary;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MultiRemoveFilterTest {
+    private MultiRemoveFilter filter = new MultiRemoveFilter(Property.SUMMARY, Arrays.asList(
+        new RemoveFilter("hallo", Property.SUMMARY),
+        new RemoveFilter("tools", Property.SUMMARY)));
+
+    @Test
+    public void applyMatch() throws Exception {
+        assertThat(filter.apply(new VEvent(new Date(), "hallo ical"))).isEmpty();
+        assertThat(filter.apply(new VEvent(new Date(), "hullo icaltools"))).isEmpty();
+    }
+
+    @Test
+    public void applyNoMatch() throws Exception {
+        VEvent event = new VEvent(new Date(), "hullo ical");
+        assertThat(filter.apply(event)).hasValueSatisfying(actual -> assertThat(actual).isSameAs(event));
+    }
+
+    @Test
+    public void filterSummaryDoesNotExist() throws Exception {
+        VEvent event = new VEvent();
+        assertThat(filter.apply(event)).hasValueSatisfying(actual -> assertThat(actual).isSameAs(event));
+    }
+
+    @Test
+    public void filterSummaryDoesHaveValue() throws Exception {
+        VEvent event = new VEvent();
+        event.getProperties().add(new Summary(null));
+        assertThat(filter.apply(event)).hasValueSatisfying(actual -> assertThat(actual).isSameAs(event));
+    }
+
+    @Test
+    public void findMatch() throws Exception {
+        assertThat(filter.findMatch("icaltools")).hasValue("tools");
+        assertThat(filter.findMatch("ical")).isEmpty();
+    }
+
+    @Test
+    public void mergeSequencesOfRemoveFilters() {
+        RemoveFilter summary1 = new RemoveFilter("a", Property.SUMMARY);
+        RemoveFilter description1 = new RemoveFilter("a", Property.DESCRIPTION);
+        RemoveFilter summary2 = new RemoveFilter("b", Property.SUMMARY);
+        ReplaceFilter replace = new ReplaceFilter("a", "b", Property.SUMMARY);
+        RemoveFilter summary3 = new RemoveFilter("c", Property.SUMMARY);
+        RemoveFilter summary4 = new RemoveFilter("d", Property.SUMMARY);
+
+        List<ColanderFilter> merged = MultiRemoveFilter.merge(
+            Arrays.asList(summary1, description1, summary2, replace, summary3, summary4));
+
+        assertEquals("Unexpected amount of filters", 4, merged.size());
+        assertMerged(merged.get(0), Property.SUMMARY, summary1, summary2);
+        assertSame(description1, merged.get(1));
+        assertSame(replace, merged.get(2));
+        assertMerged(merged.get(3), Property.SUMMARY, summary3, summary4);
+    }
+
+    @Test
+    public void isStateless() {
+        assertTrue("Stateless", filter.isStateless());
+    }
+
+    @Test
+    public void getAccessedProperties() {
+        assertThat(filter.getAccessedProperties())
+            .hasValueSatisfying(properties -> assertThat(properties).containsExactlyInAnyOrder(Property.SUMMARY));
+    }
+
+    @Test
+    public void getConfiguration() {
+        assertThat(new MultiRemoveFilter(Property.SUMMARY, Arrays.asList(
+            new RemoveFilter("a", Property.SUMMARY), new RemoveFilter("b", Property.SUMMARY))).getConfiguration())
+            .isNotEqualTo(new MultiRemoveFilter(Property.SUMMARY, Arrays.asList(
+                new RemoveFilter("a,b", Property.SUMMARY))).getConfiguration())
+            .isPresent();
+    }
+
+    private void assertMerged(ColanderFilter actual, String expectedProperty, RemoveFilter... expectedRules) {
+        assertTrue("Unexpected filter type", actual instanceof MultiRemoveFilter);
+        MultiRemoveFilter multiRemoveFilter = (MultiRemoveFilter) actual;
+        assertEquals("Unexpected property", expectedProperty, multiRemoveFilter.getPropertyName());
+        assertEquals("Unexpected rules", Arrays.asList(expectedRules), multiRemoveFilter.getRules());
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Date;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.property.Description;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MultiReplaceFilterTest {
+    private Date expectedDate = new Date();
+
+    @Test
+    public void filterAppliesRulesInSequence() throws Exception {
+        MultiReplaceFilter filter = new MultiReplaceFilter(Property.SUMMARY, Arrays.asList(
+            new ReplaceFilter("h.*llo", "hullo", Property.SUMMARY),
+            new ReplaceFilter("hullo", "hi", Property.SUMMARY),
+            new ReplaceFilter("icaltools", "colander", Property.SUMMARY)));
+        VEvent event = new VEvent(expectedDate, "hallo icaltools");
+        VEvent expectedEvent = new VEvent(expectedDate, "hi colander");
+        assertThat(filter.apply(event)).hasValue(expectedEvent);
+    }
+
+    @Test
+    public void filterSameAsSequentialReplaceFilters() throws Exception {
+        List<ReplaceFilter> rules = Arrays.asList(
+            new ReplaceFilter("(a+)", "<$1>", Property.DESCRIPTION),
+            new ReplaceFilter("<", "[", Property.DESCRIPTION),
+            new ReplaceFilter("^\\[", "", Property.DESCRIPTION));
+        VEvent expectedEvent = createVEvent("aab aaa b");
+        for (ReplaceFilter rule : rules) {
+            rule.apply(expectedEvent);
+        }
+
+        VEvent event = createVEvent("aab aaa b");
+        assertThat(new MultiReplaceFilter(Property.DESCRIPTION, rules).apply(event)).hasValue(expectedEvent);
+    }
+
+    @Test
+    public void applyWithVerdict() throws Exception {
+        MultiReplaceFilter filter = new MultiReplaceFilter(Property.SUMMARY, Arrays.asList(
+            new ReplaceFilter("a", "b", Property.SUMMARY),
+            new ReplaceFilter("b", "a", Property.SUMMARY)));
+
+        assertTrue("Changed", filter.applyWithVerdict(new VEvent(expectedDate, "ab")).isChanged());
+        // Replaced back and forth
+        assertFalse("Changed", filter.applyWithVerdict(new VEvent(expectedDate, "a")).isChanged());
+    }
+
+    @Test
+    public void filterIgnoresWhenNoMatch() throws Exception {
+        MultiReplaceFilter filter = new MultiReplaceFilter(Property.SUMMARY, Arrays.asList(
+            new ReplaceFilter("hallo", "hullo", Property.SUMMARY),
+            new ReplaceFilter("ho", "hi", Property.SUMMARY)));
+        VEvent event = new VEvent(expectedDate, "hullo icaltools");
+        assertThat(filter.apply(event)).hasValueSatisfying(actual -> assertThat(actual).isSameAs(event));
+    }
+
+    @Test
+    public void filterPropertyDoesNotExist() throws Exception {
+        MultiReplaceFilter filter = new MultiReplaceFilter(Property.DESCRIPTION, Arrays.asList(
+            new ReplaceFilter("hallo", "hullo", Property.DESCRIPTION),
+            new ReplaceFilter("ho", "hi", Property.DESCRIPTION)));
+        VEvent event = new VEvent(expectedDate, "hallo icaltools");
+        // Unfiltered
+        assertThat(filter.apply(event)).hasValue(new VEvent(expectedDate, "hallo icaltools"));
+    }
+
+    @Test
+    public void mergeSubsequentFiltersOnSameProperty() {
+        ReplaceFilter summary1 = new ReplaceFilter("a", "b", Property.SUMMARY);
+        ReplaceFilter summary2 = new ReplaceFilter("b", "c", Property.SUMMARY);
+        ReplaceFilter description = new ReplaceFilter("a", "b", Property.DESCRIPTION);
+        RemoveEmptyEventFilter removeEmpty = new RemoveEmptyEventFilter();
+        ReplaceFilter summary3 = new ReplaceFilter("c", "d", Property.SUMMARY);
+        ReplaceFilter summary4 = new ReplaceFilter("d", "e", Property.SUMMARY);
+
+        List<ColanderFilter> merged = MultiReplaceFilter.merge(
+            Arrays.asList(summary1, summary2, description, removeEmpty, summary3, summary4));
+
+        assertEquals("Unexpected amount of filters", 4, merged.size());
+        assertMerged(merged.get(0), Property.SUMMARY, summary1, summary2);
+        assertSame(description, merged.get(1));
+        assertSame(removeEmpty, merged.get(2));
+        assertMerged(merged.get(3), Property.SUMMARY, summary3, summary4);
+    }
+
+    @Test
+    public void mergeNothingToMerge() {
+        ReplaceFilter summary = new ReplaceFilter("a", "b", Property.SUMMARY);
+        ReplaceFilter description = new ReplaceFilter("a", "b", Property.DESCRIPTION);
+
+        List<ColanderFilter> merged = MultiReplaceFilter.merge(Arrays.asList(summary, description));
+
+        assertEquals(Arrays.asList(summary, description), merged);
+    }
+
+    @Test
+    public void isStateless() {
+        assertTrue("Stateless", new MultiReplaceFilter(Property.SUMMARY, Arrays.asList(
+            new ReplaceFilter("hallo", "hullo", Property.SUMMARY))).isStateless());
+    }
+
+    @Test
+    public void getAccessedProperties() {
+        assertThat(new MultiReplaceFilter(Property.SUMMARY, Arrays.asList(
+            new ReplaceFilter("hallo", "hullo", Property.SUMMARY))).getAccessedProperties())
+            .hasValueSatisfying(properties -> assertThat(properties).containsExactlyInAnyOrder(Property.SUMMARY));
+    }
+
+    @Test
+    public void getConfiguration() {
+        assertThat(new MultiReplaceFilter(Property.SUMMARY, Arrays.asList(
+            new ReplaceFilter("a", "b", Property.SUMMARY), new ReplaceFilter("c", "d", Property.SUMMARY)))
+            .getConfiguration())
+            .isNotEqualTo(new MultiReplaceFilter(Property.SUMMARY, Arrays.asList(
+                new ReplaceFilter("c", "d", Property.SUMMARY), new ReplaceFilter("a", "b", Property.SUMMARY)))
+                .getConfiguration())
+            .isPresent();
+    }
+
+    private void assertMerged(ColanderFilter actual, String expectedProperty, ReplaceFilter... expectedRules) {
+        assertTrue("Unexpected filter type", actual instanceof MultiReplaceFilter);
+        MultiReplaceFilter multiReplaceFilter = (MultiReplaceFilter) actual;
+        assertEquals("Unexpected property", expectedProperty, multiReplaceFilter.getPropertyName());
+        assertEquals("Unexpected rules", Arrays.asList(expectedRules), multiReplaceFilter.getRules());
+    }
+
+    private VEvent createVEvent(String description) {
+        VEvent event = new VEvent(expectedDate, "summary");
+        event.getProperties().add(new Description(description));
+        return event;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelGzipOutputStreamTest {
+
+    @Test
+    public void multipleBlocks() throws Exception {
+        byte[] data = createData(10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream output = new ParallelGzipOutputStream(compressed, executor, 1000, 2)) {
+                // Chunks that don't align with blocks
+                for (int i = 0; i < data.length; i += 777) {
+                    output.write(data, i, Math.min(777, data.length - i));
+                }
+            }
+
+            assertArrayEquals(data, decompress(compressed.toByteArray()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void compressionRatio() throws Exception {
+        byte[] data = createData(ParallelGzipOutputStream.BLOCK_SIZE * 5);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream output = new ParallelGzipOutputStream(compressed)) {
+            output.write(data);
+        }
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        try (OutputStream output = new GZIPOutputStream(sequential)) {
+            output.write(data);
+        }
+
+        assertArrayEquals(data, decompress(compressed.toByteArray()));
+        assertTrue("Compressed size " + compressed.size() + " not close to " + sequential.size(),
+            compressed.size() < sequential.size() * 1.05);
+    }
+
+    @Test
+    public void singleBytesAndFlush() throws Exception {
+        byte[] data = createData(100);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream output = new ParallelGzipOutputStream(compressed, Runnable::run, 16, 1)) {
+            for (int i = 0; i < data.length; i++) {
+                output.write(data[i]);
+                if (i % 30 == 0) {
+                    output.flush();
+                }
+            }
+        }
+
+        assertArrayEquals(data, decompress(compressed.toByteArray()));
+    }
+
+    @Test
+    public void empty() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed).close();
+
+        assertArrayEquals(new byte[0], decompress(compressed.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void writeAfterClose() throws Exception {
+        OutputStream output = new ParallelGzipOutputStream(new ByteArrayOutputStream());
+        output.close();
+
+        output.write(1);
+    }
+
+    private static byte[] createData(int length) {
+        // Compressible, but not trivially
+        Random random = new Random(42);
+        ByteArrayOutputStream data = new ByteArrayOutputStream(length);
+        while (data.size() < length) {
+            byte[] line = ("SUMMARY:Event " + random.nextInt(1000) + "\r\n").getBytes(StandardCharsets.UTF_8);
+            data.write(line, 0, Math.min(line.length, length - data.size()));
+        }
+        return data.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return input.readAllBytes();
+        }
+    }
+}
@@ -24,21 +24,34 @@
 package info.schnatterer.colander;
 
 import net.fortuna.ical4j.model.Date;
+import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.VEvent;
 import net.fortuna.ical4j.model.property.Description;
 import net.fortuna.ical4j.model.property.DtEnd;
 import net.fortuna.ical4j.model.property.Summary;
+import org.hamcrest.junit.ExpectedException;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneId;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 public class RemoveDuplicateEventFilterTest {
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
     private RemoveDuplicateEventFilter filter = new RemoveDuplicateEventFilter();
 
     private LocalDateTime startDate = LocalDateTime.of(2012, Month.DECEMBER, 12, 13, 0);
@@ -114,6 +127,77 @@ public class RemoveDuplicateEventFilterTest {
         assertThat(filter.apply(startDateNull)).hasValue(startDateNull);
     }
 
+    @Test
+    public void filterDescriptionNullAndEmpty() throws Exception {
+        VEvent descriptionNull = new VEvent(toDate(startDate), "description");
+        descriptionNull.getProperties().add(new Description(null));
+        VEvent descriptionEmpty = new VEvent(toDate(startDate), "description");
+        descriptionEmpty.getProperties().add(new Description(""));
+
+        assertThat(filter.apply(descriptionNull)).hasValue(descriptionNull);
+        assertThat(filter.apply(descriptionEmpty)).hasValue(descriptionEmpty);
+    }
+
+    @Test
+    public void filterEventChangedAfterFiltering() throws Exception {
+        VEvent equalEvent = createVEvent("Sum", "descr", startDate, endDate);
+        event.getSummary().setValue("changed");
+
+        assertThat(filter.apply(equalEvent)).isEmpty();
+    }
+
+    @Test
+    public void filterExactComparison() throws Exception {
+        RemoveDuplicateEventFilter exactFilter = new RemoveDuplicateEventFilter(true);
+        assertThat(exactFilter.apply(event)).hasValue(event);
+
+        VEvent equalEvent = createVEvent("Sum", "descr", startDate, endDate);
+        VEvent differentSummary = createVEvent("DifferentSummary", "descr", startDate, endDate);
+
+        assertThat(exactFilter.apply(equalEvent)).isEmpty();
+        assertThat(exactFilter.apply(differentSummary)).hasValue(differentSummary);
+    }
+
+    @Test
+    public void filterOnDisk() throws Exception {
+        RemoveDuplicateEventFilter diskFilter = new RemoveDuplicateEventFilter(false, DiskFingerprintSet.MIN_MEMORY_BUDGET);
+        assertThat(diskFilter.apply(event)).hasValue(event);
+
+        VEvent equalEvent = createVEvent("Sum", "descr", startDate, endDate);
+        VEvent differentSummary = createVEvent("DifferentSummary", "descr", startDate, endDate);
+
+        assertThat(diskFilter.apply(equalEvent)).isEmpty();
+        assertThat(diskFilter.apply(differentSummary)).hasValue(differentSummary);
+        diskFilter.close();
+    }
+
+    @Test
+    public void close() throws Exception {
+        filter.close();
+
+        assertThat(filter.apply(event)).hasValue(event);
+    }
+
+    @Test
+    public void filterIOException() throws Exception {
+        FingerprintStore store = mock(FingerprintStore.class);
+        when(store.add(anyString())).thenThrow(new IOException("mocked message"));
+
+        expectedException.expect(UncheckedIOException.class);
+        expectedException.expectMessage("mocked message");
+
+        new RemoveDuplicateEventFilter(store).apply(event);
+    }
+
+    @Test
+    public void comparisonKeyUnambiguous() throws Exception {
+        VEvent event1 = createVEvent("a+1:b", "c", startDate, endDate);
+        VEvent event2 = createVEvent("a", "b+1:c", startDate, endDate);
+
+        assertNotEquals(RemoveDuplicateEventFilter.comparisonKey(event1),
+            RemoveDuplicateEventFilter.comparisonKey(event2));
+    }
+
     private VEvent createVEvent(String sum, String descr, LocalDateTime startDate, LocalDateTime endDate) {
         VEvent event = new VEvent(toDate(startDate), toDate(endDate), sum);
         event.getProperties().add(new Description(descr));
@@ -123,4 +207,22 @@ public class RemoveDuplicateEventFilterTest {
     private Date toDate(LocalDateTime of) {
         return new Date(java.util.Date.from(of.atZone(ZoneId.systemDefault()).toInstant()));
     }
+
+    @Test
+    public void isStateless() {
+        assertFalse("Stateless", filter.isStateless());
+    }
+
+    @Test
+    public void getAccessedProperties() {
+        assertThat(filter.getAccessedProperties())
+            .hasValueSatisfying(properties -> assertThat(properties).containsExactlyInAnyOrder(
+                Property.SUMMARY, Property.DESCRIPTION, Property.DTSTART, Property.DTEND, Property.DURATION));
+    }
+
+    @Test
+    public void getConfiguration() {
+        assertThat(filter.getConfiguration()).isEqualTo(new RemoveDuplicateEventFilter(true).getConfiguration())
+            .isPresent();
+    }
 }
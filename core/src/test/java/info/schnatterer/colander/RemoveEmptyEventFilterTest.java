@@ -24,11 +24,13 @@
 package info.schnatterer.colander;
 
 import net.fortuna.ical4j.model.Date;
+import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.VEvent;
 import net.fortuna.ical4j.model.property.Description;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertSame;
 
 public class RemoveEmptyEventFilterTest {
@@ -80,4 +82,20 @@ public class RemoveEmptyEventFilterTest {
         event.getProperties().add(new Description(null));
         assertSame("Unexpected filtering result", event, filter.apply(event).orElse(null));
     }
+
+    @Test
+    public void isStateless() {
+        assertTrue("Stateless", filter.isStateless());
+    }
+
+    @Test
+    public void getAccessedProperties() {
+        assertThat(filter.getAccessedProperties())
+            .hasValueSatisfying(properties -> assertThat(properties).containsExactlyInAnyOrder(Property.SUMMARY, Property.DESCRIPTION));
+    }
+
+    @Test
+    public void getConfiguration() {
+        assertThat(filter.getConfiguration()).isEqualTo(new RemoveEmptyEventFilter().getConfiguration()).isPresent();
+    }
 }
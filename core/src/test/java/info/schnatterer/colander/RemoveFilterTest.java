@@ -30,6 +30,8 @@ import net.fortuna.ical4j.model.property.Summary;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class RemoveFilterTest {
 
@@ -62,4 +64,32 @@ public class RemoveFilterTest {
         assertThat(filter.apply(event)).hasValueSatisfying(actual -> assertThat(actual).isSameAs(event));
     }
 
+    @Test
+    public void applyWithVerdict() throws Exception {
+        RemoveFilter filter = new RemoveFilter("hallo", Property.SUMMARY);
+
+        assertTrue("Removed", filter.applyWithVerdict(new VEvent(new Date(), "hallo icaltools")).isRemoved());
+        FilterVerdict verdict = filter.applyWithVerdict(new VEvent(new Date(), "hullo icaltools"));
+        assertFalse("Removed", verdict.isRemoved());
+        assertFalse("Changed", verdict.isChanged());
+    }
+
+    @Test
+    public void isStateless() {
+        assertTrue("Stateless", new RemoveFilter("hallo", Property.SUMMARY).isStateless());
+    }
+
+    @Test
+    public void getAccessedProperties() {
+        assertThat(new RemoveFilter("hallo", Property.SUMMARY).getAccessedProperties())
+            .hasValueSatisfying(properties -> assertThat(properties).containsExactlyInAnyOrder(Property.SUMMARY));
+    }
+
+    @Test
+    public void getConfiguration() {
+        assertThat(new RemoveFilter("hallo", Property.SUMMARY).getConfiguration())
+            .isEqualTo(new RemoveFilter("hallo", Property.SUMMARY).getConfiguration())
+            .isNotEqualTo(new RemoveFilter("hallo", Property.DESCRIPTION).getConfiguration())
+            .isNotEqualTo(new RemoveFilter("hullo", Property.SUMMARY).getConfiguration());
+    }
 }
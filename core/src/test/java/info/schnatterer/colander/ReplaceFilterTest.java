@@ -37,6 +37,8 @@ import java.net.URISyntaxException;
 import java.text.ParseException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 public class ReplaceFilterTest {
@@ -83,6 +85,29 @@ public class ReplaceFilterTest {
         assertThat(filter.apply(event)).hasValue(event);
     }
 
+    @Test
+    public void applyWithVerdict() throws Exception {
+        ReplaceFilter filter = new ReplaceFilter("h.*llo", "hullo", Property.SUMMARY);
+        VEvent event = new VEvent(expectedDate, "hallo icaltools");
+
+        FilterVerdict verdict = filter.applyWithVerdict(event);
+
+        assertTrue("Changed", verdict.isChanged());
+        assertThat(verdict.getComponent()).hasValueSatisfying(actual -> assertThat(actual).isSameAs(event));
+    }
+
+    @Test
+    public void applyWithVerdictNoMatch() throws Exception {
+        ReplaceFilter filter = new ReplaceFilter("hallo", "hullo", Property.SUMMARY);
+        // Replacing results in the same value
+        VEvent event = new VEvent(expectedDate, "hullo icaltools");
+
+        FilterVerdict verdict = filter.applyWithVerdict(event);
+
+        assertFalse("Changed", verdict.isChanged());
+        assertThat(verdict.getComponent()).hasValueSatisfying(actual -> assertThat(actual).isSameAs(event));
+    }
+
     @Test
     public void filterIOException() throws Exception {
         testException(new IOException("mocked Message"));
@@ -115,4 +140,24 @@ public class ReplaceFilterTest {
 
         filter.apply(new VEvent(false));
     }
+
+    @Test
+    public void isStateless() {
+        assertTrue("Stateless", new ReplaceFilter("hallo", "hullo", Property.SUMMARY).isStateless());
+    }
+
+    @Test
+    public void getAccessedProperties() {
+        assertThat(new ReplaceFilter("hallo", "hullo", Property.SUMMARY).getAccessedProperties())
+            .hasValueSatisfying(properties -> assertThat(properties).containsExactlyInAnyOrder(Property.SUMMARY));
+    }
+
+    @Test
+    public void getConfiguration() {
+        assertThat(new ReplaceFilter("hallo", "hullo", Property.SUMMARY).getConfiguration())
+            .isEqualTo(new ReplaceFilter("hallo", "hullo", Property.SUMMARY).getConfiguration())
+            .isNotEqualTo(new ReplaceFilter("hallo", "hullo", Property.DESCRIPTION).getConfiguration())
+            .isNotEqualTo(new ReplaceFilter("hallo", "hallo", Property.SUMMARY).getConfiguration())
+            .isNotEqualTo(new ReplaceFilter("hullo", "hullo", Property.SUMMARY).getConfiguration());
+    }
 }
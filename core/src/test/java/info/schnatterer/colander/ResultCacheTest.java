@@ -0,0 +1,136 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void key() throws Exception {
+        ResultCache cache = createCache(Long.MAX_VALUE);
+        Path input = createInput("content");
+
+        assertEquals("Same input", cache.key(input, "config"), cache.key(input, "config"));
+        assertNotEquals("Other configuration", cache.key(input, "config"), cache.key(input, "other"));
+    }
+
+    @Test
+    public void keyChangedContent() throws Exception {
+        ResultCache cache = createCache(Long.MAX_VALUE);
+        Path input = createInput("content");
+        Fingerprint key = cache.key(input, "config");
+        FileTime lastModified = Files.getLastModifiedTime(input);
+
+        Files.write(input, "CONTENT".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(input, lastModified);
+
+        assertNotEquals(key, cache.key(input, "config"));
+    }
+
+    @Test
+    public void keyChangedModificationTime() throws Exception {
+        ResultCache cache = createCache(Long.MAX_VALUE);
+        Path input = createInput("content");
+        Fingerprint key = cache.key(input, "config");
+
+        Files.setLastModifiedTime(input, FileTime.fromMillis(Files.getLastModifiedTime(input).toMillis() - 1000));
+
+        assertNotEquals(key, cache.key(input, "config"));
+    }
+
+    @Test
+    public void keyLargeFileSampled() throws Exception {
+        ResultCache cache = createCache(Long.MAX_VALUE);
+        byte[] content = new byte[10 * ResultCache.SAMPLE_SIZE];
+        Path input = folder.newFile().toPath();
+        Files.write(input, content);
+        FileTime lastModified = Files.getLastModifiedTime(input);
+        Fingerprint key = cache.key(input, "config");
+
+        // Within the sample of the middle
+        content[content.length / 2 + 1] = 1;
+        Files.write(input, content);
+        Files.setLastModifiedTime(input, lastModified);
+
+        assertNotEquals(key, cache.key(input, "config"));
+    }
+
+    @Test
+    public void getPut() throws Exception {
+        ResultCache cache = createCache(Long.MAX_VALUE);
+        Fingerprint key = Fingerprint.of("key");
+        assertNull("Not cached yet", cache.get(key));
+
+        cache.put(key, createInput("output"));
+
+        Path cached = cache.get(key);
+        assertNotNull("Cached", cached);
+        assertArrayEquals("output".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(cached));
+    }
+
+    @Test
+    public void putEvictsLeastRecentlyUsed() throws Exception {
+        ResultCache cache = createCache(2 * "output".length());
+        Fingerprint first = Fingerprint.of("first");
+        Fingerprint second = Fingerprint.of("second");
+        Fingerprint third = Fingerprint.of("third");
+        cache.put(first, createInput("output"));
+        cache.put(second, createInput("output"));
+        Files.setLastModifiedTime(cache.get(second), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cache.get(first), FileTime.fromMillis(2000));
+
+        cache.put(third, createInput("output"));
+
+        assertNotNull("First", cache.get(first));
+        assertNull("Second", cache.get(second));
+        assertNotNull("Third", cache.get(third));
+    }
+
+    private ResultCache createCache(long maxSize) {
+        return new ResultCache(folder.getRoot().toPath().resolve("cache"), maxSize);
+    }
+
+    private Path createInput(String content) throws Exception {
+        Path input = folder.newFile().toPath();
+        Files.write(input, content.getBytes(StandardCharsets.UTF_8));
+        return input;
+    }
+}
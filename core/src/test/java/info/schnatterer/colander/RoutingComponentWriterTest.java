@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Johannes Schnatterer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package info.schnatterer.colander;
+
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyList;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.component.VTimeZone;
+import net.fortuna.ical4j.model.component.VToDo;
+import net.fortuna.ical4j.model.property.Version;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RoutingComponentWriterTest {
+    private static final VEvent EVENT = new VEvent(new PropertyList<>());
+    private static final VToDo TODO = new VToDo(new PropertyList<>());
+    private static final VTimeZone TIME_ZONE = new VTimeZone(new PropertyList<>());
+    private static final String START = "BEGIN:VCALENDAR\r\n" + Version.VERSION_2_0;
+    private static final String END = "END:VCALENDAR\r\n";
+
+    private Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+
+    @Test
+    public void write() throws Exception {
+        try (RoutingComponentWriter writer = createWriter()) {
+            writer.writeStart(calendarProperties());
+            writer.route(TIME_ZONE).write(TIME_ZONE);
+            writer.route(EVENT).write(EVENT);
+            writer.route(TODO).write(TODO);
+            writer.route(EVENT).write(EVENT);
+            writer.writeEnd();
+        }
+
+        assertThat(outputs).containsOnlyKeys("VEVENT", "VTODO");
+        assertEquals(START + TIME_ZONE + EVENT + EVENT + END, output("VEVENT"));
+        assertEquals(START + TIME_ZONE + TODO + END, output("VTODO"));
+    }
+
+    @Test
+    public void writeTimeZoneToExistingRoutes() throws Exception {
+        try (RoutingComponentWriter writer = createWriter()) {
+            writer.writeVerbatim(SourceRange.of(bytes(START)));
+            writer.route(EVENT).write(EVENT);
+            writer.route(TIME_ZONE).write(TIME_ZONE);
+            writer.route(TODO).write(TODO);
+            writer.writeEnd(SourceRange.of(bytes(END)));
+        }
+
+        assertEquals(START + EVENT + TIME_ZONE + END, output("VEVENT"));
+        assertEquals(START + TIME_ZONE + TODO + END, output("VTODO"));
+    }
+
+    @Test
+    public void writeWithoutRoute() throws Exception {
+        try (RoutingComponentWriter writer = createWriter(component -> null)) {
+            writer.writeStart(calendarProperties());
+            ComponentWriter route = writer.route(EVENT);
+            route.write(EVENT);
+            // Serialized components have no route
+            assertSame(route, writer.route(null));
+            writer.route(null).write(TODO.toString());
+            writer.writeEnd();
+        }
+
+        assertThat(outputs).containsOnlyKeys((String) null);
+        assertEquals(START + EVENT + TODO + END, output(null));
+    }
+
+    @Test
+    public void writeNoComponents() throws Exception {
+        try (RoutingComponentWriter writer = createWriter()) {
+            writer.writeStart(calendarProperties());
+            writer.writeEnd();
+        }
+
+        assertEquals(START + END, output(null));
+    }
+
+    @Test(expected = IOException.class)
+    public void writeFails() throws Exception {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Mocked exception");
+            }
+        };
+        try (RoutingComponentWriter writer = new RoutingComponentWriter(component -> null, route -> failing)) {
+            writer.writeStart(calendarProperties());
+            for (int i = 0; i < 10_000; i++) {
+                writer.route(EVENT).write(EVENT);
+            }
+            writer.writeEnd();
+        }
+    }
+
+    private RoutingComponentWriter createWriter() {
+        return createWriter(Component::getName);
+    }
+
+    private RoutingComponentWriter createWriter(Function<CalendarComponent, String> router) {
+        return new RoutingComponentWriter(router, route -> {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            outputs.put(route, output);
+            return output;
+        });
+    }
+
+    private String output(String route) throws IOException {
+        return outputs.get(route).toString("UTF-8");
+    }
+
+    private static PropertyList<Property> calendarProperties() {
+        PropertyList<Property> properties = new PropertyList<>();
+        properties.add(Version.VERSION_2_0);
+        return properties;
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}